@@ -0,0 +1,166 @@
+package com.esgi.pizzeria.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.esgi.pizzeria.PizzeriaApplication;
+import com.esgi.pizzeria.config.DataBootstrap;
+import com.esgi.pizzeria.domain.Customer;
+import com.esgi.pizzeria.domain.Dish;
+import com.esgi.pizzeria.domain.Ingredient;
+import com.esgi.pizzeria.domain.Order;
+import com.esgi.pizzeria.domain.OrderLine;
+import com.esgi.pizzeria.domain.Product;
+import com.esgi.pizzeria.repository.JsonCustomerRepository;
+import com.esgi.pizzeria.repository.JsonIngredientRepository;
+import com.esgi.pizzeria.repository.JsonOrderRepository;
+import com.esgi.pizzeria.repository.JsonProductRepository;
+
+/**
+ * Démarrage de l'application pour les benchmarks, sur un répertoire de données vierge.
+ * <p>
+ * Les repositories écrivent dans {@code Backend/data} relatif au répertoire courant :
+ * le profil Maven lance les benchmarks depuis {@code target/jmh}, jamais sur les vraies données.
+ * </p>
+ */
+final class BenchmarkContext {
+
+    static final Path DATA_DIR = Path.of("Backend", "data");
+
+    // Taille des lots d'insertion lors du remplissage
+    private static final int LOAD_CHUNK = 10_000;
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * Vide le répertoire de données puis démarre le contexte Spring, sans serveur web.
+     * Les chronométrages par opération et les logs d'information sont désactivés pour ne pas fausser les mesures.
+     * Retourne une fois l'historique des commandes chargé (il l'est en arrière-plan au démarrage).
+     */
+    static ConfigurableApplicationContext start() {
+        deleteDataDir();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(PizzeriaApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "pizzeria.metrics.repository-timers.enabled=false")
+                .run();
+        context.getBean(DataBootstrap.class).awaitOrderHistory(Duration.ofMinutes(1));
+        return context;
+    }
+
+    static void deleteDataDir() {
+        if (!Files.exists(DATA_DIR)) return;
+        try (Stream<Path> paths = Files.walk(DATA_DIR)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Ajoute des clients jusqu'à atteindre {@code size} clients.
+     */
+    static void fillCustomers(JsonCustomerRepository repository, int size) {
+        for (int i = repository.count(); i < size; i++) {
+            repository.save(new Customer("Client " + i, String.format("06%08d", i), i + " rue du Four", "Paris"));
+        }
+        repository.flush();
+    }
+
+    /**
+     * Ajoute des produits jusqu'à atteindre {@code size} produits (stock illimité).
+     */
+    static void fillProducts(JsonProductRepository repository, int size) {
+        List<Product> chunk = new ArrayList<>(LOAD_CHUNK);
+        for (int i = repository.count(); i < size; i++) {
+            Product product = new Dish("Produit " + i, BigDecimal.valueOf(5 + i % 20), false);
+            product.setCategory("PIZZA");
+            product.setVat(new BigDecimal("0.10"));
+            chunk.add(product);
+            if (chunk.size() == LOAD_CHUNK) {
+                repository.saveAll(chunk);
+                chunk.clear();
+            }
+        }
+        repository.saveAll(chunk);
+        repository.flush();
+    }
+
+    /**
+     * Ajoute des ingrédients jusqu'à atteindre {@code size} ingrédients.
+     */
+    static void fillIngredients(JsonIngredientRepository repository, int size) {
+        List<Ingredient> chunk = new ArrayList<>(LOAD_CHUNK);
+        for (int i = repository.count(); i < size; i++) {
+            Ingredient ingredient = new Ingredient();
+            ingredient.setId("bench-ing-" + i);
+            ingredient.setName("Ingrédient " + i);
+            ingredient.setStock(1_000_000);
+            ingredient.setUnit("kg");
+            chunk.add(ingredient);
+            if (chunk.size() == LOAD_CHUNK) {
+                repository.saveAll(chunk);
+                chunk.clear();
+            }
+        }
+        repository.saveAll(chunk);
+        repository.flush();
+    }
+
+    /**
+     * Ajoute des commandes passées (une par minute, en remontant le temps) jusqu'à {@code size} commandes.
+     */
+    static void fillOrders(JsonOrderRepository repository, Product product, int size) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> chunk = new ArrayList<>(LOAD_CHUNK);
+        for (int i = repository.count(); i < size; i++) {
+            chunk.add(pastOrder(product, now.minusMinutes(i + 1L)));
+            if (chunk.size() == LOAD_CHUNK) {
+                repository.saveAll(chunk);
+                chunk = new ArrayList<>(LOAD_CHUNK);
+            }
+        }
+        repository.saveAll(chunk);
+        repository.flush();
+    }
+
+    private static Order pastOrder(Product product, LocalDateTime date) {
+        OrderLine line = new OrderLine();
+        line.setId(product.getId());
+        line.setName(product.getName());
+        line.setPrice(product.getPrice());
+        line.setQuantity(2);
+        line.setType("DISH");
+        line.setCategory(product.getCategory());
+        line.setVat(product.getVat());
+
+        Order order = new Order();
+        order.setDate(date.toString());
+        order.setSalespersonId("bench");
+        order.setTableNumber(1);
+        order.setPaymentMethod("CARD");
+        order.setTotalAmount(product.getPrice().multiply(BigDecimal.valueOf(2)));
+        order.setDiscountAmount(BigDecimal.ZERO);
+        order.getItems().add(line);
+        return order;
+    }
+}
@@ -0,0 +1,63 @@
+package com.esgi.pizzeria.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Lanceur des benchmarks JMH (profil Maven {@code jmh}).
+ * <p>
+ * La suite est exécutée une fois par nombre de threads demandé : comparer les résultats à 1, 4 et 16
+ * threads fait apparaître la contention sur les verrous des repositories.
+ * </p>
+ * <ul>
+ *   <li>{@code jmh.include} : expression régulière des benchmarks à lancer (défaut : tous).</li>
+ *   <li>{@code jmh.threads} : nombres de threads séparés par des virgules (défaut : 1).</li>
+ *   <li>{@code jmh.args} : options JMH supplémentaires (ex : {@code -p size=100 -f 1}).</li>
+ *   <li>{@code jmh.results} : dossier des résultats JSON (défaut : {@code results}).</li>
+ * </ul>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        String include = System.getProperty("jmh.include", ".*");
+        String[] extra = System.getProperty("jmh.args", "").trim().split("\\s+");
+        if (extra.length == 1 && extra[0].isEmpty()) extra = new String[0];
+        CommandLineOptions cli = new CommandLineOptions(concat(extra, args));
+
+        Path results = Path.of(System.getProperty("jmh.results", "results"));
+        Files.createDirectories(results);
+
+        for (String value : System.getProperty("jmh.threads", "1").split(",")) {
+            int threads = Integer.parseInt(value.trim());
+            Path output = results.resolve("jmh-t" + threads + ".json");
+            Options options = new OptionsBuilder()
+                    .parent(cli)
+                    .include(include)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(output.toString())
+                    .build();
+            new Runner(options).run();
+            System.out.println("Résultats (" + threads + " thread(s)) : " + output.toAbsolutePath());
+        }
+    }
+
+    private static String[] concat(String[] first, String[] second) {
+        String[] all = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+}
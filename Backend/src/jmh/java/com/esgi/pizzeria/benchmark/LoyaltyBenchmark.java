@@ -0,0 +1,64 @@
+package com.esgi.pizzeria.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.esgi.pizzeria.domain.Customer;
+import com.esgi.pizzeria.repository.JsonCustomerRepository;
+import com.esgi.pizzeria.service.CustomerService;
+
+/**
+ * Crédit de points de fidélité ({@link CustomerService#addLoyaltyPoints(String, BigDecimal)}) selon le nombre de clients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoyaltyBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private static final BigDecimal ORDER_TOTAL = new BigDecimal("27.50");
+
+    private ConfigurableApplicationContext context;
+    private CustomerService customerService;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        customerService = context.getBean(CustomerService.class);
+        JsonCustomerRepository repository = context.getBean(JsonCustomerRepository.class);
+        BenchmarkContext.fillCustomers(repository, size);
+        ids = repository.findAll().stream().map(Customer::getId).toArray(String[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Customer addLoyaltyPoints() {
+        return customerService.addLoyaltyPoints(ids[ThreadLocalRandom.current().nextInt(ids.length)], ORDER_TOTAL);
+    }
+}
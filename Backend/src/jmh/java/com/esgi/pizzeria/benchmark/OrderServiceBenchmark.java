@@ -0,0 +1,105 @@
+package com.esgi.pizzeria.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.esgi.pizzeria.domain.Customer;
+import com.esgi.pizzeria.domain.Ingredient;
+import com.esgi.pizzeria.domain.Order;
+import com.esgi.pizzeria.domain.OrderLine;
+import com.esgi.pizzeria.domain.Product;
+import com.esgi.pizzeria.repository.JsonCustomerRepository;
+import com.esgi.pizzeria.repository.JsonIngredientRepository;
+import com.esgi.pizzeria.repository.JsonOrderRepository;
+import com.esgi.pizzeria.repository.JsonProductRepository;
+import com.esgi.pizzeria.service.OrderService;
+
+/**
+ * Chaîne complète d'encaissement ({@link OrderService#createOrder(Order)}) selon la taille de
+ * l'historique : prix, stock, journal avec barrière durable, statistiques et fidélité.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OrderServiceBenchmark {
+
+    // Commandes déjà présentes dans l'historique
+    @Param({"100", "10000", "1000000"})
+    public int history;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private List<Product> products;
+    private String customerId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        orderService = context.getBean(OrderService.class);
+
+        // Stocks illimités : la mesure ne doit pas s'arrêter sur une rupture
+        JsonProductRepository productRepository = context.getBean(JsonProductRepository.class);
+        products = productRepository.findAll();
+        products.forEach(p -> p.setStock(null));
+        productRepository.saveAll(products);
+        JsonIngredientRepository ingredientRepository = context.getBean(JsonIngredientRepository.class);
+        List<Ingredient> ingredients = ingredientRepository.findAll();
+        ingredients.forEach(i -> i.setStock(1_000_000_000));
+        ingredientRepository.saveAll(ingredients);
+
+        JsonCustomerRepository customerRepository = context.getBean(JsonCustomerRepository.class);
+        customerId = customerRepository.save(new Customer("Client fidèle", "0600000000", "1 rue du Four", "Paris")).getId();
+
+        BenchmarkContext.fillOrders(context.getBean(JsonOrderRepository.class), products.get(0), history);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Order createOrder() {
+        return orderService.createOrder(newOrder(null));
+    }
+
+    @Benchmark
+    public Order createOrderWithLoyalty() {
+        return orderService.createOrder(newOrder(customerId));
+    }
+
+    private Order newOrder(String customer) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Order order = new Order();
+        order.setSalespersonId("bench");
+        order.setTableNumber(1 + random.nextInt(20));
+        order.setPaymentMethod("CARD");
+        order.setCustomerId(customer);
+        for (int i = 0; i < 3; i++) {
+            OrderLine line = new OrderLine();
+            line.setId(products.get(random.nextInt(products.size())).getId());
+            line.setQuantity(1 + random.nextInt(2));
+            order.getItems().add(line);
+        }
+        return order;
+    }
+}
@@ -0,0 +1,41 @@
+package com.esgi.pizzeria.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.esgi.pizzeria.util.SecurityUtils;
+
+/**
+ * Hachage des codes PIN ({@link SecurityUtils#hashPassword(String)}), appelé à chaque connexion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PasswordHashBenchmark {
+
+    private final String[] pins = new String[1024];
+
+    public PasswordHashBenchmark() {
+        for (int i = 0; i < pins.length; i++) {
+            pins[i] = String.format("%04d", i * 7 % 10_000);
+        }
+    }
+
+    @Benchmark
+    public String hashPassword() {
+        return SecurityUtils.hashPassword(pins[ThreadLocalRandom.current().nextInt(pins.length)]);
+    }
+}
@@ -0,0 +1,135 @@
+package com.esgi.pizzeria.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.esgi.pizzeria.domain.Customer;
+import com.esgi.pizzeria.domain.Ingredient;
+import com.esgi.pizzeria.domain.Order;
+import com.esgi.pizzeria.domain.Product;
+import com.esgi.pizzeria.repository.JsonCustomerRepository;
+import com.esgi.pizzeria.repository.JsonIngredientRepository;
+import com.esgi.pizzeria.repository.JsonOrderRepository;
+import com.esgi.pizzeria.repository.JsonProductRepository;
+
+/**
+ * Opérations de base des repositories JSON selon le volume de données.
+ * <p>
+ * {@code save} met à jour un élément existant (le volume reste constant) : la mesure inclut
+ * l'index en mémoire et le signalement au write-behind, dont les écritures disque tournent en tâche de fond.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RepositoryBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    @Param({"customers", "products", "ingredients", "orders"})
+    public String repository;
+
+    private ConfigurableApplicationContext context;
+    private Fixture<?> fixture;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        fixture = switch (repository) {
+            case "customers" -> {
+                JsonCustomerRepository repo = context.getBean(JsonCustomerRepository.class);
+                BenchmarkContext.fillCustomers(repo, size);
+                yield new Fixture<>(repo.findAll(), Customer::getId, id -> repo.findById(id).orElseThrow(), repo::save, repo::findAll);
+            }
+            case "products" -> {
+                JsonProductRepository repo = context.getBean(JsonProductRepository.class);
+                BenchmarkContext.fillProducts(repo, size);
+                yield new Fixture<>(repo.findAll(), Product::getId, id -> repo.findById(id).orElseThrow(), repo::save, repo::findAll);
+            }
+            case "ingredients" -> {
+                JsonIngredientRepository repo = context.getBean(JsonIngredientRepository.class);
+                BenchmarkContext.fillIngredients(repo, size);
+                yield new Fixture<>(repo.findAll(), Ingredient::getId, id -> repo.findById(id).orElseThrow(), repo::save, repo::findAll);
+            }
+            case "orders" -> {
+                JsonOrderRepository repo = context.getBean(JsonOrderRepository.class);
+                Product product = context.getBean(JsonProductRepository.class).findAll().get(0);
+                BenchmarkContext.fillOrders(repo, product, size);
+                yield new Fixture<>(repo.findAll(), Order::getId, id -> repo.findById(id).orElseThrow(), repo::save, repo::findAll);
+            }
+            default -> throw new IllegalArgumentException("Repository inconnu : " + repository);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object findById() {
+        return fixture.findRandom();
+    }
+
+    @Benchmark
+    public Object save() {
+        return fixture.saveRandom();
+    }
+
+    @Benchmark
+    public List<?> findAll() {
+        return fixture.findAll.get();
+    }
+
+    /**
+     * Opérations d'un repository, indépendamment du type d'élément.
+     */
+    private static final class Fixture<T> {
+
+        private final List<T> items;
+        private final String[] ids;
+        private final Function<String, T> findById;
+        private final UnaryOperator<T> save;
+        private final Supplier<List<T>> findAll;
+
+        private Fixture(List<T> items, Function<T, String> idOf, Function<String, T> findById,
+                        UnaryOperator<T> save, Supplier<List<T>> findAll) {
+            this.items = items;
+            this.ids = items.stream().map(idOf).toArray(String[]::new);
+            this.findById = findById;
+            this.save = save;
+            this.findAll = findAll;
+        }
+
+        private T findRandom() {
+            return findById.apply(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+        }
+
+        private T saveRandom() {
+            return save.apply(items.get(ThreadLocalRandom.current().nextInt(items.size())));
+        }
+    }
+}
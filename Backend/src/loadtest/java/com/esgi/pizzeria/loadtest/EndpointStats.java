@@ -0,0 +1,79 @@
+package com.esgi.pizzeria.loadtest;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latences et erreurs d'un endpoint, alimentées en parallèle par tous les terminaux.
+ * <p>
+ * Les latences sont enregistrées en microsecondes dans un {@link Recorder} HdrHistogram
+ * (sans verrou) ; {@link #reset()} écarte les mesures de la phase de chauffe.
+ * </p>
+ */
+final class EndpointStats {
+
+    // Plus grande latence mesurable : 1 minute
+    private static final long MAX_LATENCY_US = TimeUnit.MINUTES.toMicros(1);
+
+    private final String name;
+    private final Recorder recorder = new Recorder(MAX_LATENCY_US, 3);
+    private final LongAdder errors = new LongAdder();
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Enregistre un appel terminé.
+     *
+     * @param startNanos Instant d'envoi ({@link System#nanoTime()}).
+     * @param success    false si l'appel a échoué (statut HTTP inattendu ou exception).
+     */
+    void record(long startNanos, boolean success) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        recorder.recordValue(Math.min(Math.max(micros, 1), MAX_LATENCY_US));
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Oublie tout ce qui a été mesuré jusqu'ici.
+     */
+    void reset() {
+        recorder.reset();
+        errors.reset();
+    }
+
+    /**
+     * Fige les mesures depuis le dernier {@link #reset()}.
+     */
+    Snapshot snapshot() {
+        return new Snapshot(name, recorder.getIntervalHistogram(), errors.sum());
+    }
+
+    /**
+     * Mesures figées d'un endpoint sur la période mesurée.
+     */
+    record Snapshot(String name, Histogram histogram, long errors) {
+
+        long count() {
+            return histogram.getTotalCount();
+        }
+
+        double errorRate() {
+            return count() == 0 ? 0 : (double) errors / count();
+        }
+
+        double percentileMillis(double percentile) {
+            return histogram.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+}
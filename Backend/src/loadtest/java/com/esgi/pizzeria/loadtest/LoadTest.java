@@ -0,0 +1,162 @@
+package com.esgi.pizzeria.loadtest;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.esgi.pizzeria.PizzeriaApplication;
+import com.esgi.pizzeria.config.DataBootstrap;
+import com.esgi.pizzeria.domain.Customer;
+import com.esgi.pizzeria.domain.Ingredient;
+import com.esgi.pizzeria.domain.Product;
+import com.esgi.pizzeria.repository.JsonCustomerRepository;
+import com.esgi.pizzeria.repository.JsonIngredientRepository;
+import com.esgi.pizzeria.repository.JsonProductRepository;
+
+/**
+ * Tir de charge : démarre {@link PizzeriaApplication} sur un port aléatoire et fait tourner
+ * une flotte de caisses simulées ({@link Terminal}) contre l'API REST.
+ * <p>
+ * Lancement : {@code mvn -Ploadtest test-compile exec:exec -Dloadtest.terminals=50 -Dloadtest.duration=120}.
+ * Le rapport donne, par endpoint, le débit, les latences p50/p99/p99.9/max et le taux d'erreur ;
+ * les distributions complètes HdrHistogram sont écrites dans {@code results/<endpoint>.hgrm}.
+ * </p>
+ * <p>
+ * L'application écrit dans {@code Backend/data} relatif au répertoire courant : le profil Maven
+ * lance le tir depuis {@code target/loadtest}, sur un répertoire vidé à chaque démarrage.
+ * </p>
+ */
+public final class LoadTest {
+
+    static final List<String> ENDPOINTS = List.of("login", "catalog", "customer-lookup", "redeem", "order");
+
+    private static final Path DATA_DIR = Path.of("Backend", "data");
+    private static final Path RESULTS_DIR = Path.of("results");
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        deleteDataDir();
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(PizzeriaApplication.class)
+                .logStartupInfo(false)
+                .properties(
+                        "server.port=0",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN")
+                .run(args)) {
+            context.getBean(DataBootstrap.class).awaitOrderHistory(Duration.ofMinutes(1));
+            seed(context, config);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            Map<String, EndpointStats> stats = run(config, "http://localhost:" + port);
+            report(config, stats);
+        }
+    }
+
+    /**
+     * Téléphone du client n° {@code index}, connu des terminaux pour la recherche.
+     */
+    static String customerPhone(int index) {
+        return String.format("07%08d", index);
+    }
+
+    /**
+     * Prépare les données : stocks illimités (le tir ne doit pas s'arrêter sur une rupture)
+     * et clients fidélité avec assez de points pour plusieurs utilisations.
+     */
+    private static void seed(ConfigurableApplicationContext context, LoadTestConfig config) {
+        JsonProductRepository products = context.getBean(JsonProductRepository.class);
+        List<Product> catalog = products.findAll();
+        catalog.forEach(p -> p.setStock(null));
+        products.saveAll(catalog);
+        products.flush();
+
+        JsonIngredientRepository ingredients = context.getBean(JsonIngredientRepository.class);
+        List<Ingredient> pantry = ingredients.findAll();
+        pantry.forEach(i -> i.setStock(1_000_000_000));
+        ingredients.saveAll(pantry);
+        ingredients.flush();
+
+        JsonCustomerRepository customers = context.getBean(JsonCustomerRepository.class);
+        for (int i = 0; i < config.customers(); i++) {
+            Customer customer = new Customer("Client " + i, customerPhone(i), i + " rue de la Charge", "Paris");
+            customer.setLoyaltyPoints(500);
+            customers.save(customer);
+        }
+        customers.flush();
+    }
+
+    private static Map<String, EndpointStats> run(LoadTestConfig config, String baseUrl) throws InterruptedException {
+        Map<String, EndpointStats> stats = new LinkedHashMap<>();
+        ENDPOINTS.forEach(name -> stats.put(name, new EndpointStats(name)));
+
+        long end = System.nanoTime() + config.warmup().plus(config.duration()).toNanos();
+        List<Thread> terminals = new ArrayList<>();
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            for (int i = 0; i < config.terminals(); i++) {
+                Terminal terminal = new Terminal(client, baseUrl, config, stats, () -> System.nanoTime() < end);
+                terminals.add(Thread.ofVirtual().name("terminal-" + i).start(terminal));
+            }
+            System.out.printf("%d terminaux sur %s : chauffe %ds, mesure %ds%n",
+                    config.terminals(), baseUrl, config.warmup().toSeconds(), config.duration().toSeconds());
+
+            Thread.sleep(config.warmup().toMillis());
+            stats.values().forEach(EndpointStats::reset);
+            for (Thread terminal : terminals) {
+                terminal.join();
+            }
+        }
+        return stats;
+    }
+
+    private static void report(LoadTestConfig config, Map<String, EndpointStats> stats) throws IOException {
+        Files.createDirectories(RESULTS_DIR);
+        double seconds = config.duration().toMillis() / 1000.0;
+
+        System.out.printf("%n%-16s %10s %10s %10s %10s %10s %10s %8s%n",
+                "Endpoint", "Requetes", "Debit/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "Erreurs");
+        for (EndpointStats endpoint : stats.values()) {
+            EndpointStats.Snapshot snapshot = endpoint.snapshot();
+            System.out.printf(Locale.ROOT, "%-16s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %7.2f%%%n",
+                    snapshot.name(), snapshot.count(), snapshot.count() / seconds,
+                    snapshot.percentileMillis(50), snapshot.percentileMillis(99), snapshot.percentileMillis(99.9),
+                    snapshot.histogram().getMaxValue() / 1000.0, snapshot.errorRate() * 100);
+
+            Path hgrm = RESULTS_DIR.resolve(snapshot.name() + ".hgrm");
+            try (PrintStream out = new PrintStream(Files.newOutputStream(hgrm), false, StandardCharsets.UTF_8)) {
+                // Valeurs enregistrées en microsecondes, exportées en millisecondes
+                snapshot.histogram().outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        System.out.println("\nDistributions HdrHistogram : " + RESULTS_DIR.toAbsolutePath());
+    }
+
+    private static void deleteDataDir() {
+        if (!Files.exists(DATA_DIR)) return;
+        try (Stream<Path> paths = Files.walk(DATA_DIR)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.esgi.pizzeria.loadtest;
+
+import java.time.Duration;
+
+/**
+ * Paramètres d'un tir de charge, lus depuis les propriétés système {@code loadtest.*}.
+ *
+ * @param terminals       Nombre de caisses simulées en parallèle.
+ * @param warmup          Durée de chauffe, exclue des mesures.
+ * @param duration        Durée mesurée.
+ * @param customers       Nombre de clients fidélité créés avant le tir.
+ * @param thinkTimeMillis Pause moyenne entre deux tickets d'un terminal (0 = aucune).
+ */
+record LoadTestConfig(int terminals, Duration warmup, Duration duration, int customers, long thinkTimeMillis) {
+
+    LoadTestConfig {
+        if (terminals <= 0 || customers <= 0) {
+            throw new IllegalArgumentException("Le nombre de terminaux et de clients doit être positif.");
+        }
+    }
+
+    static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                Integer.getInteger("loadtest.terminals", 20),
+                Duration.ofSeconds(Long.getLong("loadtest.warmup", 10L)),
+                Duration.ofSeconds(Long.getLong("loadtest.duration", 60L)),
+                Integer.getInteger("loadtest.customers", 1000),
+                Long.getLong("loadtest.think-ms", 0L));
+    }
+}
@@ -0,0 +1,191 @@
+package com.esgi.pizzeria.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BooleanSupplier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Caisse simulée : enchaîne des tickets comme un vendeur un samedi soir.
+ * <ol>
+ *   <li>Connexion ({@code POST /api/salespersons/login}) en début de service puis tous les {@value #TICKETS_PER_SHIFT} tickets.</li>
+ *   <li>Catalogue ({@code GET /api/products}) avec l'ETag déjà reçu, comme le frontend.</li>
+ *   <li>Recherche du client par téléphone pour une partie des tickets.</li>
+ *   <li>Utilisation de {@value #REDEEM_POINTS} points si le client en a assez, pour une partie des clients.</li>
+ *   <li>Encaissement ({@code POST /api/orders}) avec une clé d'idempotence.</li>
+ * </ol>
+ * Modèle en boucle fermée : un terminal attend chaque réponse avant l'appel suivant.
+ */
+final class Terminal implements Runnable {
+
+    static final String SALESPERSON_ID = "admin-01";
+    static final String SALESPERSON_PIN = "1234";
+
+    private static final int TICKETS_PER_SHIFT = 25;
+    private static final int REDEEM_POINTS = 100;
+    private static final double CUSTOMER_RATE = 0.6;
+    private static final double REDEEM_RATE = 0.3;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient client;
+    private final String baseUrl;
+    private final LoadTestConfig config;
+    private final Map<String, EndpointStats> stats;
+    private final BooleanSupplier running;
+
+    private String catalogEtag;
+    private List<String> productIds = List.of();
+
+    Terminal(HttpClient client, String baseUrl, LoadTestConfig config,
+             Map<String, EndpointStats> stats, BooleanSupplier running) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.config = config;
+        this.stats = stats;
+        this.running = running;
+    }
+
+    @Override
+    public void run() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int ticket = 0; running.getAsBoolean(); ticket++) {
+            try {
+                if (ticket % TICKETS_PER_SHIFT == 0) {
+                    login();
+                }
+                fetchCatalog();
+                JsonNode customer = random.nextDouble() < CUSTOMER_RATE ? lookupCustomer(random) : null;
+                double discount = 0;
+                if (customer != null && customer.path("loyaltyPoints").asInt() >= REDEEM_POINTS
+                        && random.nextDouble() < REDEEM_RATE) {
+                    discount = redeem(customer.path("id").asText());
+                }
+                createOrder(random, customer, discount);
+                if (config.thinkTimeMillis() > 0) {
+                    Thread.sleep(random.nextLong(config.thinkTimeMillis() * 2 + 1));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void login() throws InterruptedException {
+        ObjectNode body = mapper.createObjectNode()
+                .put("id", SALESPERSON_ID)
+                .put("pinCode", SALESPERSON_PIN);
+        call("login", post("/api/salespersons/login", body).build(), 200);
+    }
+
+    private void fetchCatalog() throws InterruptedException {
+        HttpRequest.Builder request = get("/api/products");
+        if (catalogEtag != null) {
+            request.header("If-None-Match", catalogEtag);
+        }
+        HttpResponse<String> response = call("catalog", request.build(), 200, 304);
+        if (response != null && response.statusCode() == 200) {
+            catalogEtag = response.headers().firstValue("ETag").orElse(null);
+            List<String> ids = new ArrayList<>();
+            for (JsonNode product : readTree(response.body())) {
+                ids.add(product.path("id").asText());
+            }
+            productIds = ids;
+        }
+    }
+
+    private JsonNode lookupCustomer(ThreadLocalRandom random) throws InterruptedException {
+        String phone = LoadTest.customerPhone(random.nextInt(config.customers()));
+        HttpResponse<String> response = call("customer-lookup", get("/api/customers/search?phone=" + phone).build(), 200);
+        return response == null ? null : readTree(response.body());
+    }
+
+    private double redeem(String customerId) throws InterruptedException {
+        ObjectNode body = mapper.createObjectNode().put("points", REDEEM_POINTS);
+        // 400 attendu si un autre terminal a consommé les points entre-temps : pas une erreur serveur
+        HttpResponse<String> response = call("redeem", post("/api/customers/" + customerId + "/redeem", body).build(), 200, 400);
+        if (response == null || response.statusCode() != 200) return 0;
+        return readTree(response.body()).path("discountAmount").asDouble();
+    }
+
+    private void createOrder(ThreadLocalRandom random, JsonNode customer, double discount) throws InterruptedException {
+        if (productIds.isEmpty()) return;
+        ObjectNode order = mapper.createObjectNode()
+                .put("salespersonId", SALESPERSON_ID)
+                .put("tableNumber", 1 + random.nextInt(30))
+                .put("paymentMethod", random.nextBoolean() ? "CARD" : "CASH")
+                .put("discountAmount", discount);
+        if (customer != null) {
+            order.put("customerId", customer.path("id").asText());
+        }
+        if (discount > 0) {
+            order.put("discountReason", "Fidélité");
+        }
+        ArrayNode items = order.putArray("items");
+        int lines = 1 + random.nextInt(4);
+        for (int i = 0; i < lines; i++) {
+            items.addObject()
+                    .put("id", productIds.get(random.nextInt(productIds.size())))
+                    .put("quantity", 1 + random.nextInt(3));
+        }
+        HttpRequest request = post("/api/orders", order)
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .build();
+        call("order", request, 200);
+    }
+
+    /**
+     * Envoie la requête et enregistre sa latence ; tout statut hors {@code expected} compte comme une erreur.
+     *
+     * @return La réponse, ou null si l'appel a échoué.
+     */
+    private HttpResponse<String> call(String endpoint, HttpRequest request, int... expected) throws InterruptedException {
+        EndpointStats endpointStats = stats.get(endpoint);
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            boolean success = false;
+            for (int status : expected) {
+                success |= response.statusCode() == status;
+            }
+            endpointStats.record(start, success);
+            return success ? response : null;
+        } catch (IOException e) {
+            endpointStats.record(start, false);
+            return null;
+        }
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(TIMEOUT).GET();
+    }
+
+    private HttpRequest.Builder post(String path, JsonNode body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+    }
+
+    private JsonNode readTree(String body) {
+        try {
+            return mapper.readTree(body);
+        } catch (IOException e) {
+            throw new IllegalStateException("Réponse JSON illisible : " + e.getMessage(), e);
+        }
+    }
+}
@@ -34,6 +34,9 @@ public class CorsConfig implements WebMvcConfigurer {
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 // Autorise tous les headers (nécessaire pour les tokens JWT ou Content-Type personnalisés)
                 .allowedHeaders("*")
+                // Pagination : le navigateur doit pouvoir lire le curseur de la page suivante
+                // (et le délai de nouvel essai pendant le chargement de l'historique)
+                .exposedHeaders("X-Next-Cursor", "Idempotent-Replayed", "Retry-After")
                 // SÉCURITÉ : Autorise l'envoi de cookies/headers d'authentification
                 // Ceci nécessite impérativement une origine explicite (pas de wildcard "*")
                 .allowCredentials(true);
@@ -0,0 +1,249 @@
+package com.esgi.pizzeria.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.esgi.pizzeria.repository.JsonCustomerRepository;
+import com.esgi.pizzeria.repository.JsonIngredientRepository;
+import com.esgi.pizzeria.repository.JsonOrderRepository;
+import com.esgi.pizzeria.repository.JsonProductRepository;
+import com.esgi.pizzeria.repository.JsonPromotionRepository;
+import com.esgi.pizzeria.repository.JsonSalespersonRepository;
+import com.esgi.pizzeria.repository.JsonSettingsRepository;
+import com.esgi.pizzeria.repository.JsonZReportRepository;
+import com.esgi.pizzeria.service.IdempotencyService;
+import com.esgi.pizzeria.service.SalesStatsService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Chargement des données au démarrage, en parallèle et dans l'ordre des dépendances.
+ * <p>
+ * Les repositories sont indépendants les uns des autres : chacun est chargé sur son propre thread
+ * (pool de {@code pizzeria.bootstrap.parallelism} threads, par défaut un par cœur). Une étape ne démarre
+ * qu'une fois ses dépendances terminées (ex : statistiques de ventes après l'historique des commandes).
+ * Les étapes d'arrière-plan ont leur propre pool : l'historique, long à charger, n'occupe jamais
+ * un thread dont le premier plan a besoin.
+ * </p>
+ * <ul>
+ *   <li>Étapes de premier plan (catalogue, vendeurs, clients, réglages, rapports Z, promotions) : le démarrage attend
+ *       leur fin, le serveur HTTP n'ouvre qu'avec ces données. Un échec interrompt le démarrage.</li>
+ *   <li>Étapes d'arrière-plan (historique des commandes et ce qui en dépend) : le serveur accepte déjà
+ *       la connexion des vendeurs et la consultation du catalogue ; les endpoints qui lisent l'historique
+ *       attendent la fin du chargement ({@link OrderHistoryGate}).</li>
+ * </ul>
+ * <p>
+ * La durée de chaque étape est journalisée et publiée ({@code pizzeria.bootstrap.step}, par étape).
+ * </p>
+ */
+@Component
+public class DataBootstrap implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataBootstrap.class);
+
+    /**
+     * Étape de chargement.
+     *
+     * @param background true = ne bloque pas le démarrage.
+     * @param dependsOn  Étapes (déclarées avant celle-ci) qui doivent être terminées avant son lancement.
+     */
+    private record Step(String name, Runnable action, boolean background, List<String> dependsOn) {
+    }
+
+    private final List<Step> steps = new ArrayList<>();
+    private final Map<String, Long> durations = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final int parallelism;
+
+    // Fin du chargement de l'historique et des étapes qui en dépendent
+    private volatile CompletableFuture<Void> history = new CompletableFuture<>();
+
+    public DataBootstrap(JsonProductRepository productRepository,
+                         JsonIngredientRepository ingredientRepository,
+                         JsonSalespersonRepository salespersonRepository,
+                         JsonSettingsRepository settingsRepository,
+                         JsonCustomerRepository customerRepository,
+                         JsonZReportRepository zReportRepository,
+                         JsonPromotionRepository promotionRepository,
+                         JsonOrderRepository orderRepository,
+                         SalesStatsService salesStatsService,
+                         IdempotencyService idempotencyService,
+                         MeterRegistry meterRegistry,
+                         @Value("${pizzeria.bootstrap.parallelism:0}") int parallelism) {
+        this.meterRegistry = meterRegistry;
+        this.parallelism = parallelism;
+
+        steps.add(new Step("orders", orderRepository::init, true, List.of()));
+        steps.add(new Step("products", productRepository::init, false, List.of()));
+        steps.add(new Step("ingredients", ingredientRepository::init, false, List.of()));
+        steps.add(new Step("salespersons", salespersonRepository::init, false, List.of()));
+        steps.add(new Step("settings", settingsRepository::init, false, List.of()));
+        steps.add(new Step("customers", customerRepository::init, false, List.of()));
+        steps.add(new Step("zreports", zReportRepository::init, false, List.of()));
+        steps.add(new Step("promotions", promotionRepository::init, false, List.of()));
+        // Les statistiques lisent la catégorie des produits vendus
+        steps.add(new Step("sales-stats", salesStatsService::init, true, List.of("orders", "products")));
+        steps.add(new Step("idempotency", idempotencyService::rebuild, true, List.of("orders")));
+    }
+
+    /**
+     * Lance toutes les étapes, puis attend celles de premier plan (avant l'ouverture du serveur HTTP).
+     *
+     * @throws IllegalStateException si une étape de premier plan échoue.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        ExecutorService foregroundExecutor = executor(false, "bootstrap-");
+        ExecutorService backgroundExecutor = executor(true, "bootstrap-history-");
+
+        long start = System.nanoTime();
+        Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+        for (Step step : steps) {
+            CompletableFuture<?>[] dependencies = step.dependsOn().stream()
+                    .map(name -> {
+                        CompletableFuture<Void> dependency = futures.get(name);
+                        if (dependency == null) {
+                            throw new IllegalStateException("Étape " + step.name() + " : dépendance inconnue " + name);
+                        }
+                        return dependency;
+                    })
+                    .toArray(CompletableFuture[]::new);
+            ExecutorService executor = step.background() ? backgroundExecutor : foregroundExecutor;
+            futures.put(step.name(), CompletableFuture.allOf(dependencies).thenRunAsync(() -> run(step), executor));
+        }
+
+        CompletableFuture<Void> background = CompletableFuture.allOf(select(futures, true));
+        background.whenComplete((ignored, failure) -> {
+            backgroundExecutor.shutdown();
+            if (failure != null) {
+                logger.error("Chargement de l'historique des commandes en échec : les endpoints commandes, "
+                        + "statistiques et rapports restent indisponibles.", unwrap(failure));
+            } else {
+                logger.info("Historique chargé en arrière-plan en {} ms ({}).", elapsedMs(start), breakdown(true));
+            }
+        });
+        history = background;
+
+        try {
+            CompletableFuture.allOf(select(futures, false)).join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            throw cause instanceof RuntimeException runtime ? runtime
+                    : new IllegalStateException("Chargement des données impossible", cause);
+        } finally {
+            foregroundExecutor.shutdown();
+        }
+        logger.info("Données chargées en {} ms ({}) ; historique des commandes en cours de chargement.",
+                elapsedMs(start), breakdown(false));
+    }
+
+    /**
+     * @return true si l'historique des commandes (et ce qui en dépend) est chargé.
+     */
+    public boolean isOrderHistoryReady() {
+        return history.isDone() && !history.isCompletedExceptionally();
+    }
+
+    /**
+     * @return true si le chargement de l'historique a échoué (il ne sera pas retenté sans redémarrage).
+     */
+    public boolean isOrderHistoryFailed() {
+        return history.isCompletedExceptionally();
+    }
+
+    /**
+     * Attend la fin du chargement de l'historique des commandes.
+     *
+     * @param timeout Attente maximale.
+     * @throws IllegalStateException si l'historique n'est pas chargé à l'issue du délai, ou si son chargement a échoué.
+     */
+    public void awaitOrderHistory(Duration timeout) {
+        try {
+            history.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Historique des commandes en cours de chargement, réessayer dans un instant.");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Historique des commandes indisponible : chargement en échec.", unwrap(e));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Attente de l'historique des commandes interrompue.");
+        }
+    }
+
+    /**
+     * Pool (threads démons) d'un plan : un thread par étape, dans la limite du parallélisme configuré.
+     */
+    private ExecutorService executor(boolean background, String threadPrefix) {
+        long count = steps.stream().filter(step -> step.background() == background).count();
+        int threads = (int) Math.max(1, Math.min(count,
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors()));
+        return Executors.newFixedThreadPool(threads, Thread.ofPlatform().name(threadPrefix, 1).daemon(true).factory());
+    }
+
+    private void run(Step step) {
+        long start = System.nanoTime();
+        try {
+            step.action().run();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            durations.put(step.name(), elapsed);
+            Timer.builder("pizzeria.bootstrap.step")
+                    .description("Durée des étapes de chargement au démarrage")
+                    .tag("step", step.name())
+                    .register(meterRegistry)
+                    .record(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private CompletableFuture<?>[] select(Map<String, CompletableFuture<Void>> futures, boolean background) {
+        return steps.stream()
+                .filter(step -> step.background() == background)
+                .map(step -> futures.get(step.name()))
+                .toArray(CompletableFuture[]::new);
+    }
+
+    /**
+     * Détail "étape durée" des étapes d'un plan, dans l'ordre de déclaration.
+     */
+    private String breakdown(boolean background) {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (Step step : steps) {
+            Long elapsed = durations.get(step.name());
+            if (step.background() == background && elapsed != null) {
+                joiner.add(step.name() + " " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms");
+            }
+        }
+        return joiner.toString();
+    }
+
+    private static long elapsedMs(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        while ((failure instanceof CompletionException || failure instanceof ExecutionException)
+                && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        return failure;
+    }
+}
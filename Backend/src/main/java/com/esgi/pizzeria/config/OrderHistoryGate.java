@@ -0,0 +1,76 @@
+package com.esgi.pizzeria.config;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Barrière des endpoints qui lisent l'historique des commandes (commandes, statistiques, rapports Z)
+ * pendant son chargement en arrière-plan ({@link DataBootstrap}).
+ * <p>
+ * Une requête arrivée trop tôt attend la fin du chargement, au plus {@code pizzeria.bootstrap.history-wait-ms} ms.
+ * Au-delà, réponse 503 avec {@code Retry-After} : le client réessaie au lieu de recevoir un historique partiel.
+ * </p>
+ */
+@Configuration
+public class OrderHistoryGate implements WebMvcConfigurer, HandlerInterceptor {
+
+    // Délai de nouvel essai proposé au client (secondes)
+    private static final String RETRY_AFTER_SECONDS = "2";
+
+    private final DataBootstrap bootstrap;
+    private final ObjectMapper objectMapper;
+    private final Duration maxWait;
+
+    public OrderHistoryGate(DataBootstrap bootstrap,
+                            ObjectMapper objectMapper,
+                            @Value("${pizzeria.bootstrap.history-wait-ms:10000}") long maxWaitMs) {
+        this.bootstrap = bootstrap;
+        this.objectMapper = objectMapper;
+        this.maxWait = Duration.ofMillis(maxWaitMs);
+    }
+
+    @Override
+    public void addInterceptors(@NonNull InterceptorRegistry registry) {
+        registry.addInterceptor(this)
+                .addPathPatterns("/api/orders/**", "/api/stats/**", "/api/reports/**");
+    }
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) throws IOException {
+        // Chemin rapide une fois l'historique chargé : une lecture volatile
+        if (bootstrap.isOrderHistoryReady() || CorsUtils.isPreFlightRequest(request)) {
+            return true;
+        }
+        try {
+            bootstrap.awaitOrderHistory(maxWait);
+            return true;
+        } catch (IllegalStateException e) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            if (!bootstrap.isOrderHistoryFailed()) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS);
+            }
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding("UTF-8");
+            objectMapper.writeValue(response.getWriter(), Map.of("message", e.getMessage()));
+            return false;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.esgi.pizzeria.config;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Chronométrage de toutes les opérations publiques des repositories
+ * ({@code pizzeria.repository.operation}, par repository, opération et résultat).
+ * <p>
+ * PERFORMANCE : les timers sont créés une seule fois par méthode et mis en cache ; le surcoût
+ * par appel se limite à deux lectures d'horloge. Désactivable avec
+ * {@code pizzeria.metrics.repository-timers.enabled=false}.
+ * </p>
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "pizzeria.metrics.repository-timers.enabled", havingValue = "true", matchIfMissing = true)
+public class RepositoryMetricsAspect {
+
+    private final MeterRegistry registry;
+    private final Map<Method, Timer> successTimers = new ConcurrentHashMap<>();
+    private final Map<Method, Timer> errorTimers = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * com.esgi.pizzeria.repository..*(..)) "
+            + "&& @within(org.springframework.stereotype.Repository)")
+    public Object time(ProceedingJoinPoint pjp) throws Throwable {
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        long start = System.nanoTime();
+        try {
+            Object result = pjp.proceed();
+            timer(successTimers, method, "success").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable t) {
+            timer(errorTimers, method, "error").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw t;
+        }
+    }
+
+    private Timer timer(Map<Method, Timer> cache, Method method, String outcome) {
+        return cache.computeIfAbsent(method, m -> Timer.builder("pizzeria.repository.operation")
+                .description("Durée des opérations des repositories")
+                .tag("repository", m.getDeclaringClass().getSimpleName())
+                .tag("operation", m.getName())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+}
@@ -42,13 +42,25 @@ public class CustomerController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
-    @GetMapping("/search")
+    @GetMapping(value = "/search", params = "phone")
     public ResponseEntity<Customer> searchByPhone(@RequestParam String phone) {
         return service.findByPhone(phone)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Recherche au fil de la frappe (téléphone ou nom), paginée.
+     * Exemple : GET /api/customers/search?prefix=0612&limit=20&offset=0
+     */
+    @GetMapping(value = "/search", params = "prefix")
+    public ResponseEntity<List<Customer>> searchByPrefix(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "0") int offset) {
+        return ResponseEntity.ok(service.searchByPrefix(prefix, offset, limit));
+    }
+
     @PostMapping
     public ResponseEntity<Customer> save(@RequestBody Customer customer) {
         if (customer == null) return ResponseEntity.badRequest().build();
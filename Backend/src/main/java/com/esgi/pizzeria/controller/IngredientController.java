@@ -13,14 +13,14 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.esgi.pizzeria.domain.Ingredient;
-import com.esgi.pizzeria.repository.JsonIngredientRepository;
+import com.esgi.pizzeria.service.IngredientService;
 
 /**
  * Contrôleur REST gérant les opérations CRUD sur les ingrédients.
  * <p>
  * Ce contrôleur expose les points de terminaison pour lister, ajouter, modifier
  * et supprimer les ingrédients disponibles pour les pizzas.
- * Il interagit directement avec le repository JSON (Architecture simplifiée).
+ * Les mutations passent par {@link IngredientService}, sous le verrou des réservations de stock.
  * </p>
  */
 @RestController
@@ -28,17 +28,17 @@ import com.esgi.pizzeria.repository.JsonIngredientRepository;
 // NOTE: @CrossOrigin retiré ici car géré globalement dans CorsConfig.java (Principe DRY)
 public class IngredientController {
 
-    private final JsonIngredientRepository repository;
+    private final IngredientService service;
 
     /**
      * Injection de dépendance par constructeur.
      * <p>Choix de conception : Favorise l'immutabilité et facilite les tests unitaires
-     * en permettant de passer un mock du repository.</p>
+     * en permettant de passer un mock du service.</p>
      *
-     * @param repository Le dépôt de données (JSON) pour les ingrédients.
+     * @param service Le service d'administration des ingrédients.
      */
-    public IngredientController(JsonIngredientRepository repository) {
-        this.repository = repository;
+    public IngredientController(IngredientService service) {
+        this.service = service;
     }
 
     /**
@@ -48,7 +48,7 @@ public class IngredientController {
      */
     @GetMapping
     public ResponseEntity<List<Ingredient>> getAll() {
-        List<Ingredient> ingredients = repository.findAll();
+        List<Ingredient> ingredients = service.findAll();
         return ResponseEntity.ok(ingredients);
     }
 
@@ -71,7 +71,7 @@ public class IngredientController {
         }
 
         // Gère à la fois la Création et la Modification (Upsert)
-        Ingredient savedIngredient = repository.save(ingredient);
+        Ingredient savedIngredient = service.save(ingredient);
         
         // Retourne 200 OK. Pour une création stricte, 201 Created serait préférable.
         return ResponseEntity.status(HttpStatus.OK).body(savedIngredient);
@@ -86,7 +86,7 @@ public class IngredientController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable String id) {
         // SÉCURITÉ : Vérification basique de l'entrée (non null/vide géré par Spring MVC)
-        repository.deleteById(id);
+        service.delete(id);
         
         // Standard REST : Retourne 204 No Content après une suppression réussie
         return ResponseEntity.noContent().build();
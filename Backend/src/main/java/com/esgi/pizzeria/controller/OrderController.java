@@ -1,39 +1,219 @@
 package com.esgi.pizzeria.controller;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.esgi.pizzeria.domain.Order;
+import com.esgi.pizzeria.repository.OrderPage;
+import com.esgi.pizzeria.service.IdempotencyKeyMismatchException;
+import com.esgi.pizzeria.service.IdempotencyService;
+import com.esgi.pizzeria.service.KitchenFeedService;
+import com.esgi.pizzeria.service.OrderExportService;
+import com.esgi.pizzeria.service.OrderNotDurableException;
 import com.esgi.pizzeria.service.OrderService;
 
 @RestController
 @RequestMapping("/api/orders")
-@CrossOrigin(origins = "http://localhost:5173")
+@CrossOrigin(origins = "http://localhost:5173",
+             exposedHeaders = { OrderController.NEXT_CURSOR_HEADER, OrderController.REPLAYED_HEADER })
 public class OrderController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
+    private final KitchenFeedService kitchenFeedService;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService,
+                           OrderExportService orderExportService,
+                           KitchenFeedService kitchenFeedService) {
         this.orderService = orderService;
+        this.orderExportService = orderExportService;
+        this.kitchenFeedService = kitchenFeedService;
     }
 
+    /**
+     * Historique des commandes.
+     * <p>
+     * Page chronologique de la plage [from, to[ ; le curseur de la page suivante est
+     * renvoyé dans l'en-tête {@value #NEXT_CURSOR_HEADER}. L'historique n'est jamais renvoyé d'un bloc :
+     * un appel sans aucun paramètre est refusé (400) plutôt que tronqué en silence. L'historique complet
+     * s'obtient page par page depuis {@code from}, ou en flux par {@code /export}.
+     * </p>
+     *
+     * @param from   Début (ex : 2024-05-01 ou 2024-05-01T11:30), inclus.
+     * @param to     Fin (ex : 2024-05-01 = jusqu'à la fin de cette journée), exclue si date-heure.
+     * @param limit  Taille de la page (100 par défaut, 1000 max).
+     * @param cursor Valeur de {@value #NEXT_CURSOR_HEADER} reçue avec la page précédente.
+     * @return La page, 400 avec un message si aucun paramètre n'est fourni ou si un paramètre est invalide.
+     */
     @GetMapping
-    public List<Order> getAllOrders() {
-        return orderService.getAllOrders();
+    public ResponseEntity<?> getAllOrders(@RequestParam(required = false) String from,
+                                          @RequestParam(required = false) String to,
+                                          @RequestParam(required = false) Integer limit,
+                                          @RequestParam(required = false) String cursor) {
+        if (from == null && to == null && limit == null && cursor == null) {
+            return ResponseEntity.badRequest().body(Map.of("message",
+                    "Historique paginé : préciser 'from' (ex : /api/orders?from=2024-05-01), puis suivre 'cursor' "
+                            + "(en-tête " + NEXT_CURSOR_HEADER + "). Historique complet en flux : /api/orders/export."));
+        }
+        try {
+            OrderPage page = orderService.findOrders(parseBound(from, false), parseBound(to, true), cursor, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    /**
+     * Export comptable en flux NDJSON (une commande par ligne), par ordre chronologique.
+     * Les filtres sont optionnels et cumulables.
+     *
+     * @param from          Début inclus (même format que l'historique).
+     * @param to            Fin (date seule = journée incluse).
+     * @param salespersonId Vendeur.
+     * @param paymentMethod Moyen de paiement (CASH, CARD...).
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(required = false) String from,
+                                          @RequestParam(required = false) String to,
+                                          @RequestParam(required = false) String salespersonId,
+                                          @RequestParam(required = false) String paymentMethod) {
+        LocalDateTime start;
+        LocalDateTime end;
+        try {
+            start = parseBound(from, false);
+            end = parseBound(to, true);
+            if (start != null && end != null && start.isAfter(end)) {
+                throw new IllegalArgumentException("La date de début doit précéder la date de fin.");
+            }
+        } catch (IllegalArgumentException e) {
+            // Le type de retour est imposé par le flux : l'erreur {message} est écrite directement
+            String message = e.getMessage();
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> orderExportService.writeError(message, out));
+        }
+
+        StreamingResponseBody body = out ->
+                orderExportService.exportNdjson(start, end, salespersonId, paymentMethod, out);
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"commandes.ndjson\"")
+                .body(body);
+    }
+
+    /**
+     * Flux SSE des nouvelles commandes pour les écrans cuisine et bar.
+     *
+     * @param categories  Catégories suivies, séparées par des virgules (ex : PIZZA,PASTA). Absent = toutes.
+     * @param lastEventId Envoyé automatiquement par le navigateur à la reconnexion : rejeu des événements manqués.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) String categories,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Set<String> filter = categories == null ? Set.of()
+                : Arrays.stream(categories.split(",")).collect(Collectors.toSet());
+        Long resumeFrom = null;
+        if (lastEventId != null) {
+            try {
+                resumeFrom = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                // ID illisible : abonnement sans rejeu
+            }
+        }
+        return kitchenFeedService.subscribe(filter, resumeFrom);
+    }
+
+    /**
+     * Convertit un paramètre de date. Une date seule désigne le début de la journée,
+     * ou le début du lendemain pour une borne de fin (journée incluse).
+     */
+    private static LocalDateTime parseBound(String value, boolean upper) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            if (value.length() == 10) {
+                LocalDate day = LocalDate.parse(value);
+                return upper ? day.plusDays(1).atStartOfDay() : day.atStartOfDay();
+            }
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Date invalide : " + value);
+        }
+    }
+
+    /**
+     * Encaissement groupé des commandes mises en attente par une caisse hors ligne.
+     * Chaque commande peut porter sa clé d'idempotence dans le champ {@code idempotencyKey} du corps
+     * (l'en-tête {@value #IDEMPOTENCY_KEY_HEADER} n'est pas lu ici). Ce champ n'est accepté qu'en entrée :
+     * il n'apparaît pas dans les commandes renvoyées.
+     *
+     * @return Un résultat par commande (CREATED, REPLAYED ou REJECTED avec son motif), dans l'ordre du lot.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> createOrders(@RequestBody List<Order> orders) {
+        try {
+            return ResponseEntity.ok(orderService.createOrders(orders));
+        } catch (OrderNotDurableException e) {
+            return notDurable(e);
+        } catch (IllegalArgumentException e) {
+            // Lot vide ou trop volumineux
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
     }
 
+    /**
+     * Encaissement d'une commande.
+     *
+     * @param idempotencyKey Clé unique par encaissement, lue uniquement dans l'en-tête (un champ
+     *                       {@code idempotencyKey} du corps est ignoré) : un renvoi avec la même clé
+     *                       retourne la commande d'origine, signalée par l'en-tête {@value #REPLAYED_HEADER} ;
+     *                       la même clé avec une requête différente est refusée (422).
+     */
     @PostMapping
-    public ResponseEntity<?> createOrder(@RequestBody Order order) {
+    public ResponseEntity<?> createOrder(@RequestBody Order order,
+                                         @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         try {
-            return ResponseEntity.ok(orderService.createOrder(order));
+            IdempotencyService.Result result = orderService.createOrder(order, idempotencyKey);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (result.replayed()) {
+                response.header(REPLAYED_HEADER, "true");
+            }
+            return response.body(result.order());
+        } catch (OrderNotDurableException e) {
+            return notDurable(e);
+        } catch (IdempotencyKeyMismatchException e) {
+            // Même clé, requête différente : ni rejeu ni nouveau traitement
+            return ResponseEntity.unprocessableEntity().body(Map.of("message", e.getMessage()));
         } catch (IllegalStateException e) {
             // Stock insuffisant — message explicite affiché dans le frontend
             return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
@@ -42,4 +222,15 @@ public class OrderController {
             return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         }
     }
+
+    /**
+     * Commande(s) enregistrée(s) dont l'écriture disque n'est pas encore confirmée : 503 avec
+     * {@code Retry-After}. Le renvoi avec la même clé d'idempotence rend les commandes d'origine.
+     */
+    private static ResponseEntity<Map<String, Object>> notDurable(OrderNotDurableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("message", e.getMessage(),
+                        "orderIds", e.getOrders().stream().map(Order::getId).toList()));
+    }
 }
@@ -1,18 +1,25 @@
 package com.esgi.pizzeria.controller;
 
-import java.util.List;
+import java.util.Map;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.esgi.pizzeria.domain.Product;
+import com.esgi.pizzeria.repository.CatalogSnapshot;
 import com.esgi.pizzeria.repository.JsonProductRepository;
+import com.esgi.pizzeria.service.ProductService;
 
 /**
  * Contrôleur REST pour la gestion du catalogue des produits (Pizzas, Boissons, etc.).
@@ -27,6 +34,7 @@ import com.esgi.pizzeria.repository.JsonProductRepository;
 public class ProductController {
 
     private final JsonProductRepository repository;
+    private final ProductService productService;
 
     /**
      * Constructeur avec injection de dépendance.
@@ -35,20 +43,61 @@ public class ProductController {
      * et assure que le contrôleur ne peut exister sans sa dépendance obligatoire.
      * </p>
      *
-     * @param repository Le mécanisme de persistance (JSON) des produits.
+     * @param repository     Le mécanisme de persistance (JSON) des produits.
+     * @param productService Les règles de validation du catalogue.
      */
-    public ProductController(JsonProductRepository repository) {
+    public ProductController(JsonProductRepository repository, ProductService productService) {
         this.repository = repository;
+        this.productService = productService;
     }
 
     /**
      * Récupère l'intégralité du catalogue de produits.
+     * <p>
+     * PERFORMANCE : renvoie l'instantané pré-rendu du repository (JSON ou gzip selon le client).
+     * Un terminal qui renvoie l'ETag reçu ({@code If-None-Match}) obtient un 304 sans corps
+     * tant que le catalogue n'a pas changé.
+     * </p>
      *
-     * @return Une liste de produits encapsulée dans une réponse HTTP 200 OK.
+     * @return Le catalogue JSON (200 OK), ou 304 Not Modified si l'ETag correspond.
      */
     @GetMapping
-    public ResponseEntity<List<Product>> getAll() {
-        return ResponseEntity.ok(repository.findAll());
+    public ResponseEntity<byte[]> getAll(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CatalogSnapshot snapshot = repository.getSnapshot();
+
+        if (matchesEtag(ifNoneMatch, snapshot.getEtag())) {
+            return withValidators(ResponseEntity.status(HttpStatus.NOT_MODIFIED), snapshot).build();
+        }
+        ResponseEntity.BodyBuilder response = withValidators(ResponseEntity.ok(), snapshot)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(snapshot.getGzip());
+        }
+        return response.body(snapshot.getJson());
+    }
+
+    /**
+     * En-têtes de cache communs aux réponses 200 et 304.
+     * Revalidation systématique : le catalogue (stocks compris) peut changer à tout moment.
+     */
+    private static ResponseEntity.BodyBuilder withValidators(ResponseEntity.BodyBuilder builder, CatalogSnapshot snapshot) {
+        return builder.eTag(snapshot.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    /**
+     * If-None-Match peut contenir plusieurs ETags séparés par des virgules, ou "*".
+     */
+    private static boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) value = value.substring(2); // comparaison faible admise pour GET
+            if (value.equals("*") || value.equals(etag)) return true;
+        }
+        return false;
     }
 
     /**
@@ -59,17 +108,21 @@ public class ProductController {
      * </p>
      *
      * @param product Le produit désérialisé depuis le corps de la requête JSON.
-     * @return Le produit sauvegardé avec un statut HTTP 200 OK.
+     * @return Le produit sauvegardé avec un statut HTTP 200 OK, 400 si la validation échoue.
      */
     @PostMapping
-    public ResponseEntity<Product> save(@RequestBody Product product) {
+    public ResponseEntity<?> save(@RequestBody Product product) {
         // Validation défensive basique
         if (product == null) {
             return ResponseEntity.badRequest().build();
         }
 
-        Product savedProduct = repository.save(product);
-        return ResponseEntity.ok(savedProduct);
+        try {
+            // Passage par le service : nom, prix et recette (ingrédients existants) sont validés
+            return ResponseEntity.ok(productService.save(product));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
     }
 
     /**
@@ -82,7 +135,7 @@ public class ProductController {
     public ResponseEntity<Void> delete(@PathVariable String id) {
         // ROBUSTESSE : Dans un cas réel, vérifier si l'ID existe avant de tenter la suppression
         // peut éviter des erreurs silencieuses, bien que deleteById soit souvent idempotent.
-        repository.deleteById(id);
+        productService.delete(id);
         
         // 204 No Content est le standard REST pour une suppression réussie sans retour de données.
         return ResponseEntity.noContent().build();
@@ -0,0 +1,62 @@
+package com.esgi.pizzeria.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.esgi.pizzeria.domain.PromotionRule;
+import com.esgi.pizzeria.service.PromotionEngine;
+
+/**
+ * Contrôleur REST pour l'administration des règles de promotion.
+ * <p>
+ * Une règle créée, modifiée ou supprimée s'applique dès la commande suivante, sans redémarrage.
+ * </p>
+ */
+@RestController
+@RequestMapping("/api/promotions")
+public class PromotionController {
+
+    private final PromotionEngine engine;
+
+    public PromotionController(PromotionEngine engine) {
+        this.engine = engine;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<PromotionRule>> getAll() {
+        return ResponseEntity.ok(engine.findAll());
+    }
+
+    /**
+     * Crée ou met à jour une règle (Upsert).
+     *
+     * @return La règle sauvegardée, 400 avec un message si elle est invalide.
+     */
+    @PostMapping
+    public ResponseEntity<?> save(@RequestBody PromotionRule rule) {
+        if (rule == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            return ResponseEntity.ok(engine.save(rule));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable String id) {
+        engine.delete(id);
+        return ResponseEntity.noContent().build();
+    }
+}
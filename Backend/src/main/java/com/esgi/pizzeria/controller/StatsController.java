@@ -0,0 +1,79 @@
+package com.esgi.pizzeria.controller;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.esgi.pizzeria.domain.SalesTotals;
+import com.esgi.pizzeria.service.SalesStatsService;
+
+/**
+ * Contrôleur REST des statistiques de ventes (agrégats maintenus en continu).
+ */
+@RestController
+@RequestMapping("/api/stats")
+public class StatsController {
+
+    private final SalesStatsService service;
+
+    public StatsController(SalesStatsService service) {
+        this.service = service;
+    }
+
+    /**
+     * Totaux depuis l'ouverture et pour la journée en cours.
+     */
+    @GetMapping("/summary")
+    public Map<String, SalesTotals> getSummary() {
+        return Map.of(
+                "overall", service.getOverall(),
+                "today", service.getDay(LocalDate.now())
+        );
+    }
+
+    @GetMapping("/daily")
+    public ResponseEntity<?> getDaily(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            return ResponseEntity.ok(service.getDaily(from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    /**
+     * Ventes heure par heure d'une journée (aujourd'hui par défaut).
+     */
+    @GetMapping("/hourly")
+    public Map<LocalDateTime, SalesTotals> getHourly(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return service.getHourly(date != null ? date : LocalDate.now());
+    }
+
+    @GetMapping("/products")
+    public Map<String, SalesTotals> getByProduct() {
+        return service.getByProduct();
+    }
+
+    @GetMapping("/categories")
+    public Map<String, SalesTotals> getByCategory() {
+        return service.getByCategory();
+    }
+
+    @GetMapping("/salespersons")
+    public Map<String, SalesTotals> getBySalesperson() {
+        return service.getBySalesperson();
+    }
+
+    @GetMapping("/payment-methods")
+    public Map<String, SalesTotals> getByPaymentMethod() {
+        return service.getByPaymentMethod();
+    }
+}
@@ -0,0 +1,77 @@
+package com.esgi.pizzeria.controller;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.esgi.pizzeria.domain.ZReport;
+import com.esgi.pizzeria.service.ZReportService;
+
+/**
+ * Contrôleur REST de la clôture de caisse (tickets X et Z).
+ */
+@RestController
+@RequestMapping("/api/reports")
+public class ZReportController {
+
+    private final ZReportService service;
+
+    public ZReportController(ZReportService service) {
+        this.service = service;
+    }
+
+    /**
+     * Ticket X : situation de la journée (aujourd'hui par défaut), sans clôture.
+     */
+    @GetMapping("/x")
+    public ZReport preview(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return service.preview(date != null ? date : LocalDate.now());
+    }
+
+    @GetMapping("/z")
+    public ResponseEntity<List<ZReport>> getAll() {
+        return ResponseEntity.ok(service.findAll());
+    }
+
+    /**
+     * Réimpression d'un ticket Z enregistré.
+     */
+    @GetMapping("/z/{date}")
+    public ResponseEntity<ZReport> getByDate(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return service.findByDate(date)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Clôture d'une journée.
+     * Body : { "salespersonId": "...", "pinCode": "...", "date": "2024-05-01" } (date optionnelle = aujourd'hui).
+     */
+    @PostMapping("/z")
+    public ResponseEntity<?> close(@RequestBody Map<String, String> body) {
+        try {
+            String date = body.get("date");
+            LocalDate day = date != null ? LocalDate.parse(date) : LocalDate.now();
+            return ResponseEntity.ok(service.close(day, body.get("salespersonId"), body.get("pinCode")));
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            // Journée déjà clôturée : le ticket existant reste consultable via GET /z/{date}
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+}
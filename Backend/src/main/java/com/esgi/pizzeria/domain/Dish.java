@@ -2,7 +2,9 @@ package com.esgi.pizzeria.domain;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Représente un plat préparé (ex: Pizza).
@@ -17,6 +19,12 @@ public class Dish extends Product {
      * Initialisation par défaut pour éviter les NullPointerException.
      */
     private List<String> ingredients = new ArrayList<>();
+
+    /**
+     * Recette : ID d'ingrédient → quantité consommée par portion, dans l'unité de l'ingrédient
+     * (ex : "ing-base-03" → 1 pâton). Une recette vide ne consomme aucun stock d'ingrédient.
+     */
+    private Map<String, Double> recipe = new LinkedHashMap<>();
     
     private boolean isVegetarian;
 
@@ -34,6 +42,9 @@ public class Dish extends Product {
     public List<String> getIngredients() { return ingredients; }
     public void setIngredients(List<String> ingredients) { this.ingredients = ingredients; }
 
+    public Map<String, Double> getRecipe() { return recipe; }
+    public void setRecipe(Map<String, Double> recipe) { this.recipe = recipe; }
+
     public boolean isVegetarian() { return isVegetarian; }
     public void setVegetarian(boolean vegetarian) { isVegetarian = vegetarian; }
 }
\ No newline at end of file
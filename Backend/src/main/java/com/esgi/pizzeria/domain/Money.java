@@ -0,0 +1,158 @@
+package com.esgi.pizzeria.domain;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Montant en euros, stocké en centimes dans un {@code long}.
+ * <p>
+ * PERFORMANCE : les calculs du moteur de prix (sous-total, remises, TVA) se font en arithmétique entière,
+ * sans les {@link BigDecimal} intermédiaires de chaque ligne. La conversion n'a lieu qu'aux frontières :
+ * prix du catalogue en entrée ({@link #of(BigDecimal)}), champs JSON de la commande en sortie
+ * ({@link #toBigDecimal()}).
+ * </p>
+ * <p>
+ * Pourcentages, prorata et TVA sont arrondis au centime le plus proche, demi-centime vers le haut
+ * (équivalent de {@link RoundingMode#HALF_UP}), sans jamais passer par un {@code double}.
+ * Un dépassement de capacité lève une {@link ArithmeticException} plutôt que de fausser un montant.
+ * </p>
+ *
+ * @param cents Montant en centimes (ex : 1250 pour 12,50 €).
+ */
+public record Money(long cents) implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    // Taux de TVA exprimés en points de base : 10 000 = 100 %
+    private static final int BASIS_POINTS = 10_000;
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Conversion d'un montant JSON ou catalogue.
+     *
+     * @param amount Montant en euros (null = 0), arrondi au centime (HALF_UP) s'il est plus précis.
+     * @throws ArithmeticException si le montant dépasse la capacité d'un {@code long} de centimes.
+     */
+    public static Money of(BigDecimal amount) {
+        if (amount == null || amount.signum() == 0) return ZERO;
+        return new Money(amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Taux de TVA du catalogue (ex : 0.055) en points de base (550).
+     *
+     * @throws IllegalArgumentException si le taux est plus précis que le centième de pour cent ou négatif.
+     */
+    public static int basisPoints(BigDecimal rate) {
+        try {
+            int basisPoints = rate.movePointRight(4).intValueExact();
+            if (basisPoints < 0) throw new ArithmeticException();
+            return basisPoints;
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Taux de TVA invalide : " + rate.toPlainString());
+        }
+    }
+
+    /**
+     * @return Montant en euros à deux décimales (champs JSON).
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money times(int quantity) {
+        return ofCents(Math.multiplyExact(cents, quantity));
+    }
+
+    /**
+     * @param percent Pourcentage entier (ex : 5 pour 5 %).
+     * @return {@code percent} % du montant, arrondi au centime (HALF_UP).
+     */
+    public Money percent(int percent) {
+        return ratio(percent, 100);
+    }
+
+    /**
+     * Prorata exact : montant × numerator / denominator, arrondi au centime (HALF_UP).
+     *
+     * @throws IllegalArgumentException si le dénominateur n'est pas strictement positif.
+     */
+    public Money ratio(long numerator, long denominator) {
+        if (denominator <= 0) {
+            throw new IllegalArgumentException("Dénominateur de prorata invalide : " + denominator);
+        }
+        long high = Math.multiplyHigh(cents, numerator);
+        long product = cents * numerator;
+        if (high == (product >> 63)) {
+            return ofCents(divideHalfUp(product, denominator));
+        }
+        // Produit intermédiaire au-delà d'un long : calcul exact, cas exceptionnel
+        return ofCents(BigDecimal.valueOf(cents).multiply(BigDecimal.valueOf(numerator))
+                .divide(BigDecimal.valueOf(denominator), 0, RoundingMode.HALF_UP)
+                .longValueExact());
+    }
+
+    /**
+     * Montant hors taxes d'un prix TTC : TTC / (1 + taux), arrondi au centime (HALF_UP).
+     *
+     * @param vatBasisPoints Taux de TVA en points de base (voir {@link #basisPoints(BigDecimal)}).
+     */
+    public Money excludingVat(int vatBasisPoints) {
+        return ratio(BASIS_POINTS, BASIS_POINTS + (long) vatBasisPoints);
+    }
+
+    /**
+     * TVA contenue dans un prix TTC : TTC - HT, de sorte que HT + TVA = TTC au centime près.
+     */
+    public Money vatIncluded(int vatBasisPoints) {
+        return minus(excludingVat(vatBasisPoints));
+    }
+
+    public Money min(Money other) {
+        return cents <= other.cents ? this : other;
+    }
+
+    public boolean isZero() {
+        return cents == 0;
+    }
+
+    public int signum() {
+        return Long.signum(cents);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    /**
+     * @return Montant à deux décimales (ex : "12.50"), format des libellés et des journaux.
+     */
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    /**
+     * Division entière arrondie au plus proche, moitié en s'éloignant de zéro (HALF_UP).
+     */
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = Math.abs(dividend % divisor);
+        if (remainder >= divisor - remainder) {
+            quotient += dividend < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+}
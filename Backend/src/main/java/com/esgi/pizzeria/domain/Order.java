@@ -5,6 +5,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 /**
  * Représente une commande client complète.
  */
@@ -32,6 +35,17 @@ public class Order {
     // Raison de la remise (ex: "Fidélité: 200 pts", "Remise 10%")
     private String discountReason;
 
+    // Clé d'idempotence : en-tête Idempotency-Key pour POST /api/orders (le champ du corps est ignoré),
+    // champ du corps pour POST /api/orders/batch. Accepté en entrée seulement, jamais renvoyé par l'API
+    // ni exporté ; conservé dans les fichiers de commandes (OrderPersistenceMixIn) pour la reprise.
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private String idempotencyKey;
+
+    // Empreinte de la requête d'origine associée à la clé (IdempotencyService.requestHash) : calculée
+    // par le serveur, ignorée par l'API dans les deux sens, conservée dans les fichiers de commandes
+    @JsonIgnore
+    private String requestHash;
+
     // Initialisation pour éviter null
     private List<OrderLine> items = new ArrayList<>();
 
@@ -68,6 +82,12 @@ public class Order {
     public String getDiscountReason() { return discountReason; }
     public void setDiscountReason(String discountReason) { this.discountReason = discountReason; }
 
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+
+    public String getRequestHash() { return requestHash; }
+    public void setRequestHash(String requestHash) { this.requestHash = requestHash; }
+
     public List<OrderLine> getItems() { return items; }
     public void setItems(List<OrderLine> items) { this.items = items; }
 }
\ No newline at end of file
@@ -15,6 +15,12 @@ public class OrderLine {
     private int quantity;
     private String type; // "DISH" ou "DRINK"
 
+    // Catégorie du produit au moment de la vente (statistiques stables si le catalogue change)
+    private String category;
+
+    // Taux de TVA au moment de la vente (ticket Z)
+    private BigDecimal vat;
+
     // --- GETTERS & SETTERS ---
 
     public String getId() { return id; }
@@ -31,4 +37,10 @@ public class OrderLine {
 
     public String getType() { return type; }
     public void setType(String type) { this.type = type; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public BigDecimal getVat() { return vat; }
+    public void setVat(BigDecimal vat) { this.vat = vat; }
 }
\ No newline at end of file
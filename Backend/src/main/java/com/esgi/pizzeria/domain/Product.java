@@ -39,7 +39,8 @@ public abstract class Product {
 
     /**
      * Stock disponible en portions/unités.
-     * null  = jamais initialisé (migration automatique au démarrage)
+     * null  = jamais initialisé : valeur par défaut appliquée à l'enregistrement (20 plats, 50 boissons)
+     *         et par la migration v1 des anciens fichiers
      * 0     = illimité / non suivi
      * > 0   = stock actif (bloque la commande si insuffisant)
      */
@@ -47,7 +48,8 @@ public abstract class Product {
 
     /**
      * Catégorie d'affichage dans le POS (ex: PIZZA, PASTA, DESSERT, SOFT, BEER, WINE_RED…).
-     * null = pas encore catégorisé (migration automatique au démarrage).
+     * null = pas encore catégorisé : déduite de l'ID et du nom à l'enregistrement
+     * et par la migration v2 des anciens fichiers.
      */
     private String category = null;
 
@@ -0,0 +1,130 @@
+package com.esgi.pizzeria.domain;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Règle de promotion, définie comme une donnée (fichier {@code promotions.json}, API d'administration).
+ * <p>
+ * Les règles actives sont évaluées par ordre de {@code priority} croissante ; les remises obtenues
+ * s'additionnent, le total restant plafonné au sous-total de la commande. Une règle {@code exclusive}
+ * ne s'applique que si aucune autre remise (manuelle ou promotion) ne l'a été, et clôt l'évaluation
+ * (c'est le cas de la remise automatique au-delà de 20€).
+ * </p>
+ * <p>
+ * Périmètre ({@code productIds}, {@code categories}) : un produit est concerné s'il figure dans l'une
+ * des deux listes. Fenêtre horaire ({@code days}, {@code startTime}, {@code endTime}) : facultative
+ * pour tous les types, obligatoire pour {@link Type#HAPPY_HOUR}.
+ * </p>
+ */
+public class PromotionRule {
+
+    /**
+     * Nature de la règle.
+     */
+    public enum Type {
+        /** {@code percent} % (ou {@code amount}) sur toute la commande si le sous-total dépasse {@code threshold}. */
+        ORDER_THRESHOLD,
+        /** {@code percent} % sur les lignes du périmètre. */
+        CATEGORY,
+        /** {@code percent} % sur les lignes du périmètre (toute la commande s'il est vide), dans la fenêtre horaire. */
+        HAPPY_HOUR,
+        /** {@code amount} de remise par lot complet de {@code components} (ex : 2 pizzas + 1 boisson). */
+        BUNDLE,
+        /** {@code percent} % sur toute la commande pour un client ayant au moins {@code minLoyaltyPoints} points. */
+        CUSTOMER_TIER
+    }
+
+    /**
+     * Composant d'un lot : {@code quantity} articles du périmètre.
+     */
+    public static class BundleComponent {
+        private List<String> productIds = new ArrayList<>();
+        private List<String> categories = new ArrayList<>();
+        private int quantity = 1;
+
+        public BundleComponent() {}
+
+        public List<String> getProductIds() { return productIds; }
+        public void setProductIds(List<String> productIds) { this.productIds = productIds; }
+        public List<String> getCategories() { return categories; }
+        public void setCategories(List<String> categories) { this.categories = categories; }
+        public int getQuantity() { return quantity; }
+        public void setQuantity(int quantity) { this.quantity = quantity; }
+    }
+
+    private String id;
+    // Motif de remise imprimé sur le ticket et compté dans le ticket Z
+    private String label;
+    private Type type;
+    private boolean enabled = true;
+    private int priority;
+    private boolean exclusive;
+
+    private Integer percent;          // Taux entier (ex : 5 pour 5%)
+    private BigDecimal amount;        // Remise fixe (par lot pour BUNDLE)
+    private BigDecimal threshold;     // Sous-total à dépasser (ORDER_THRESHOLD)
+    private Integer minLoyaltyPoints; // Palier de fidélité (CUSTOMER_TIER)
+
+    private List<String> productIds = new ArrayList<>();
+    private List<String> categories = new ArrayList<>();
+    private List<BundleComponent> components = new ArrayList<>();
+
+    private List<DayOfWeek> days = new ArrayList<>(); // vide = tous les jours
+    private String startTime; // "HH:mm", inclus
+    private String endTime;   // "HH:mm", exclu ; avant startTime = passe minuit
+
+    public PromotionRule() {}
+
+    // --- GETTERS & SETTERS ---
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getLabel() { return label; }
+    public void setLabel(String label) { this.label = label; }
+
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public int getPriority() { return priority; }
+    public void setPriority(int priority) { this.priority = priority; }
+
+    public boolean isExclusive() { return exclusive; }
+    public void setExclusive(boolean exclusive) { this.exclusive = exclusive; }
+
+    public Integer getPercent() { return percent; }
+    public void setPercent(Integer percent) { this.percent = percent; }
+
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+
+    public BigDecimal getThreshold() { return threshold; }
+    public void setThreshold(BigDecimal threshold) { this.threshold = threshold; }
+
+    public Integer getMinLoyaltyPoints() { return minLoyaltyPoints; }
+    public void setMinLoyaltyPoints(Integer minLoyaltyPoints) { this.minLoyaltyPoints = minLoyaltyPoints; }
+
+    public List<String> getProductIds() { return productIds; }
+    public void setProductIds(List<String> productIds) { this.productIds = productIds; }
+
+    public List<String> getCategories() { return categories; }
+    public void setCategories(List<String> categories) { this.categories = categories; }
+
+    public List<BundleComponent> getComponents() { return components; }
+    public void setComponents(List<BundleComponent> components) { this.components = components; }
+
+    public List<DayOfWeek> getDays() { return days; }
+    public void setDays(List<DayOfWeek> days) { this.days = days; }
+
+    public String getStartTime() { return startTime; }
+    public void setStartTime(String startTime) { this.startTime = startTime; }
+
+    public String getEndTime() { return endTime; }
+    public void setEndTime(String endTime) { this.endTime = endTime; }
+}
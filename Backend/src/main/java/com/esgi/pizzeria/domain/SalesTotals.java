@@ -0,0 +1,58 @@
+package com.esgi.pizzeria.domain;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Agrégat de ventes d'un "seau" statistique (une journée, un produit, un vendeur...).
+ * <p>
+ * Mis à jour à chaque commande : lire un agrégat coûte O(1), quel que soit l'historique.
+ * Pour les produits et catégories, le chiffre d'affaires est celui des lignes, avant remise.
+ * </p>
+ */
+public class SalesTotals {
+
+    private BigDecimal revenue = BigDecimal.ZERO;
+    private BigDecimal discountTotal = BigDecimal.ZERO;
+    private long orderCount;
+    private long itemsSold;
+
+    public SalesTotals() {
+        // Constructeur vide requis par Jackson
+    }
+
+    /**
+     * Ajoute une commande (ou la part d'une commande) à l'agrégat.
+     */
+    public synchronized void add(BigDecimal revenue, BigDecimal discount, long orders, long items) {
+        if (revenue != null) this.revenue = this.revenue.add(revenue);
+        if (discount != null) this.discountTotal = this.discountTotal.add(discount);
+        this.orderCount += orders;
+        this.itemsSold += items;
+    }
+
+    /**
+     * @return Copie cohérente de l'agrégat, sérialisable sans risque de mise à jour concurrente.
+     */
+    public synchronized SalesTotals snapshot() {
+        SalesTotals copy = new SalesTotals();
+        copy.revenue = revenue;
+        copy.discountTotal = discountTotal;
+        copy.orderCount = orderCount;
+        copy.itemsSold = itemsSold;
+        return copy;
+    }
+
+    public BigDecimal getRevenue() { return revenue; }
+    public BigDecimal getDiscountTotal() { return discountTotal; }
+    public long getOrderCount() { return orderCount; }
+    public long getItemsSold() { return itemsSold; }
+
+    /**
+     * Panier moyen (0 si aucune commande).
+     */
+    public BigDecimal getAverageTicket() {
+        if (orderCount == 0) return BigDecimal.ZERO;
+        return revenue.divide(BigDecimal.valueOf(orderCount), 2, RoundingMode.HALF_UP);
+    }
+}
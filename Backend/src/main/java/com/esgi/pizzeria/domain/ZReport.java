@@ -0,0 +1,128 @@
+package com.esgi.pizzeria.domain;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ticket Z : clôture de caisse d'une journée d'activité.
+ * <p>
+ * Une fois enregistré, le rapport est figé : il n'est jamais recalculé ni écrasé,
+ * sa réimpression relit simplement l'instantané.
+ * </p>
+ */
+public class ZReport {
+
+    private String businessDate;   // Journée clôturée (ISO : 2024-05-01), sert d'identifiant
+    private String closedAt;       // Horodatage serveur de la clôture
+    private String closedBy;       // ID du vendeur ayant clôturé
+
+    private int orderCount;
+    private long itemsSold;
+    private BigDecimal grossSales = BigDecimal.ZERO;    // Avant remises
+    private BigDecimal discountTotal = BigDecimal.ZERO;
+    private BigDecimal netSales = BigDecimal.ZERO;      // Encaissé (TTC)
+
+    private Map<String, PaymentTotal> byPaymentMethod = new LinkedHashMap<>();
+    private Map<String, VatTotal> byVatRate = new LinkedHashMap<>();
+    private Map<String, DiscountTotal> discountsByReason = new LinkedHashMap<>();
+
+    // Fidélité : remises obtenues en échange de points
+    private int loyaltyRedemptions;
+    private long loyaltyPointsRedeemed;
+    private BigDecimal loyaltyDiscountTotal = BigDecimal.ZERO;
+
+    public ZReport() {
+        // Constructeur vide requis par Jackson
+    }
+
+    // --- GETTERS & SETTERS ---
+
+    public String getBusinessDate() { return businessDate; }
+    public void setBusinessDate(String businessDate) { this.businessDate = businessDate; }
+
+    public String getClosedAt() { return closedAt; }
+    public void setClosedAt(String closedAt) { this.closedAt = closedAt; }
+
+    public String getClosedBy() { return closedBy; }
+    public void setClosedBy(String closedBy) { this.closedBy = closedBy; }
+
+    public int getOrderCount() { return orderCount; }
+    public void setOrderCount(int orderCount) { this.orderCount = orderCount; }
+
+    public long getItemsSold() { return itemsSold; }
+    public void setItemsSold(long itemsSold) { this.itemsSold = itemsSold; }
+
+    public BigDecimal getGrossSales() { return grossSales; }
+    public void setGrossSales(BigDecimal grossSales) { this.grossSales = grossSales; }
+
+    public BigDecimal getDiscountTotal() { return discountTotal; }
+    public void setDiscountTotal(BigDecimal discountTotal) { this.discountTotal = discountTotal; }
+
+    public BigDecimal getNetSales() { return netSales; }
+    public void setNetSales(BigDecimal netSales) { this.netSales = netSales; }
+
+    public Map<String, PaymentTotal> getByPaymentMethod() { return byPaymentMethod; }
+    public void setByPaymentMethod(Map<String, PaymentTotal> byPaymentMethod) { this.byPaymentMethod = byPaymentMethod; }
+
+    public Map<String, VatTotal> getByVatRate() { return byVatRate; }
+    public void setByVatRate(Map<String, VatTotal> byVatRate) { this.byVatRate = byVatRate; }
+
+    public Map<String, DiscountTotal> getDiscountsByReason() { return discountsByReason; }
+    public void setDiscountsByReason(Map<String, DiscountTotal> discountsByReason) { this.discountsByReason = discountsByReason; }
+
+    public int getLoyaltyRedemptions() { return loyaltyRedemptions; }
+    public void setLoyaltyRedemptions(int loyaltyRedemptions) { this.loyaltyRedemptions = loyaltyRedemptions; }
+
+    public long getLoyaltyPointsRedeemed() { return loyaltyPointsRedeemed; }
+    public void setLoyaltyPointsRedeemed(long loyaltyPointsRedeemed) { this.loyaltyPointsRedeemed = loyaltyPointsRedeemed; }
+
+    public BigDecimal getLoyaltyDiscountTotal() { return loyaltyDiscountTotal; }
+    public void setLoyaltyDiscountTotal(BigDecimal loyaltyDiscountTotal) { this.loyaltyDiscountTotal = loyaltyDiscountTotal; }
+
+    /**
+     * Encaissements d'un moyen de paiement.
+     */
+    public static class PaymentTotal {
+        private int count;
+        private BigDecimal amount = BigDecimal.ZERO;
+
+        public int getCount() { return count; }
+        public void setCount(int count) { this.count = count; }
+
+        public BigDecimal getAmount() { return amount; }
+        public void setAmount(BigDecimal amount) { this.amount = amount; }
+    }
+
+    /**
+     * Ventilation d'un taux de TVA (prix catalogue TTC, remises réparties au prorata).
+     */
+    public static class VatTotal {
+        private BigDecimal baseAmount = BigDecimal.ZERO;   // HT
+        private BigDecimal vatAmount = BigDecimal.ZERO;    // TVA
+        private BigDecimal totalAmount = BigDecimal.ZERO;  // TTC
+
+        public BigDecimal getBaseAmount() { return baseAmount; }
+        public void setBaseAmount(BigDecimal baseAmount) { this.baseAmount = baseAmount; }
+
+        public BigDecimal getVatAmount() { return vatAmount; }
+        public void setVatAmount(BigDecimal vatAmount) { this.vatAmount = vatAmount; }
+
+        public BigDecimal getTotalAmount() { return totalAmount; }
+        public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+    }
+
+    /**
+     * Remises accordées pour un même motif.
+     */
+    public static class DiscountTotal {
+        private int count;
+        private BigDecimal amount = BigDecimal.ZERO;
+
+        public int getCount() { return count; }
+        public void setCount(int count) { this.count = count; }
+
+        public BigDecimal getAmount() { return amount; }
+        public void setAmount(BigDecimal amount) { this.amount = amount; }
+    }
+}
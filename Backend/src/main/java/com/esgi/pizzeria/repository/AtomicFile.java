@@ -0,0 +1,365 @@
+package com.esgi.pizzeria.repository;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fichier de données remplacé de façon atomique, avec somme de contrôle et génération de secours.
+ * <p>
+ * Écriture : le contenu est écrit dans {@code <fichier>.tmp} et sa somme de contrôle dans le fichier
+ * compagnon {@code <fichier>.crc.tmp} ({@code crc32c <crc> <taille>}), tous deux forcés sur disque (fsync).
+ * La version courante et sa somme deviennent la génération de secours {@code <fichier>.bak} et
+ * {@code <fichier>.bak.crc} (liens physiques, sans copie), puis les fichiers temporaires sont renommés
+ * atomiquement à leur place. Le fichier de données ne contient que les données : il reste du JSON valide.
+ * Une coupure à n'importe quel moment laisse au moins une génération complète et cohérente avec sa somme,
+ * jamais un fichier tronqué pris pour bon.
+ * </p>
+ * <p>
+ * Lecture : le fichier est mappé en mémoire ({@link FileChannel#map}) et sa somme de contrôle vérifiée ;
+ * s'il est absent, tronqué ou corrompu, la génération de secours est lue à la place. Un fichier sans
+ * somme de contrôle (import manuel, fichier {@code .crc} supprimé) est accepté avec un avertissement,
+ * seule son analyse le valide. L'ancien format, ligne de contrôle {@code #CRC32C <crc> <taille>} en fin
+ * de fichier, reste vérifié puis remplacé à la réécriture suivante.
+ * </p>
+ */
+final class AtomicFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(AtomicFile.class);
+
+    static final String CHECKSUM_EXTENSION = ".crc";
+    private static final String CHECKSUM_PREFIX = "crc32c ";
+    // Ancien format : ligne de contrôle ajoutée en fin de fichier
+    private static final byte[] FOOTER_PREFIX = "\n#CRC32C ".getBytes(StandardCharsets.US_ASCII);
+    // Windows interdit de remplacer un fichier tant qu'un mappage mémoire reste ouvert (libéré au GC seulement) :
+    // lecture en mémoire classique sur ce système
+    private static final boolean MAP_FILES = !System.getProperty("os.name", "").startsWith("Windows");
+
+    // Préfixe + 8 chiffres hexadécimaux + espace + taille (19 chiffres max) + fin de ligne
+    private static final int MAX_FOOTER_LENGTH = FOOTER_PREFIX.length + 8 + 1 + 19 + 1;
+
+    private final Path path;
+    private final Path backup;
+    private final Path temp;
+    private final Path checksum;
+    private final Path backupChecksum;
+    private final Path tempChecksum;
+
+    // La version courante a été vérifiée (ou écrite par nous) : elle peut devenir la génération de secours.
+    // Faux après une lecture de secours, pour ne pas remplacer la seule bonne génération par un fichier corrompu.
+    private volatile boolean currentGood = true;
+
+    /**
+     * Lit le contenu vérifié d'un fichier (sans l'ancienne ligne de contrôle intégrée).
+     */
+    @FunctionalInterface
+    interface Reader<T> {
+        T read(ByteBuffer content) throws IOException;
+    }
+
+    /**
+     * Écrit le contenu dans le flux fourni (qui ne doit pas être fermé par l'appelant : il est protégé).
+     */
+    @FunctionalInterface
+    interface Writer {
+        void write(OutputStream out) throws IOException;
+    }
+
+    AtomicFile(String path) {
+        this.path = Path.of(path);
+        this.backup = Path.of(path + ".bak");
+        this.temp = Path.of(path + ".tmp");
+        this.checksum = checksumOf(this.path);
+        this.backupChecksum = checksumOf(this.backup);
+        this.tempChecksum = Path.of(path + CHECKSUM_EXTENSION + ".tmp");
+    }
+
+    private static Path checksumOf(Path file) {
+        return Path.of(file + CHECKSUM_EXTENSION);
+    }
+
+    /**
+     * Erreur de démarrage d'un repository dont les données existent mais sont illisibles. Démarrer avec une
+     * base vide (ou réimporter les données par défaut) écraserait les vraies données à la première écriture.
+     */
+    static IllegalStateException unreadable(String path, IOException cause) {
+        return new IllegalStateException("Données illisibles dans " + path + " et sa génération de secours : "
+                + "démarrage interrompu pour ne pas les écraser. Restaurer le fichier (ou sa copie .bak) puis relancer.", cause);
+    }
+
+    File getFile() {
+        return path.toFile();
+    }
+
+    /**
+     * @return true si le fichier ou sa génération de secours existe : des données réelles sont présentes.
+     */
+    boolean exists() {
+        return Files.exists(path) || Files.exists(backup);
+    }
+
+    /**
+     * Lit le fichier, ou sa génération de secours s'il est absent, corrompu ou illisible par {@code reader}.
+     *
+     * @return Le résultat de {@code reader}, ou null si aucune génération n'existe (premier démarrage).
+     * @throws IOException si des données existent mais qu'aucune génération n'est lisible.
+     */
+    <T> T read(Reader<T> reader) throws IOException {
+        IOException failure = null;
+        try {
+            T value = readCurrent(reader);
+            if (value != null) return value;
+        } catch (IOException e) {
+            failure = e;
+        }
+        try {
+            T value = readBackup(reader);
+            if (value != null || failure == null) return value;
+        } catch (IOException e) {
+            if (failure != null) e.addSuppressed(failure);
+            failure = e;
+        }
+        throw new IOException("Aucune génération lisible pour " + path.getFileName(), failure);
+    }
+
+    /**
+     * Lit la version courante uniquement.
+     *
+     * @return Le résultat de {@code reader}, ou null si le fichier n'existe pas.
+     * @throws IOException si le fichier est corrompu ou illisible.
+     */
+    <T> T readCurrent(Reader<T> reader) throws IOException {
+        if (!Files.exists(path)) return null;
+        try {
+            T value = readVerified(path, checksum, reader);
+            currentGood = true;
+            return value;
+        } catch (IOException e) {
+            currentGood = false;
+            logger.error("Fichier {} corrompu ou illisible ({}).", path.getFileName(), e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Lit la génération de secours. La version courante est alors considérée comme mauvaise :
+     * la prochaine écriture ne la conservera pas comme génération de secours.
+     *
+     * @return Le résultat de {@code reader}, ou null si aucune génération de secours n'existe.
+     * @throws IOException si la génération de secours est corrompue ou illisible.
+     */
+    <T> T readBackup(Reader<T> reader) throws IOException {
+        if (!Files.exists(backup)) return null;
+        currentGood = false;
+        try {
+            T value = readVerified(backup, backupChecksum, reader);
+            logger.warn("{} : génération précédente {} utilisée.", path.getFileName(), backup.getFileName());
+            return value;
+        } catch (IOException e) {
+            logger.error("Génération de secours {} illisible ({}).", backup.getFileName(), e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Remplace atomiquement le fichier par le contenu écrit par {@code writer}.
+     */
+    void write(Writer writer) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+
+        CountingCrcStream out;
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            out = new CountingCrcStream(new BufferedOutputStream(file, 64 * 1024));
+            writer.write(out);
+            out.flush();
+            file.getFD().sync();
+        }
+        try (FileOutputStream file = new FileOutputStream(tempChecksum.toFile())) {
+            file.write(checksumLine(out.crc.getValue(), out.count));
+            file.getFD().sync();
+        }
+
+        if (currentGood && Files.exists(path)) {
+            rotateBackup();
+        }
+        // Coupure entre les deux renommages : nouvelles données et ancienne somme ne concordent pas,
+        // la génération de secours (cohérente) est alors lue
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(tempChecksum, checksum, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        currentGood = true;
+        syncDirectory(parent);
+    }
+
+    /**
+     * Supprime le fichier, sa génération de secours et leurs sommes de contrôle.
+     */
+    void delete() throws IOException {
+        for (Path file : List.of(path, checksum, backup, backupChecksum)) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * La version courante et sa somme de contrôle deviennent la génération de secours. Liens physiques
+     * quand le système de fichiers le permet (instantané quelle que soit la taille), copies sinon.
+     */
+    private void rotateBackup() throws IOException {
+        Files.deleteIfExists(backupChecksum);
+        link(path, backup);
+        // Version courante de l'ancien format (ligne de contrôle intégrée) : pas de fichier compagnon
+        if (Files.exists(checksum)) link(checksum, backupChecksum);
+    }
+
+    private static void link(Path source, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, source);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static <T> T readVerified(Path file, Path checksumFile, Reader<T> reader) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = MAP_FILES
+                    ? channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    : ByteBuffer.wrap(Files.readAllBytes(file));
+            return reader.read(verify(file, checksumFile, buffer));
+        } catch (RuntimeException e) {
+            // Erreurs de désérialisation non déclarées (ex : type inconnu) : le fichier est inexploitable
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Vérifie la somme de contrôle du fichier compagnon, ou à défaut l'ancienne ligne de contrôle
+     * intégrée, et retourne le contenu (sans cette ligne).
+     */
+    private static ByteBuffer verify(Path file, Path checksumFile, ByteBuffer buffer) throws IOException {
+        if (Files.exists(checksumFile)) {
+            String[] fields = Files.readString(checksumFile, StandardCharsets.US_ASCII).trim().split(" ");
+            if (fields.length != 3 || !CHECKSUM_PREFIX.trim().equals(fields[0])) {
+                throw new IOException("Somme de contrôle illisible dans " + checksumFile.getFileName());
+            }
+            check(file, buffer, fields[1], fields[2], buffer.limit());
+            return buffer;
+        }
+
+        int size = buffer.limit();
+        int start = Math.max(0, size - MAX_FOOTER_LENGTH);
+        int footerAt = lastIndexOf(buffer, start, size);
+        if (footerAt < 0) {
+            // Ni fichier compagnon ni ligne de contrôle : fichier remplacé ou importé à la main
+            logger.warn("{} : somme de contrôle absente ({} manquant), contenu accepté sans vérification.",
+                    file.getFileName(), checksumFile.getFileName());
+            return buffer;
+        }
+
+        byte[] footerBytes = new byte[size - footerAt - FOOTER_PREFIX.length];
+        buffer.get(footerAt + FOOTER_PREFIX.length, footerBytes);
+        String[] fields = new String(footerBytes, StandardCharsets.US_ASCII).trim().split(" ");
+        if (fields.length != 2) {
+            throw new IOException("Ligne de contrôle illisible dans " + file.getFileName());
+        }
+        check(file, buffer, fields[0], fields[1], footerAt);
+        return buffer.slice(0, footerAt);
+    }
+
+    /**
+     * Compare la taille et la somme CRC32C des {@code length} premiers octets aux valeurs attendues.
+     */
+    private static void check(Path file, ByteBuffer buffer, String crcField, String lengthField, int length)
+            throws IOException {
+        long expectedCrc;
+        long expectedLength;
+        try {
+            expectedCrc = Long.parseLong(crcField, 16);
+            expectedLength = Long.parseLong(lengthField);
+        } catch (RuntimeException e) {
+            throw new IOException("Somme de contrôle illisible pour " + file.getFileName());
+        }
+        if (expectedLength != length) {
+            throw new IOException("Taille incohérente (" + length + " octets, " + expectedLength + " attendus)");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(0, length));
+        if (crc.getValue() != expectedCrc) {
+            throw new IOException("Somme de contrôle invalide");
+        }
+    }
+
+    private static int lastIndexOf(ByteBuffer buffer, int from, int to) {
+        outer:
+        for (int i = to - FOOTER_PREFIX.length; i >= from; i--) {
+            for (int j = 0; j < FOOTER_PREFIX.length; j++) {
+                if (buffer.get(i + j) != FOOTER_PREFIX[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static byte[] checksumLine(long crc, long length) {
+        return String.format(CHECKSUM_PREFIX + "%08x %d\n", crc, length).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Force sur disque l'entrée du répertoire (le renommage). Sans effet là où le système ne le permet pas (Windows).
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("fsync du répertoire {} impossible : {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * Flux qui calcule la somme de contrôle et la taille du contenu, et ignore close()
+     * (Jackson ferme le flux de sortie à la fin de writeValue).
+     */
+    private static final class CountingCrcStream extends FilterOutputStream {
+
+        private final CRC32C crc = new CRC32C();
+        private long count;
+
+        private CountingCrcStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            crc.update(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            crc.update(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
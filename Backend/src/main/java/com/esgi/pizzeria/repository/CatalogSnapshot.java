@@ -0,0 +1,77 @@
+package com.esgi.pizzeria.repository;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Instantané immuable du catalogue, pré-rendu pour l'API.
+ * <p>
+ * PERFORMANCE : le JSON (et sa variante gzip) est produit une seule fois par version du
+ * catalogue ; chaque appel à GET /api/products ne fait ensuite qu'envoyer ces octets.
+ * L'ETag est une empreinte du contenu : il reste valable après un redémarrage.
+ * </p>
+ */
+public final class CatalogSnapshot {
+
+    private final long revision;
+    private final byte[] json;
+    private final byte[] gzip;
+    private final String etag;
+
+    CatalogSnapshot(long revision, byte[] json) {
+        this.revision = revision;
+        this.json = json;
+        this.gzip = compress(json);
+        this.etag = "\"" + digest(json) + "\"";
+    }
+
+    long getRevision() {
+        return revision;
+    }
+
+    /**
+     * @return Catalogue au format JSON (ne pas modifier le tableau).
+     */
+    public byte[] getJson() {
+        return json;
+    }
+
+    /**
+     * @return Catalogue au format JSON compressé gzip (ne pas modifier le tableau).
+     */
+    public byte[] getGzip() {
+        return gzip;
+    }
+
+    /**
+     * @return ETag fort, guillemets compris (ex : "3f2a...").
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    private static byte[] compress(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        } catch (IOException e) {
+            // Flux en mémoire : ne peut pas échouer
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String digest(byte[] data) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(data);
+            // 128 bits suffisent pour distinguer deux versions du catalogue
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+}
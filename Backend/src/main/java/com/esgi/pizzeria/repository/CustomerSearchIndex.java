@@ -0,0 +1,140 @@
+package com.esgi.pizzeria.repository;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import com.esgi.pizzeria.domain.Customer;
+import com.esgi.pizzeria.util.PhoneNumbers;
+
+/**
+ * Index de recherche des clients, maintenu à chaque mutation du repository.
+ * <ul>
+ *   <li>Table de hachage téléphone normalisé → ID : recherche exacte en O(1).</li>
+ *   <li>Index triés (téléphone, mots du nom) : recherche par préfixe en O(log n + résultats).</li>
+ * </ul>
+ * <p>
+ * Les clés triées ont la forme "clé\u0000id", ce qui autorise plusieurs clients sur une même clé
+ * et borne chaque préfixe par un simple parcours ordonné.
+ * </p>
+ * <p>
+ * Les mutations sont sérialisées par le repository ; les lectures sont sans verrou.
+ * </p>
+ */
+class CustomerSearchIndex {
+
+    private static final char SEPARATOR = '\u0000';
+
+    private final Map<String, String> idByPhone = new ConcurrentHashMap<>();
+    private final NavigableSet<String> phoneKeys = new ConcurrentSkipListSet<>();
+    private final NavigableSet<String> nameKeys = new ConcurrentSkipListSet<>();
+
+    // Clés indexées par client, pour les retirer même si l'objet a été modifié entre-temps
+    private final Map<String, Indexed> indexedById = new ConcurrentHashMap<>();
+
+    void add(Customer customer) {
+        remove(customer.getId());
+
+        String phone = PhoneNumbers.normalize(customer.getPhone());
+        List<String> names = nameTokens(customer.getName());
+        Indexed indexed = new Indexed(phone, names);
+
+        if (!phone.isEmpty()) {
+            idByPhone.putIfAbsent(phone, customer.getId());
+            phoneKeys.add(phone + SEPARATOR + customer.getId());
+        }
+        for (String token : names) {
+            nameKeys.add(token + SEPARATOR + customer.getId());
+        }
+        indexedById.put(customer.getId(), indexed);
+    }
+
+    void remove(String id) {
+        Indexed indexed = indexedById.remove(id);
+        if (indexed == null) return;
+
+        if (!indexed.phone.isEmpty()) {
+            phoneKeys.remove(indexed.phone + SEPARATOR + id);
+            if (id.equals(idByPhone.get(indexed.phone))) {
+                idByPhone.remove(indexed.phone);
+                // Un autre client partage ce numéro : il devient la cible de la recherche exacte
+                String next = phoneKeys.ceiling(indexed.phone + SEPARATOR);
+                if (next != null && next.startsWith(indexed.phone + SEPARATOR)) {
+                    idByPhone.put(indexed.phone, next.substring(indexed.phone.length() + 1));
+                }
+            }
+        }
+        for (String token : indexed.names) {
+            nameKeys.remove(token + SEPARATOR + id);
+        }
+    }
+
+    void clear() {
+        idByPhone.clear();
+        phoneKeys.clear();
+        nameKeys.clear();
+        indexedById.clear();
+    }
+
+    Optional<String> idForPhone(String phone) {
+        return Optional.ofNullable(idByPhone.get(PhoneNumbers.normalize(phone)));
+    }
+
+    /**
+     * Recherche par préfixe : numéro de téléphone si le préfixe contient un chiffre,
+     * sinon début d'un des mots du nom.
+     *
+     * @return IDs des clients correspondants, sans doublon, dans l'ordre de l'index.
+     */
+    List<String> searchIds(String prefix, int offset, int limit) {
+        boolean byPhone = prefix.chars().anyMatch(Character::isDigit);
+        String key = byPhone ? PhoneNumbers.normalize(prefix) : normalizeName(prefix).trim();
+        if (key.isEmpty() || limit <= 0) return List.of();
+
+        NavigableSet<String> index = byPhone ? phoneKeys : nameKeys;
+        Set<String> ids = new LinkedHashSet<>();
+        int skipped = 0;
+        for (String entry : index.tailSet(key, true)) {
+            if (!entry.startsWith(key)) break;
+            String id = entry.substring(entry.indexOf(SEPARATOR) + 1);
+            if (ids.contains(id)) continue;
+            if (skipped < offset) {
+                // On mémorise l'ID pour ne pas le compter deux fois dans le décalage
+                ids.add(id);
+                skipped++;
+                continue;
+            }
+            ids.add(id);
+            if (ids.size() - skipped >= limit) break;
+        }
+        List<String> page = new ArrayList<>(ids);
+        return page.subList(Math.min(skipped, page.size()), page.size());
+    }
+
+    private static List<String> nameTokens(String name) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : normalizeName(name).split("[\\s\\-']+")) {
+            if (!token.isEmpty()) tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /**
+     * Minuscules sans accents : "Élodie" et "elodie" ont la même clé.
+     */
+    private static String normalizeName(String name) {
+        if (name == null) return "";
+        return Normalizer.normalize(name, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase();
+    }
+
+    private record Indexed(String phone, List<String> names) {}
+}
@@ -0,0 +1,147 @@
+package com.esgi.pizzeria.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Stockage en mémoire d'un repository : table indexée par ID et ordonnée par insertion.
+ * <p>
+ * PERFORMANCE : findById, upsert et suppression en O(1) (au lieu d'un parcours complet de liste).
+ * Une mise à jour replace l'élément en fin d'ordre, comme l'ancien couple removeIf + add,
+ * ce qui conserve l'ordre historique renvoyé par {@link #values()}.
+ * </p>
+ * <p>
+ * CONCURRENCE : verrou lecture/écriture, les lectures simultanées ne se bloquent pas entre elles.
+ * </p>
+ *
+ * @param <T> Type des entités stockées.
+ */
+class IdIndex<T> {
+
+    private final Function<T, String> idOf;
+    private final Map<String, T> entries = new LinkedHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    IdIndex(Function<T, String> idOf) {
+        this.idOf = idOf;
+    }
+
+    Optional<T> findById(String id) {
+        lock.readLock().lock();
+        try {
+            return Optional.ofNullable(entries.get(id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    boolean containsId(String id) {
+        lock.readLock().lock();
+        try {
+            return entries.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Insère ou remplace l'entité (placée en fin d'ordre).
+     */
+    T upsert(T value) {
+        lock.writeLock().lock();
+        try {
+            String id = idOf.apply(value);
+            entries.remove(id);
+            entries.put(id, value);
+            return value;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void upsertAll(Collection<? extends T> values) {
+        lock.writeLock().lock();
+        try {
+            for (T value : values) {
+                String id = idOf.apply(value);
+                entries.remove(id);
+                entries.put(id, value);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return L'entité supprimée, vide si l'ID était inconnu.
+     */
+    Optional<T> remove(String id) {
+        lock.writeLock().lock();
+        try {
+            return Optional.ofNullable(entries.remove(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remplace tout le contenu (chargement depuis le disque).
+     */
+    void replaceAll(Collection<? extends T> values) {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            for (T value : values) {
+                entries.put(idOf.apply(value), value);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Copie des entités dans l'ordre d'insertion.
+     */
+    List<T> values() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(entries.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Exécute une lecture sur l'ensemble des entités sans copie, sous verrou de lecture.
+     * La fonction ne doit pas modifier l'index.
+     */
+    <R> R read(Function<Collection<T>, R> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.apply(Collections.unmodifiableCollection(entries.values()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+}
@@ -1,91 +1,149 @@
 package com.esgi.pizzeria.repository;
 
 import com.esgi.pizzeria.domain.Customer;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
-import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Repository des clients (programme de fidélité).
+ * <p>
+ * En plus de l'index par ID, maintient un {@link CustomerSearchIndex} : recherche exacte par
+ * téléphone normalisé et recherche par préfixe (téléphone ou nom) sans parcourir la base.
+ * </p>
+ * <p>
+ * Le fichier 'customers.json' est doublé d'une copie binaire 'customers.smile', lue au démarrage
+ * à la place du JSON (voir {@link SnapshotStore}).
+ * </p>
+ */
 @Repository
 public class JsonCustomerRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(JsonCustomerRepository.class);
-    private static final String FILE_PATH = "Backend/data/customers.json";
+    static final String FILE_PATH = "Backend/data/customers.json";
+    private static final String FLUSH_NAME = "customers";
+    // Version du fichier et migrations numérotées (aucune à ce jour)
+    private static final SchemaMigrations SCHEMA = new SchemaMigrations(FLUSH_NAME);
     
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SnapshotStore<Customer> snapshot;
+    private final WriteBehindFlusher flusher;
     
-    // CORRECTION : Ajout de 'final' pour sécuriser le bloc synchronized plus bas
-    private final List<Customer> database = Collections.synchronizedList(new ArrayList<>());
+    // Index par ID ordonné par insertion : recherche, mise à jour et suppression en O(1)
+    private final IdIndex<Customer> database = new IdIndex<>(Customer::getId);
+    private final CustomerSearchIndex searchIndex = new CustomerSearchIndex();
+    // Index par ID et index de recherche modifiés ensemble
+    private final ReentrantLock lock = new ReentrantLock();
 
-    @PostConstruct
+    public JsonCustomerRepository(WriteBehindFlusher flusher,
+                                  @Value("${pizzeria.persistence.binary-snapshot.enabled:false}") boolean binarySnapshot) {
+        this.flusher = flusher;
+        this.snapshot = new SnapshotStore<>(FILE_PATH, Customer.class, objectMapper, SCHEMA, binarySnapshot);
+        flusher.register(FLUSH_NAME, this::saveToFile);
+    }
+
+    /**
+     * Chargement du fichier au démarrage, appelé par {@link com.esgi.pizzeria.config.DataBootstrap}
+     * (en parallèle des autres repositories).
+     */
     public void init() {
-        File file = new File(FILE_PATH);
-        if (file.exists()) {
+        if (snapshot.exists()) {
             try {
-                List<Customer> loaded = objectMapper.readValue(file, new TypeReference<List<Customer>>() {});
-                // On modifie le contenu de la liste final, pas la référence elle-même
-                database.clear();
-                database.addAll(loaded);
+                List<Customer> loaded = snapshot.load();
+                database.replaceAll(loaded);
+                searchIndex.clear();
+                loaded.forEach(searchIndex::add);
                 logger.info("{} clients chargés depuis le fichier.", database.size());
             } catch (IOException e) {
-                logger.error("Echec de la lecture de customers.json", e);
+                throw AtomicFile.unreadable(FILE_PATH, e);
             }
         } else {
-            saveToFile();
+            flusher.markDirty(FLUSH_NAME);
         }
     }
 
-    private synchronized void saveToFile() {
+    /**
+     * Écriture complète du fichier, appelée par le {@link WriteBehindFlusher}.
+     * On écrit une copie de la liste pour ne pas bloquer les mutations pendant l'I/O.
+     */
+    private void saveToFile() {
         try {
-            File file = new File(FILE_PATH);
-            if (file.getParentFile() != null && !file.getParentFile().exists()) {
-                file.getParentFile().mkdirs();
-            }
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, database);
+            snapshot.write(findAll());
         } catch (IOException e) {
             logger.error("ERREUR CRITIQUE : Impossible de sauvegarder les clients", e);
+            throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * Barrière durable : force l'écriture sur disque des mutations en attente.
+     */
+    public void flush() {
+        flusher.flush(FLUSH_NAME);
+    }
+
     public List<Customer> findAll() {
-        return new ArrayList<>(database);
+        return database.values();
+    }
+
+    public int count() {
+        return database.size();
     }
 
+    /**
+     * Recherche exacte par téléphone (format indifférent : espaces, points, +33...).
+     */
     public Optional<Customer> findByPhone(String phone) {
-        // CORRECTION : Maintenant sûr car 'database' est final
-        synchronized (database) {
-            return database.stream()
-                    .filter(c -> c.getPhone().equals(phone))
-                    .findFirst();
-        }
+        return searchIndex.idForPhone(phone).flatMap(database::findById);
+    }
+
+    /**
+     * Recherche par préfixe de téléphone (si le préfixe contient un chiffre) ou de nom.
+     *
+     * @param prefix Début du numéro ou d'un mot du nom.
+     * @param offset Nombre de résultats à sauter (pagination).
+     * @param limit  Nombre maximal de résultats.
+     */
+    public List<Customer> searchByPrefix(String prefix, int offset, int limit) {
+        return searchIndex.searchIds(prefix, offset, limit).stream()
+                .map(database::findById)
+                .flatMap(Optional::stream)
+                .toList();
     }
 
     public Optional<Customer> findById(String id) {
-        synchronized (database) {
-            return database.stream()
-                    .filter(c -> c.getId().equals(id))
-                    .findFirst();
-        }
+        return database.findById(id);
     }
 
-    public synchronized Customer save(Customer customer) {
-        database.removeIf(c -> c.getId().equals(customer.getId()));
-        database.add(customer);
-        saveToFile();
-        return customer;
+    public Customer save(Customer customer) {
+        lock.lock();
+        try {
+            database.upsert(customer);
+            searchIndex.add(customer);
+            flusher.markDirty(FLUSH_NAME);
+            return customer;
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public synchronized void deleteById(String id) {
-        database.removeIf(c -> c.getId().equals(id));
-        saveToFile();
+    public void deleteById(String id) {
+        lock.lock();
+        try {
+            if (database.remove(id).isPresent()) {
+                searchIndex.remove(id);
+                flusher.markDirty(FLUSH_NAME);
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 }
\ No newline at end of file
@@ -3,42 +3,58 @@ package com.esgi.pizzeria.repository;
 import com.esgi.pizzeria.domain.Ingredient;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.UncheckedIOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Repository
 public class JsonIngredientRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(JsonIngredientRepository.class);
-    private static final String FILE_PATH = "Backend/data/ingredients.json";
+    static final String FILE_PATH = "Backend/data/ingredients.json";
+    private static final String FLUSH_NAME = "ingredients";
+    // Version du fichier et migrations numérotées (aucune à ce jour)
+    private static final SchemaMigrations SCHEMA = new SchemaMigrations(FLUSH_NAME);
     
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicFile file = new AtomicFile(FILE_PATH);
+    private final WriteBehindFlusher flusher;
     
-    // CORRECTION : Ajout de 'final'
-    private final List<Ingredient> database = Collections.synchronizedList(new ArrayList<>());
+    // Index par ID ordonné par insertion : recherche, mise à jour et suppression en O(1)
+    private final IdIndex<Ingredient> database = new IdIndex<>(Ingredient::getId);
+    // Sérialise les mutations
+    private final ReentrantLock lock = new ReentrantLock();
 
-    @PostConstruct
+    public JsonIngredientRepository(WriteBehindFlusher flusher) {
+        this.flusher = flusher;
+        flusher.register(FLUSH_NAME, this::saveToFile);
+    }
+
+    /**
+     * Chargement du fichier au démarrage, appelé par {@link com.esgi.pizzeria.config.DataBootstrap}
+     * (en parallèle des autres repositories).
+     */
     public void init() {
-        File file = new File(FILE_PATH);
-        if (file.exists()) {
-            try {
-                List<Ingredient> loaded = objectMapper.readValue(file, new TypeReference<List<Ingredient>>() {});
-                database.clear();
-                database.addAll(loaded);
+        try {
+            SchemaMigrations.Loaded<List<Ingredient>> loaded = file.read(content ->
+                    SCHEMA.readList(content, objectMapper.readerFor(Ingredient.class)));
+            if (loaded != null) {
+                database.replaceAll(loaded.value());
+                if (loaded.outdated()) flusher.markDirty(FLUSH_NAME);
                 logger.info("{} ingrédients chargés.", database.size());
-            } catch (IOException e) {
-                logger.error("Fichier ingrédients corrompu ou illisible.", e);
             }
+        } catch (IOException e) {
+            // Jamais de stock par défaut par-dessus un fichier existant mais illisible
+            throw AtomicFile.unreadable(FILE_PATH, e);
         }
 
         if (database.isEmpty()) {
@@ -51,8 +67,8 @@ public class JsonIngredientRepository {
         try (InputStream inputStream = getClass().getResourceAsStream("/initial-ingredients.json")) {
             if (inputStream != null) {
                 List<Ingredient> seeds = objectMapper.readValue(inputStream, new TypeReference<List<Ingredient>>() {});
-                database.addAll(seeds);
-                saveToFile();
+                database.upsertAll(seeds);
+                flusher.markDirty(FLUSH_NAME);
                 logger.info("Seed réussi : {} ingrédients ajoutés.", seeds.size());
             } else {
                 logger.warn("Fichier /initial-ingredients.json introuvable dans le classpath !");
@@ -62,37 +78,75 @@ public class JsonIngredientRepository {
         }
     }
 
-    private synchronized void saveToFile() {
+    /**
+     * Écriture complète du fichier, appelée par le {@link WriteBehindFlusher}.
+     */
+    private void saveToFile() {
         try {
-            File file = new File(FILE_PATH);
-            if (file.getParentFile() != null) file.getParentFile().mkdirs();
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, database);
+            List<Ingredient> ingredients = findAll();
+            file.write(SCHEMA.writer(objectMapper.writerWithDefaultPrettyPrinter(), ingredients));
         } catch (IOException e) {
             logger.error("Erreur d'écriture disque (Ingrédients)", e);
+            throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * Barrière durable : force l'écriture sur disque des mutations en attente.
+     */
+    public void flush() {
+        flusher.flush(FLUSH_NAME);
+    }
+
     public List<Ingredient> findAll() {
-        return new ArrayList<>(database);
+        return database.values();
+    }
+
+    public int count() {
+        return database.size();
     }
 
     public Optional<Ingredient> findById(String id) {
-        synchronized (database) {
-            return database.stream().filter(i -> i.getId().equals(id)).findFirst();
+        return database.findById(id);
+    }
+
+    public Ingredient save(Ingredient ingredient) {
+        lock.lock();
+        try {
+            // L'ID sert de clé d'index : génération côté serveur pour un nouvel ingrédient
+            if (ingredient.getId() == null || ingredient.getId().isEmpty()) {
+                ingredient.setId(UUID.randomUUID().toString());
+            }
+            database.upsert(ingredient);
+            flusher.markDirty(FLUSH_NAME);
+            return ingredient;
+        } finally {
+            lock.unlock();
         }
     }
 
-    public synchronized Ingredient save(Ingredient ingredient) {
-        database.removeIf(i -> i.getId().equals(ingredient.getId()));
-        database.add(ingredient);
-        saveToFile();
-        return ingredient;
+    /**
+     * Enregistre plusieurs ingrédients en une seule mutation (ex : consommation d'une commande).
+     */
+    public void saveAll(Collection<Ingredient> ingredients) {
+        lock.lock();
+        try {
+            database.upsertAll(ingredients);
+            flusher.markDirty(FLUSH_NAME);
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public synchronized void deleteById(String id) {
-        boolean removed = database.removeIf(i -> i.getId().equals(id));
-        if (removed) {
-            saveToFile();
+    public void deleteById(String id) {
+        lock.lock();
+        try {
+            boolean removed = database.remove(id).isPresent();
+            if (removed) {
+                flusher.markDirty(FLUSH_NAME);
+            }
+        } finally {
+            lock.unlock();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,340 @@
+package com.esgi.pizzeria.repository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Journal en ajout seul (append-only) au format NDJSON : un enregistrement JSON par ligne.
+ * <p>
+ * Chaque écriture coûte O(1) quelle que soit la taille de l'historique : on ajoute une ligne
+ * en fin de fichier au lieu de réécrire tout le contenu. Le journal est rejoué au démarrage
+ * puis vidé lors de la compaction dans le snapshot.
+ * </p>
+ * <p>
+ * ROBUSTESSE : une fin de fichier tronquée (coupure pendant l'écriture : dernier fragment sans fin de
+ * ligne) est ignorée au rejeu, puis coupée du fichier : le prochain enregistrement commence sur une ligne
+ * neuve au lieu de se fondre dans le fragment. Une ligne complète illisible n'est jamais coupée : elle est
+ * déplacée dans {@code <journal>.rejected} pour examen.
+ * </p>
+ * <p>
+ * La première ligne est l'en-tête de version {@code {"schemaVersion":n}} ({@link SchemaMigrations}) : les enregistrements d'un journal
+ * antérieur sont migrés au rejeu, et {@link #isOutdated()} signale qu'il faut le compacter.
+ * </p>
+ *
+ * @param <T> Type des enregistrements journalisés.
+ */
+class JsonJournal<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonJournal.class);
+
+    private final File file;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader reader;
+    private final SchemaMigrations schema;
+
+    private FileOutputStream stream;
+    private Writer writer;
+    private int size;
+    // Le dernier rejeu contenait des enregistrements d'une version antérieure du schéma
+    private boolean outdated;
+
+    // Verrou explicite plutôt que synchronized : un thread virtuel bloqué sur un fsync
+    // libère son thread porteur au lieu de l'immobiliser
+    private final ReentrantLock lock = new ReentrantLock();
+
+    JsonJournal(String path, Class<T> type, ObjectMapper objectMapper, SchemaMigrations schema) {
+        this.file = new File(path);
+        this.objectMapper = objectMapper;
+        this.reader = objectMapper.readerFor(type);
+        this.schema = schema;
+    }
+
+    /**
+     * Rejoue le journal dans l'ordre d'écriture.
+     * <p>
+     * Une ligne complète (terminée par une fin de ligne) mais illisible est déplacée dans
+     * {@code <journal>.rejected} : copiée et forcée sur disque, puis retirée du journal par la
+     * compaction demandée via {@link #isOutdated()}. Seul un fragment final sans fin de ligne et
+     * illisible (écriture interrompue) est coupé du fichier, après avoir été copié de la même façon.
+     * </p>
+     *
+     * @param consumer Reçoit chaque enregistrement valide.
+     * @return Nombre d'enregistrements rejoués.
+     */
+    int replay(Consumer<T> consumer) {
+        lock.lock();
+        try {
+            size = 0;
+            outdated = false;
+            if (!file.exists()) return 0;
+
+            // Position (en octets) de la fin de la dernière ligne terminée par une fin de ligne
+            long terminatedEnd = 0;
+            long length = 0;
+            boolean fragment = false;
+            int version = 0;
+            ByteArrayOutputStream rejected = new ByteArrayOutputStream();
+            int rejectedLines = 0;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()))) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                long position = 0;
+                int lineNumber = 0;
+                boolean eof = false;
+                while (!eof) {
+                    buffer.reset();
+                    int b;
+                    while ((b = in.read()) != -1 && b != '\n') buffer.write(b);
+                    eof = b == -1;
+                    if (eof && buffer.size() == 0) break;
+                    position += buffer.size() + (eof ? 0 : 1);
+                    if (!eof) terminatedEnd = position;
+                    lineNumber++;
+
+                    String line = buffer.toString(StandardCharsets.UTF_8);
+                    if (line.isBlank()) continue;
+                    if (lineNumber == 1) {
+                        // Pas d'en-tête : journal écrit avant la gestion des versions (version 0)
+                        int header = header(line);
+                        if (header >= 0) {
+                            version = header;
+                            continue;
+                        }
+                    }
+                    try {
+                        consumer.accept(schema.readRecord(line, version, reader));
+                        size++;
+                    } catch (IOException e) {
+                        buffer.writeTo(rejected);
+                        rejected.write('\n');
+                        if (eof) {
+                            fragment = true;
+                            logger.warn("Journal {} : fin de fichier tronquée (ligne {}) mise de côté ({})",
+                                    file.getName(), lineNumber, e.getMessage());
+                        } else {
+                            rejectedLines++;
+                            logger.warn("Journal {} : ligne {} illisible mise de côté ({})",
+                                    file.getName(), lineNumber, e.getMessage());
+                        }
+                    }
+                }
+                length = position;
+            } catch (IOException e) {
+                logger.error("Erreur lecture journal {}", file.getName(), e);
+                return size;
+            }
+
+            // Rien n'est retiré du journal tant que sa copie n'est pas sur disque
+            if (rejected.size() > 0 && !saveRejected(rejected)) return size;
+            if (fragment) {
+                cutTail(terminatedEnd, length);
+            }
+            // Version antérieure ou lignes mises de côté : compaction avant tout nouvel ajout
+            outdated = (size > 0 && version < schema.currentVersion()) || rejectedLines > 0;
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ajoute les lignes illisibles en fin de {@code <journal>.rejected} et force l'écriture sur disque.
+     *
+     * @return false si la copie a échoué : le journal doit alors rester intact.
+     */
+    private boolean saveRejected(ByteArrayOutputStream rejected) {
+        File target = rejectedFile();
+        try (FileOutputStream out = new FileOutputStream(target, true)) {
+            rejected.writeTo(out);
+            out.getFD().sync();
+            logger.warn("Journal {} : ligne(s) illisible(s) copiée(s) dans {}.", file.getName(), target.getName());
+            return true;
+        } catch (IOException e) {
+            logger.error("Journal {} : copie des lignes illisibles dans {} impossible, journal laissé intact",
+                    file.getName(), target.getName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * @return Fichier où sont déplacées les lignes illisibles du journal.
+     */
+    File rejectedFile() {
+        return new File(file.getPath() + ".rejected");
+    }
+
+    /**
+     * Coupe le fragment final illisible (sans fin de ligne), avant tout nouvel ajout.
+     */
+    private void cutTail(long validEnd, long length) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(validEnd);
+            channel.force(true);
+            logger.warn("Journal {} : {} octet(s) de fin tronquée supprimé(s).",
+                    file.getName(), length - validEnd);
+        } catch (IOException e) {
+            // Le prochain ajout commencera tout de même sur une ligne neuve (voir openWriter)
+            logger.error("Journal {} : impossible de couper la fin tronquée", file.getName(), e);
+        }
+    }
+
+    /**
+     * Version indiquée par la première ligne, -1 si ce n'est pas un en-tête.
+     * Un journal plus récent que l'application interrompt le chargement : le compacter le perdrait.
+     */
+    private int header(String line) {
+        try {
+            return schema.parseHeader(line);
+        } catch (IOException e) {
+            throw new IllegalStateException("Journal " + file.getName() + " illisible : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return true si le dernier rejeu contenait des enregistrements d'une version antérieure du schéma, ou
+     * des lignes illisibles mises de côté : le journal doit être compacté avant d'y ajouter des enregistrements.
+     */
+    boolean isOutdated() {
+        lock.lock();
+        try {
+            return outdated;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ajoute un enregistrement en fin de journal (dans le tampon mémoire).
+     * L'écriture sur disque est garantie par {@link #sync()}.
+     */
+    void append(T record) throws IOException {
+        lock.lock();
+        try {
+            Writer out = openWriter();
+            out.write(objectMapper.writeValueAsString(record));
+            out.write('\n');
+            size++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ajoute plusieurs enregistrements en une seule écriture (lot de commandes).
+     */
+    void appendAll(Collection<T> records) throws IOException {
+        lock.lock();
+        try {
+            StringBuilder lines = new StringBuilder();
+            for (T record : records) {
+                lines.append(objectMapper.writeValueAsString(record)).append('\n');
+            }
+            openWriter().write(lines.toString());
+            size += records.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Vide le tampon et force l'écriture physique (fsync) des enregistrements ajoutés.
+     */
+    void sync() throws IOException {
+        lock.lock();
+        try {
+            if (writer == null) return;
+            writer.flush();
+            stream.getFD().sync();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Vide le journal (appelé une fois son contenu intégré au snapshot).
+     */
+    void truncate() throws IOException {
+        lock.lock();
+        try {
+            close();
+            if (file.getParentFile() != null) file.getParentFile().mkdirs();
+            Files.write(file.toPath(), new byte[0]);
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Nombre d'enregistrements présents dans le journal depuis la dernière compaction.
+     */
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            if (writer == null) return;
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.warn("Fermeture du journal {} impossible : {}", file.getName(), e.getMessage());
+            }
+            writer = null;
+            stream = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Writer openWriter() throws IOException {
+        if (writer == null) {
+            if (file.getParentFile() != null) file.getParentFile().mkdirs();
+            boolean unterminated = endsWithoutNewline();
+            stream = new FileOutputStream(file, true);
+            writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+            // Journal neuf ou vidé : l'en-tête de version en première ligne
+            if (file.length() == 0) {
+                writer.write(schema.header());
+            } else if (unterminated) {
+                // Dernière ligne sans fin de ligne : ne jamais y accoler le prochain enregistrement
+                writer.write('\n');
+            }
+        }
+        return writer;
+    }
+
+    private boolean endsWithoutNewline() throws IOException {
+        if (!file.exists() || file.length() == 0) return false;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(raf.length() - 1);
+            return raf.read() != '\n';
+        }
+    }
+}
@@ -1,74 +1,484 @@
 package com.esgi.pizzeria.repository;
 
 import com.esgi.pizzeria.domain.Order;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
+/**
+ * Repository de l'historique des commandes.
+ * <p>
+ * PERSISTANCE : snapshot 'orders.json' + journal en ajout seul 'orders.journal' (NDJSON).
+ * Le snapshot est doublé d'une copie binaire 'orders.smile', lue au démarrage à la place du JSON
+ * (voir {@link SnapshotStore}).
+ * Chaque nouvelle commande est ajoutée au journal en O(1) ; le snapshot complet n'est réécrit
+ * que lors de la compaction, tous les {@value #COMPACTION_THRESHOLD} enregistrements.
+ * Au démarrage, on charge le snapshot puis on rejoue le journal.
+ * </p>
+ * <p>
+ * L'écriture physique du journal (fsync) est regroupée par le {@link WriteBehindFlusher} ;
+ * {@link #flush()} sert de barrière durable pour l'encaissement.
+ * </p>
+ * <p>
+ * Un index chronologique ({@link OrderTimeIndex}) sert les requêtes par plage de dates
+ * et la pagination par curseur sans copier l'historique.
+ * </p>
+ * <p>
+ * HISTORIQUE PAR NIVEAUX : seules les {@code pizzeria.orders.hot-days} dernières journées restent en mémoire
+ * (snapshot + journal ci-dessus). Les journées plus anciennes sont scellées, une fois pour toutes, dans un
+ * segment par jour ({@link OrderSegmentStore}) relu à la demande. Recherche par ID, pagination, parcours
+ * par plage et comptage couvrent les deux niveaux de façon transparente.
+ * </p>
+ */
 @Repository
 public class JsonOrderRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(JsonOrderRepository.class);
-    private static final String FILE_PATH = "Backend/data/orders.json";
+    static final String FILE_PATH = "Backend/data/orders.json";
+    static final String JOURNAL_PATH = "Backend/data/orders.journal";
+    static final String SEGMENTS_PATH = "Backend/data/orders";
+    private static final String FLUSH_NAME = "orders";
+    // Version du snapshot et du journal, migrations numérotées (aucune à ce jour)
+    private static final SchemaMigrations SCHEMA = new SchemaMigrations(FLUSH_NAME);
+
+    // Nombre d'enregistrements journalisés au-delà duquel on compacte dans le snapshot
+    private static final int COMPACTION_THRESHOLD = 1000;
+
+    // Borne basse des commandes scellables : les commandes sans date lisible (LocalDateTime.MIN) restent en mémoire
+    private static final LocalDateTime SEALABLE_FROM = LocalDateTime.MIN.plusNanos(1);
     
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Mapper de persistance : écrit aussi les champs internes masqués à l'API (clé d'idempotence)
+    private final ObjectMapper objectMapper = new ObjectMapper().addMixIn(Order.class, OrderPersistenceMixIn.class);
+    private final JsonJournal<Order> journal = new JsonJournal<>(JOURNAL_PATH, Order.class, objectMapper, SCHEMA);
+    private final SnapshotStore<Order> snapshot;
+    private final WriteBehindFlusher flusher;
     
-    // CORRECTION : Ajout de 'final'
-    private final List<Order> database = Collections.synchronizedList(new ArrayList<>());
+    // Index par ID ordonné par insertion : recherche et upsert en O(1)
+    private final IdIndex<Order> database = new IdIndex<>(Order::getId);
+    private final OrderTimeIndex timeIndex = new OrderTimeIndex();
+    private final OrderSegmentStore segments;
+    private final int hotDays;
+
+    // Sérialise les écritures (journal, compaction). Verrou explicite plutôt que synchronized :
+    // un thread virtuel en attente d'E/S disque libère son thread porteur
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    // Parcours multi-niveaux (lecture) contre retrait des journées scellées de la mémoire (écriture) :
+    // un parcours en cours ne voit jamais une commande disparaître des deux niveaux à la fois
+    private final ReentrantReadWriteLock tierLock = new ReentrantReadWriteLock();
+
+    // Le journal n'a pas pu être écrit : le prochain flush doit réécrire le snapshot complet
+    private volatile boolean snapshotRequired = false;
+
+    // Commandes scellées dont le retrait de la mémoire attend la fin d'un parcours en cours
+    private volatile List<Order> sealedInMemory = List.of();
 
-    @PostConstruct
+    public JsonOrderRepository(WriteBehindFlusher flusher,
+                               @Value("${pizzeria.persistence.binary-snapshot.enabled:false}") boolean binarySnapshot,
+                               @Value("${pizzeria.orders.hot-days:7}") int hotDays,
+                               @Value("${pizzeria.orders.segments.compress:true}") boolean compressSegments,
+                               @Value("${pizzeria.orders.segment-cache-mb:64}") long segmentCacheMb) {
+        if (hotDays < 1) {
+            throw new IllegalArgumentException("pizzeria.orders.hot-days doit valoir au moins 1 (journée en cours)");
+        }
+        this.flusher = flusher;
+        this.hotDays = hotDays;
+        this.snapshot = new SnapshotStore<>(FILE_PATH, Order.class, objectMapper, SCHEMA, binarySnapshot);
+        this.segments = new OrderSegmentStore(SEGMENTS_PATH, objectMapper, SCHEMA, compressSegments,
+                segmentCacheMb * 1024 * 1024);
+        flusher.register(FLUSH_NAME, this::flushToDisk);
+    }
+
+    /**
+     * Recensement des segments, chargement du snapshot puis rejeu du journal, appelé en arrière-plan par
+     * {@link com.esgi.pizzeria.config.DataBootstrap}. Les journées sorties de la fenêtre en mémoire depuis
+     * le dernier arrêt (ou tout l'historique d'un snapshot antérieur aux segments) sont ensuite scellées.
+     * <p>
+     * Le verrou d'écriture est tenu pendant tout le chargement : le {@link WriteBehindFlusher} ne peut pas
+     * compacter un historique partiel dans le snapshot.
+     * </p>
+     */
     public void init() {
-        File file = new File(FILE_PATH);
-        if (file.exists()) {
+        boolean rewrite = false;
+        writeLock.lock();
+        try {
             try {
-                List<Order> loaded = objectMapper.readValue(file, new TypeReference<List<Order>>() {});
-                database.clear();
-                database.addAll(loaded);
-                logger.info("{} commandes chargées en mémoire.", database.size());
+                segments.open();
             } catch (IOException e) {
-                logger.error("Erreur lecture commandes", e);
+                throw AtomicFile.unreadable(SEGMENTS_PATH, e);
             }
-        } else {
-            saveToFile();
+            if (snapshot.exists()) {
+                try {
+                    database.replaceAll(snapshot.load());
+                    logger.info("{} commandes chargées en mémoire.", database.size());
+                } catch (IOException e) {
+                    throw AtomicFile.unreadable(FILE_PATH, e);
+                }
+            } else {
+                snapshotRequired = true;
+                rewrite = true;
+            }
+
+            // Rejeu du journal : les commandes postérieures au dernier snapshot
+            int replayed = journal.replay(this::upsert);
+            if (replayed > 0) {
+                logger.info("{} commandes rejouées depuis le journal.", replayed);
+            }
+            // Journal d'une version antérieure, ou lignes illisibles déplacées dans le .rejected : compacté
+            // au premier flush, pour ne pas ajouter de commandes à la version courante ni garder ces lignes
+            if (journal.isOutdated()) {
+                snapshotRequired = true;
+                rewrite = true;
+            }
+
+            timeIndex.clear();
+            database.values().forEach(timeIndex::add);
+
+            if (sealColdDays()) rewrite = false;
+        } finally {
+            writeLock.unlock();
         }
+        if (rewrite) {
+            flusher.markDirty(FLUSH_NAME);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        journal.close();
     }
 
-    private synchronized void saveToFile() {
+    private void saveToFile() {
         try {
-            File file = new File(FILE_PATH);
-            if (file.getParentFile() != null) file.getParentFile().mkdirs();
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, database);
+            snapshot.write(database.values());
         } catch (IOException e) {
             logger.error("CRITIQUE : Impossible de sauvegarder la commande !", e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Barrière durable : au retour, toutes les commandes enregistrées sont sur disque.
+     */
+    public void flush() {
+        flusher.flush(FLUSH_NAME);
+    }
+
+    /**
+     * Action d'écriture appelée par le {@link WriteBehindFlusher} :
+     * fsync du journal, scellement des journées sorties de la fenêtre en mémoire (passage de minuit),
+     * puis compaction si le seuil est atteint.
+     */
+    private void flushToDisk() {
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            logger.error("CRITIQUE : Ecriture journal impossible, réécriture du snapshot.", e);
+            snapshotRequired = true;
+        }
+        if (sealColdDays()) return;
+        if (snapshotRequired || journal.size() >= COMPACTION_THRESHOLD) {
+            compact();
         }
     }
 
+    /**
+     * Tout l'historique par ordre chronologique, segments compris : coûteux sur un long historique,
+     * préférer {@link #findPage} ou {@link #forEachInRange}.
+     */
     public List<Order> findAll() {
-        return new ArrayList<>(database);
+        List<Order> orders = new ArrayList<>(count());
+        forEachInRange(null, null, orders::add);
+        return orders;
+    }
+
+    /**
+     * @return Nombre de commandes, en mémoire et scellées.
+     */
+    public int count() {
+        return (int) (database.size() + segments.count());
+    }
+
+    /**
+     * @return Début des journées conservées en mémoire (minuit, {@code hot-days - 1} jours avant aujourd'hui) :
+     * une plage qui commence ici ne relit aucun segment scellé.
+     */
+    private LocalDateTime hotWindowStart() {
+        return LocalDate.now().minusDays(hotDays - 1L).atStartOfDay();
+    }
+
+    /**
+     * @return Nombre de commandes des journées en mémoire.
+     */
+    public int hotCount() {
+        return database.size();
     }
 
+    /**
+     * Recherche en mémoire, puis dans les segments dont l'empreinte des IDs correspond.
+     * <p>
+     * Sans verrou : une journée scellée est publiée dans les segments avant d'être retirée de la mémoire.
+     * </p>
+     */
     public Optional<Order> findById(String id) {
-        synchronized (database) {
-            return database.stream()
-                    .filter(o -> o.getId().equals(id))
-                    .findFirst();
+        Optional<Order> hot = database.findById(id);
+        return hot.isPresent() ? hot : segments.findById(id);
+    }
+
+    /**
+     * Commandes de la plage [from, to[ par ordre chronologique, une page à la fois.
+     *
+     * @param from   Borne basse incluse (null = début de l'historique).
+     * @param to     Borne haute exclue (null = sans limite).
+     * @param cursor Curseur de la page précédente (null = première page).
+     * @param limit  Taille maximale de la page.
+     * @throws IllegalArgumentException si le curseur est invalide.
+     */
+    public OrderPage findPage(LocalDateTime from, LocalDateTime to, String cursor, int limit) {
+        OrderTimeIndex.Key after = cursor != null ? OrderTimeIndex.Key.decode(cursor) : null;
+        List<Order> items = new ArrayList<>(Math.min(limit, 256));
+        OrderTimeIndex.Key last = null;
+        tierLock.readLock().lock();
+        try {
+            Iterator<Map.Entry<OrderTimeIndex.Key, Order>> it = range(from, to, after, true);
+            while (it.hasNext() && items.size() < limit) {
+                Map.Entry<OrderTimeIndex.Key, Order> entry = it.next();
+                items.add(entry.getValue());
+                last = entry.getKey();
+            }
+            String nextCursor = (last != null && it.hasNext()) ? last.encode() : null;
+            return new OrderPage(items, nextCursor);
+        } finally {
+            tierLock.readLock().unlock();
         }
     }
 
-    public synchronized Order save(Order order) {
-        database.removeIf(o -> o.getId().equals(order.getId()));
-        database.add(order);
-        saveToFile();
+    /**
+     * Parcourt les commandes de la plage [from, to[ par ordre chronologique, sans copie
+     * de l'historique : mémoire constante quelle que soit la taille de la plage (une journée scellée
+     * à la fois, relue sans passer par le cache des segments).
+     * <p>
+     * Le parcours est faiblement cohérent : une commande enregistrée pendant l'itération
+     * peut être vue ou non, mais aucune n'est vue deux fois.
+     * </p>
+     *
+     * @param from   Borne basse incluse (null = début de l'historique).
+     * @param to     Borne haute exclue (null = sans limite).
+     * @param action Reçoit chaque commande ; ne doit pas modifier le repository.
+     */
+    public void forEachInRange(LocalDateTime from, LocalDateTime to, Consumer<Order> action) {
+        tierLock.readLock().lock();
+        try {
+            Iterator<Map.Entry<OrderTimeIndex.Key, Order>> it = range(from, to, null, false);
+            while (it.hasNext()) {
+                action.accept(it.next().getValue());
+            }
+        } finally {
+            tierLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Taille JSON décompressée des segments en cache (octets).
+     */
+    public long segmentCacheBytes() {
+        return segments.cachedBytes();
+    }
+
+    public long segmentCacheHits() {
+        return segments.cacheHits();
+    }
+
+    public long segmentCacheMisses() {
+        return segments.cacheMisses();
+    }
+
+    /**
+     * Fusion chronologique des deux niveaux. Une commande encore en mémoire masque sa copie scellée
+     * (scellement interrompu avant le retrait de la mémoire). Appelé sous {@code tierLock} en lecture.
+     */
+    private Iterator<Map.Entry<OrderTimeIndex.Key, Order>> range(LocalDateTime from, LocalDateTime to,
+                                                                 OrderTimeIndex.Key after, boolean cache) {
+        Iterator<Map.Entry<OrderTimeIndex.Key, Order>> hot = timeIndex.range(from, to, after).entrySet().iterator();
+        if (segments.segmentCount() == 0) return hot;
+        Iterator<Map.Entry<OrderTimeIndex.Key, Order>> cold = segments.range(from, to, after, cache);
+        return new Iterator<>() {
+            private Map.Entry<OrderTimeIndex.Key, Order> nextHot;
+            private Map.Entry<OrderTimeIndex.Key, Order> nextCold;
+
+            @Override
+            public boolean hasNext() {
+                if (nextHot == null && hot.hasNext()) nextHot = hot.next();
+                while (nextCold == null && cold.hasNext()) {
+                    Map.Entry<OrderTimeIndex.Key, Order> candidate = cold.next();
+                    if (!database.containsId(candidate.getKey().id())) nextCold = candidate;
+                }
+                return nextHot != null || nextCold != null;
+            }
+
+            @Override
+            public Map.Entry<OrderTimeIndex.Key, Order> next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                Map.Entry<OrderTimeIndex.Key, Order> result;
+                if (nextCold == null || (nextHot != null && nextHot.getKey().compareTo(nextCold.getKey()) <= 0)) {
+                    result = nextHot;
+                    nextHot = null;
+                } else {
+                    result = nextCold;
+                    nextCold = null;
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Enregistre une commande en l'ajoutant au journal (O(1)).
+     * L'écriture disque est différée : appeler {@link #flush()} si elle doit être garantie.
+     */
+    public Order save(Order order) {
+        writeLock.lock();
+        try {
+            upsert(order);
+            try {
+                journal.append(order);
+            } catch (IOException e) {
+                // Le journal est indisponible : on retombe sur une réécriture complète du snapshot
+                logger.error("CRITIQUE : Ecriture journal impossible, réécriture du snapshot.", e);
+                snapshotRequired = true;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        flusher.markDirty(FLUSH_NAME);
         return order;
     }
+
+    /**
+     * Enregistre un lot de commandes en une seule écriture dans le journal.
+     * L'écriture disque est différée : appeler {@link #flush()} si elle doit être garantie.
+     */
+    public List<Order> saveAll(List<Order> orders) {
+        if (orders.isEmpty()) return orders;
+        writeLock.lock();
+        try {
+            orders.forEach(this::upsert);
+            try {
+                journal.appendAll(orders);
+            } catch (IOException e) {
+                logger.error("CRITIQUE : Ecriture journal impossible, réécriture du snapshot.", e);
+                snapshotRequired = true;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        flusher.markDirty(FLUSH_NAME);
+        return orders;
+    }
+
+    private void upsert(Order order) {
+        database.upsert(order);
+        timeIndex.add(order);
+    }
+
+    /**
+     * Scelle les journées antérieures à la fenêtre en mémoire : chacune est écrite dans son segment
+     * (fusionnée avec un segment existant), puis retirée de la mémoire et le snapshot compacté.
+     * <p>
+     * Une coupure à n'importe quelle étape est sans danger : tant que le snapshot n'est pas réécrit, les
+     * commandes restent aussi en mémoire au redémarrage, et un nouveau scellement (idempotent) les reprend.
+     * Si un parcours est en cours, le retrait de la mémoire est reporté au flush suivant.
+     * </p>
+     *
+     * @return true si le snapshot a été compacté.
+     */
+    private boolean sealColdDays() {
+        LocalDateTime cutoff = hotWindowStart();
+        if (sealedInMemory.isEmpty() && timeIndex.range(SEALABLE_FROM, cutoff, null).isEmpty()) return false;
+
+        writeLock.lock();
+        try {
+            if (sealedInMemory.isEmpty()) {
+                Map<LocalDate, List<Order>> byDay = new TreeMap<>();
+                for (Map.Entry<OrderTimeIndex.Key, Order> entry : timeIndex.range(SEALABLE_FROM, cutoff, null).entrySet()) {
+                    byDay.computeIfAbsent(entry.getKey().date().toLocalDate(), day -> new ArrayList<>()).add(entry.getValue());
+                }
+                List<Order> sealed = new ArrayList<>();
+                for (Map.Entry<LocalDate, List<Order>> day : byDay.entrySet()) {
+                    try {
+                        segments.seal(day.getKey(), day.getValue());
+                        sealed.addAll(day.getValue());
+                    } catch (IOException e) {
+                        // Journée gardée en mémoire, nouvel essai au prochain flush
+                        logger.error("Scellement de l'historique du {} impossible.", day.getKey(), e);
+                    }
+                }
+                if (sealed.isEmpty()) return false;
+                sealedInMemory = sealed;
+            }
+
+            if (!tierLock.writeLock().tryLock()) {
+                logger.debug("Parcours de l'historique en cours : retrait des journées scellées reporté.");
+                return false;
+            }
+            int removed = 0;
+            try {
+                for (Order order : sealedInMemory) {
+                    // Commande réenregistrée depuis le scellement : gardée en mémoire, scellée au prochain passage
+                    if (database.findById(order.getId()).orElse(null) != order) continue;
+                    database.remove(order.getId());
+                    timeIndex.remove(order.getId());
+                    removed++;
+                }
+                sealedInMemory = List.of();
+            } finally {
+                tierLock.writeLock().unlock();
+            }
+            logger.info("{} commandes scellées dans l'historique sur disque ({} journée(s)) ; {} en mémoire.",
+                    removed, segments.segmentCount(), database.size());
+            compact();
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Intègre le journal dans le snapshot puis le vide.
+     * Une coupure entre les deux étapes est sans danger : le rejeu est idempotent (upsert par ID).
+     */
+    private void compact() {
+        writeLock.lock();
+        try {
+            saveToFile();
+            snapshotRequired = false;
+            try {
+                journal.truncate();
+                logger.info("Compaction du journal des commandes : {} commandes dans le snapshot.", database.size());
+            } catch (IOException e) {
+                logger.error("Impossible de vider le journal des commandes", e);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
 }
\ No newline at end of file
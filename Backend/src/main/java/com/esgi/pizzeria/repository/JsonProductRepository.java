@@ -4,88 +4,131 @@ import com.esgi.pizzeria.domain.Dish;
 import com.esgi.pizzeria.domain.Product;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.annotation.PostConstruct;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Repository
 public class JsonProductRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(JsonProductRepository.class);
-    private static final String FILE_PATH = "Backend/data/pizzeria-data.json";
+    static final String FILE_PATH = "Backend/data/pizzeria-data.json";
+    private static final String FLUSH_NAME = "products";
+    private static final TypeReference<List<Product>> PRODUCT_LIST = new TypeReference<>() {};
+    // Version du fichier et migrations numérotées : chacune n'est exécutée qu'une fois par fichier
+    private static final SchemaMigrations SCHEMA = new SchemaMigrations(FLUSH_NAME)
+            .add(1, "stock par défaut", JsonProductRepository::defaultStock)
+            .add(2, "catégorie POS déduite", JsonProductRepository::defaultCategory);
     
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectReader productReader = objectMapper.readerFor(Product.class);
+    private final AtomicFile file = new AtomicFile(FILE_PATH);
+    private final WriteBehindFlusher flusher;
     
-    // CORRECTION : Ajout de 'final'
-    private final List<Product> database = Collections.synchronizedList(new ArrayList<>());
+    // Index par ID ordonné par insertion : recherche, mise à jour et suppression en O(1)
+    private final IdIndex<Product> database = new IdIndex<>(Product::getId);
+    // Sérialise les mutations du catalogue et des stocks
+    private final ReentrantLock lock = new ReentrantLock();
 
-    @PostConstruct
+    // Version du catalogue : incrémentée à chaque ajout, modification ou suppression de produit
+    // (pas lors des mises à jour de stock), pour invalider les données dérivées (recettes...)
+    private final AtomicLong version = new AtomicLong();
+
+    // Révision du contenu : incrémentée à chaque mutation, stocks compris (invalide l'instantané de l'API)
+    private final AtomicLong revision = new AtomicLong();
+    private volatile CatalogSnapshot snapshot;
+    // Verrou dédié : le rendu ne bloque pas les mutations
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    public JsonProductRepository(WriteBehindFlusher flusher) {
+        this.flusher = flusher;
+        flusher.register(FLUSH_NAME, this::saveToFile);
+    }
+
+    /**
+     * Chargement du fichier au démarrage, appelé par {@link com.esgi.pizzeria.config.DataBootstrap}
+     * (en parallèle des autres repositories).
+     */
     public void init() {
-        File file = new File(FILE_PATH);
-        if (file.exists()) {
-            try {
-                List<Product> loaded = objectMapper.readValue(file, new TypeReference<List<Product>>() {});
-                database.clear();
-                database.addAll(loaded);
+        try {
+            SchemaMigrations.Loaded<List<Product>> loaded = file.read(content -> SCHEMA.readList(content, productReader));
+            if (loaded != null) {
+                database.replaceAll(loaded.value());
+                if (loaded.outdated()) flusher.markDirty(FLUSH_NAME);
                 logger.info("{} produits chargés.", database.size());
-            } catch (IOException e) {
-                logger.error("Erreur lecture catalogue produits", e);
             }
+        } catch (IOException e) {
+            // Jamais de catalogue par défaut par-dessus un fichier existant mais illisible
+            throw AtomicFile.unreadable(FILE_PATH, e);
         }
 
         if (database.isEmpty()) {
             seedData();
         }
+    }
 
-        // MIGRATION : initialise le stock pour les produits qui n'en ont pas encore
-        // (stock == null = champ absent du JSON existant, jamais initialisé)
-        boolean migrated = false;
-        synchronized (database) {
-            for (Product p : database) {
-                if (p.getStock() == null) {
-                    // Plats : 20 portions par défaut. Boissons : 50 unités.
-                    p.setStock(p instanceof Dish ? 20 : 50);
-                    migrated = true;
-                }
-            }
+    /**
+     * MIGRATION v1 : initialise le stock des produits qui n'en ont pas encore
+     * (champ absent du JSON existant, jamais initialisé). Plats : 20 portions par défaut. Boissons : 50 unités.
+     */
+    private static void defaultStock(ObjectNode product) {
+        if (!product.hasNonNull("stock")) {
+            product.put("stock", defaultStock(isDish(product)));
         }
-        if (migrated) {
-            saveToFile();
-            logger.info("Migration stock : valeurs par défaut appliquées aux produits existants.");
+    }
+
+    /**
+     * MIGRATION v2 : déduit la catégorie POS des produits qui n'en ont pas encore.
+     */
+    private static void defaultCategory(ObjectNode product) {
+        if (!product.hasNonNull("category")) {
+            product.put("category", inferCategory(product.path("id").asText(""), product.path("name").asText(""), isDish(product)));
         }
+    }
 
-        // MIGRATION : initialise la catégorie pour les produits qui n'en ont pas encore
-        boolean categoryMigrated = false;
-        synchronized (database) {
-            for (Product p : database) {
-                if (p.getCategory() == null) {
-                    p.setCategory(inferCategory(p));
-                    categoryMigrated = true;
-                }
-            }
+    /**
+     * Valeurs par défaut d'un produit enregistré sans stock ou sans catégorie (API d'administration) :
+     * mêmes règles que les migrations v1 et v2, qui ne s'exécutent qu'une fois par fichier.
+     */
+    public static void applyDefaults(Product product) {
+        boolean dish = product instanceof Dish;
+        if (product.getStock() == null) {
+            product.setStock(defaultStock(dish));
         }
-        if (categoryMigrated) {
-            saveToFile();
-            logger.info("Migration catégories : catégories déduites pour les produits existants.");
+        if (product.getCategory() == null || product.getCategory().isBlank()) {
+            product.setCategory(inferCategory(product.getId() != null ? product.getId() : "",
+                    product.getName() != null ? product.getName() : "", dish));
         }
     }
 
+    private static int defaultStock(boolean dish) {
+        return dish ? 20 : 50;
+    }
+
+    private static boolean isDish(ObjectNode product) {
+        return "DISH".equals(product.path("type").asText());
+    }
+
     /**
      * Déduit la catégorie POS d'un produit à partir de son ID et de son nom.
-     * Utilisé uniquement lors de la migration initiale.
+     * Utilisé par la migration v2 et {@link #applyDefaults(Product)}.
      */
-    private static String inferCategory(Product product) {
-        String id   = product.getId()   != null ? product.getId().toUpperCase()   : "";
-        String name = product.getName() != null ? product.getName().toUpperCase() : "";
+    private static String inferCategory(String rawId, String rawName, boolean dish) {
+        String id   = rawId.toUpperCase();
+        String name = rawName.toUpperCase();
 
         if (id.startsWith("PIZ"))     return "PIZZA";
         if (id.startsWith("PASTA"))   return "PASTA";
@@ -101,16 +144,17 @@ public class JsonProductRepository {
             return "WINE_RED"; // rouge par défaut pour les vins non classifiés
         }
         if (id.startsWith("APERITIF") || id.startsWith("APERO")) return "APERITIF";
-        return product instanceof Dish ? "DISH" : "DRINK";
+        return dish ? "DISH" : "DRINK";
     }
 
     private void seedData() {
         logger.info("Importation du catalogue par défaut...");
         try (InputStream inputStream = getClass().getResourceAsStream("/initial-products.json")) {
             if (inputStream != null) {
-                List<Product> seeds = objectMapper.readValue(inputStream, new TypeReference<List<Product>>() {});
-                database.addAll(seeds);
-                saveToFile();
+                // Fichier de référence non versionné (tableau nu) : les migrations complètent les champs absents (stock)
+                List<Product> seeds = SCHEMA.<Product>readList(ByteBuffer.wrap(inputStream.readAllBytes()), productReader).value();
+                database.upsertAll(seeds);
+                flusher.markDirty(FLUSH_NAME);
                 logger.info("Catalogue initialisé avec {} produits.", seeds.size());
             } else {
                 logger.error("Fichier seed 'initial-products.json' manquant !");
@@ -120,34 +164,114 @@ public class JsonProductRepository {
         }
     }
 
-    private synchronized void saveToFile() {
+    /**
+     * Écriture complète du fichier, appelée par le {@link WriteBehindFlusher}.
+     * Le type de liste est explicite : sans lui, Jackson n'écrit pas le champ polymorphe
+     * "type" (DISH/DRINK) et le fichier devient illisible au redémarrage.
+     */
+    private void saveToFile() {
         try {
-            File file = new File(FILE_PATH);
-            if (file.getParentFile() != null) file.getParentFile().mkdirs();
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, database);
+            List<Product> products = findAll();
+            file.write(SCHEMA.writer(objectMapper.writerFor(PRODUCT_LIST).withDefaultPrettyPrinter(), products));
         } catch (IOException e) {
             logger.error("Erreur sauvegarde catalogue", e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Barrière durable : force l'écriture sur disque des mutations en attente.
+     */
+    public void flush() {
+        flusher.flush(FLUSH_NAME);
+    }
+
+    public List<Product> findAll() { return database.values(); }
+
+    public int count() { return database.size(); }
+
+    /**
+     * Instantané pré-rendu du catalogue, reconstruit au plus une fois par mutation
+     * (à la première lecture qui suit).
+     */
+    public CatalogSnapshot getSnapshot() {
+        CatalogSnapshot current = snapshot;
+        if (current != null && current.getRevision() == revision.get()) return current;
+        snapshotLock.lock();
+        try {
+            current = snapshot;
+            long rev = revision.get();
+            if (current != null && current.getRevision() == rev) return current;
+            try {
+                current = new CatalogSnapshot(rev, objectMapper.writerFor(PRODUCT_LIST).writeValueAsBytes(findAll()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            snapshot = current;
+            return current;
+        } finally {
+            snapshotLock.unlock();
         }
     }
 
-    public List<Product> findAll() { return new ArrayList<>(database); }
+    /**
+     * @return Version courante du catalogue (change à chaque save ou suppression de produit).
+     */
+    public long getVersion() {
+        return version.get();
+    }
 
     public Optional<Product> findById(String id) {
-        synchronized (database) {
-            return database.stream().filter(p -> p.getId().equals(id)).findFirst();
+        return database.findById(id);
+    }
+
+    public Product save(Product product) {
+        lock.lock();
+        try {
+            // L'ID sert de clé d'index : génération côté serveur pour un nouveau produit
+            if (product.getId() == null || product.getId().isEmpty()) {
+                product.setId(UUID.randomUUID().toString());
+            }
+            database.upsert(product);
+            version.incrementAndGet();
+            markChanged();
+            return product;
+        } finally {
+            lock.unlock();
         }
     }
 
-    public synchronized Product save(Product product) {
-        database.removeIf(p -> p.getId().equals(product.getId()));
-        database.add(product);
-        saveToFile();
-        return product;
+    /**
+     * Enregistre plusieurs produits en une seule mutation (ex : stocks d'une commande entière).
+     * Réservé aux mises à jour de stock : la version du catalogue n'est pas modifiée.
+     */
+    public void saveAll(Collection<Product> products) {
+        lock.lock();
+        try {
+            database.upsertAll(products);
+            markChanged();
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public synchronized void deleteById(String id) {
-        if (database.removeIf(p -> p.getId().equals(id))) {
-            saveToFile();
+    public void deleteById(String id) {
+        lock.lock();
+        try {
+            if (database.remove(id).isPresent()) {
+                version.incrementAndGet();
+                markChanged();
+            }
+        } finally {
+            lock.unlock();
         }
     }
+
+    /**
+     * Mutation en mémoire : fichier à réécrire et instantané de l'API à régénérer.
+     */
+    private void markChanged() {
+        revision.incrementAndGet();
+        flusher.markDirty(FLUSH_NAME);
+    }
 }
\ No newline at end of file
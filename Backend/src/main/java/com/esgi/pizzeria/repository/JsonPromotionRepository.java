@@ -0,0 +1,153 @@
+package com.esgi.pizzeria.repository;
+
+import com.esgi.pizzeria.domain.PromotionRule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Repository des règles de promotion ('promotions.json').
+ * <p>
+ * Au premier démarrage, les règles par défaut sont importées depuis 'initial-promotions.json' :
+ * la remise automatique de 5% au-delà de 20€, active, et des exemples désactivés de chaque type.
+ * </p>
+ */
+@Repository
+public class JsonPromotionRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonPromotionRepository.class);
+    static final String FILE_PATH = "Backend/data/promotions.json";
+    private static final String FLUSH_NAME = "promotions";
+    // Version du fichier et migrations numérotées (aucune à ce jour)
+    private static final SchemaMigrations SCHEMA = new SchemaMigrations(FLUSH_NAME);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicFile file = new AtomicFile(FILE_PATH);
+    private final WriteBehindFlusher flusher;
+
+    // Index par ID ordonné par insertion
+    private final IdIndex<PromotionRule> database = new IdIndex<>(PromotionRule::getId);
+    // Mutation et changement de version indissociables
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Version des règles : incrémentée à chaque mutation, pour recompiler le plan d'évaluation
+    private final AtomicLong version = new AtomicLong();
+
+    public JsonPromotionRepository(WriteBehindFlusher flusher) {
+        this.flusher = flusher;
+        flusher.register(FLUSH_NAME, this::saveToFile);
+    }
+
+    /**
+     * Chargement du fichier au démarrage, appelé par {@link com.esgi.pizzeria.config.DataBootstrap}
+     * (en parallèle des autres repositories).
+     */
+    public void init() {
+        boolean exists;
+        try {
+            SchemaMigrations.Loaded<List<PromotionRule>> loaded = file.read(content ->
+                    SCHEMA.readList(content, objectMapper.readerFor(PromotionRule.class)));
+            exists = loaded != null;
+            if (exists) {
+                database.replaceAll(loaded.value());
+                if (loaded.outdated()) flusher.markDirty(FLUSH_NAME);
+                logger.info("{} règles de promotion chargées.", database.size());
+            }
+        } catch (IOException e) {
+            // Jamais de règles par défaut par-dessus un fichier existant mais illisible
+            throw AtomicFile.unreadable(FILE_PATH, e);
+        }
+
+        // Fichier vide (toutes les règles supprimées) : choix de l'exploitant, pas de réimport
+        if (!exists) {
+            seedData();
+        }
+        version.incrementAndGet();
+    }
+
+    private void seedData() {
+        try (InputStream inputStream = getClass().getResourceAsStream("/initial-promotions.json")) {
+            if (inputStream == null) {
+                logger.error("Fichier seed 'initial-promotions.json' manquant !");
+                return;
+            }
+            List<PromotionRule> seeds = SCHEMA.<PromotionRule>readList(ByteBuffer.wrap(inputStream.readAllBytes()),
+                    objectMapper.readerFor(PromotionRule.class)).value();
+            database.upsertAll(seeds);
+            flusher.markDirty(FLUSH_NAME);
+            logger.info("Promotions initialisées avec {} règles.", seeds.size());
+        } catch (IOException e) {
+            logger.error("Erreur importation des promotions", e);
+        }
+    }
+
+    /**
+     * Écriture du fichier, appelée par le {@link WriteBehindFlusher}.
+     */
+    private void saveToFile() {
+        try {
+            List<PromotionRule> rules = findAll();
+            file.write(SCHEMA.writer(objectMapper.writerWithDefaultPrettyPrinter(), rules));
+        } catch (IOException e) {
+            logger.error("Erreur sauvegarde des promotions", e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public List<PromotionRule> findAll() {
+        return database.values();
+    }
+
+    public int count() {
+        return database.size();
+    }
+
+    public Optional<PromotionRule> findById(String id) {
+        return database.findById(id);
+    }
+
+    /**
+     * @return Version courante des règles (change à chaque save ou suppression).
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public PromotionRule save(PromotionRule rule) {
+        lock.lock();
+        try {
+            if (rule.getId() == null || rule.getId().isEmpty()) {
+                rule.setId(UUID.randomUUID().toString());
+            }
+            database.upsert(rule);
+            version.incrementAndGet();
+            flusher.markDirty(FLUSH_NAME);
+            return rule;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void deleteById(String id) {
+        lock.lock();
+        try {
+            if (database.remove(id).isPresent()) {
+                version.incrementAndGet();
+                flusher.markDirty(FLUSH_NAME);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
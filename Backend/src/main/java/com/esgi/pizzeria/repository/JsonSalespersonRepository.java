@@ -1,21 +1,19 @@
 package com.esgi.pizzeria.repository;
 
 import com.esgi.pizzeria.domain.Salesperson;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
 
-import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Repository gérant la persistance des vendeurs dans un fichier JSON.
@@ -29,28 +27,41 @@ import java.util.Optional;
 public class JsonSalespersonRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(JsonSalespersonRepository.class);
-    private final String FILE_PATH = "Backend/data/salesperson.json";
+    static final String FILE_PATH = "Backend/data/salesperson.json";
+    private static final String FLUSH_NAME = "salespersons";
+    // Version du fichier et migrations numérotées (aucune à ce jour)
+    private static final SchemaMigrations SCHEMA = new SchemaMigrations(FLUSH_NAME);
     
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicFile file = new AtomicFile(FILE_PATH);
+    private final WriteBehindFlusher flusher;
     
-    // Thread-Safety : Liste synchronisée pour gérer les accès concurrents
-    private final List<Salesperson> database = Collections.synchronizedList(new ArrayList<>());
+    // Thread-Safety : index par ID ordonné par insertion, accès concurrents en O(1)
+    private final IdIndex<Salesperson> database = new IdIndex<>(Salesperson::getId);
+    // Sérialise les mutations
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public JsonSalespersonRepository(WriteBehindFlusher flusher) {
+        this.flusher = flusher;
+        flusher.register(FLUSH_NAME, this::saveToFile);
+    }
 
     /**
-     * Chargement des données au démarrage de l'application.
+     * Chargement du fichier au démarrage, appelé par {@link com.esgi.pizzeria.config.DataBootstrap}
+     * (en parallèle des autres repositories).
      */
-    @PostConstruct
     public void init() {
-        File file = new File(FILE_PATH);
-        if (file.exists()) {
-            try {
-                List<Salesperson> loaded = objectMapper.readValue(file, new TypeReference<List<Salesperson>>() {});
-                database.clear();
-                database.addAll(loaded);
+        try {
+            SchemaMigrations.Loaded<List<Salesperson>> loaded = file.read(content ->
+                    SCHEMA.readList(content, objectMapper.readerFor(Salesperson.class)));
+            if (loaded != null) {
+                database.replaceAll(loaded.value());
+                if (loaded.outdated()) flusher.markDirty(FLUSH_NAME);
                 logger.info("{} vendeurs chargés.", database.size());
-            } catch (IOException e) {
-                logger.error("Erreur lecture fichier vendeurs", e);
             }
+        } catch (IOException e) {
+            // Jamais de comptes par défaut par-dessus un fichier existant mais illisible
+            throw AtomicFile.unreadable(FILE_PATH, e);
         }
         
         // Si aucun fichier ou fichier vide, on crée les comptes par défaut
@@ -82,7 +93,7 @@ public class JsonSalespersonRepository {
         adminPerms.put("manage_users", true);
         adminPerms.put("cash_out", true);
         admin.setPermissions(adminPerms);
-        database.add(admin);
+        database.upsert(admin);
 
         // 2. MARIO - Serveur (Pin original: "0000")
         // Hash SHA-256 : 9af15b336e6a9619928537df30b2e6a2376569fcf9d7e773eccede65606529a0
@@ -96,46 +107,68 @@ public class JsonSalespersonRepository {
         serverPerms.put("manage_users", false);
         serverPerms.put("cash_out", true);
         mario.setPermissions(serverPerms);
-        database.add(mario);
+        database.upsert(mario);
 
-        saveToFile();
+        flusher.markDirty(FLUSH_NAME);
     }
 
     /**
      * Persiste la liste en mémoire vers le fichier JSON.
-     * Méthode synchronisée pour éviter la corruption de fichier lors d'écritures concurrentes.
+     * Appelée par le {@link WriteBehindFlusher}, qui sérialise les écritures d'un même fichier.
      */
-    private synchronized void saveToFile() {
+    private void saveToFile() {
         try {
-            File file = new File(FILE_PATH);
-            if (file.getParentFile() != null) file.getParentFile().mkdirs();
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, database);
+            List<Salesperson> salespersons = findAll();
+            file.write(SCHEMA.writer(objectMapper.writerWithDefaultPrettyPrinter(), salespersons));
         } catch (IOException e) {
             logger.error("Erreur critique lors de la sauvegarde des vendeurs", e);
+            throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * Barrière durable : force l'écriture sur disque des mutations en attente.
+     */
+    public void flush() {
+        flusher.flush(FLUSH_NAME);
+    }
+
     public List<Salesperson> findAll() {
-        // Retourne une copie pour éviter la modification directe de la liste synchronisée
-        return new ArrayList<>(database);
+        // Retourne une copie pour éviter la modification directe de l'index
+        return database.values();
+    }
+
+    public int count() {
+        return database.size();
     }
 
     public Optional<Salesperson> findById(String id) {
-        synchronized (database) {
-            return database.stream().filter(s -> s.getId().equals(id)).findFirst();
-        }
+        return database.findById(id);
     }
 
-    public synchronized Salesperson save(Salesperson user) {
-        database.removeIf(s -> s.getId().equals(user.getId()));
-        database.add(user);
-        saveToFile();
-        return user;
+    public Salesperson save(Salesperson user) {
+        lock.lock();
+        try {
+            // L'ID sert de clé d'index : génération côté serveur pour un nouvel employé
+            if (user.getId() == null || user.getId().isEmpty()) {
+                user.setId(UUID.randomUUID().toString());
+            }
+            database.upsert(user);
+            flusher.markDirty(FLUSH_NAME);
+            return user;
+        } finally {
+            lock.unlock();
+        }
     }
 
-    public synchronized void deleteById(String id) {
-        if (database.removeIf(s -> s.getId().equals(id))) {
-            saveToFile();
+    public void deleteById(String id) {
+        lock.lock();
+        try {
+            if (database.remove(id).isPresent()) {
+                flusher.markDirty(FLUSH_NAME);
+            }
+        } finally {
+            lock.unlock();
         }
     }
 }
\ No newline at end of file
@@ -1,7 +1,7 @@
 package com.esgi.pizzeria.repository;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,7 +10,6 @@ import org.springframework.stereotype.Repository;
 import com.esgi.pizzeria.domain.ShopSettings;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import jakarta.annotation.PostConstruct;
 
 /**
  * Repository unique (Singleton) pour les paramètres globaux du magasin.
@@ -20,48 +19,67 @@ import jakarta.annotation.PostConstruct;
 public class JsonSettingsRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(JsonSettingsRepository.class);
-    private static final String FILE_PATH = "Backend/data/settings.json";
+    static final String FILE_PATH = "Backend/data/settings.json";
+    private static final String FLUSH_NAME = "settings";
+    // Version du fichier et migrations numérotées (aucune à ce jour)
+    private static final SchemaMigrations SCHEMA = new SchemaMigrations(FLUSH_NAME);
     
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private ShopSettings settings;
+    private final AtomicFile file = new AtomicFile(FILE_PATH);
+    private final WriteBehindFlusher flusher;
+    // Remplacé en bloc, jamais modifié sur place : une référence volatile suffit, sans verrou
+    private volatile ShopSettings settings;
 
-    @PostConstruct
+    public JsonSettingsRepository(WriteBehindFlusher flusher) {
+        this.flusher = flusher;
+        flusher.register(FLUSH_NAME, this::saveToFile);
+    }
+
+    /**
+     * Chargement du fichier au démarrage, appelé par {@link com.esgi.pizzeria.config.DataBootstrap}
+     * (en parallèle des autres repositories).
+     */
     public void init() {
-        File file = new File(FILE_PATH);
-        if (file.exists()) {
-            try {
-                settings = objectMapper.readValue(file, ShopSettings.class);
-                logger.info("Paramètres boutique chargés.");
-            } catch (IOException e) {
-                logger.error("Erreur lecture settings.json", e);
-            }
+        SchemaMigrations.Loaded<ShopSettings> loaded;
+        try {
+            loaded = file.read(content -> SCHEMA.readValue(content, objectMapper.readerFor(ShopSettings.class)));
+        } catch (IOException e) {
+            throw AtomicFile.unreadable(FILE_PATH, e);
+        }
+        if (loaded != null) {
+            settings = loaded.value();
+            if (loaded.outdated()) flusher.markDirty(FLUSH_NAME);
+            logger.info("Paramètres boutique chargés.");
         } else {
             // Configuration par défaut
             settings = new ShopSettings();
             settings.setShopName("Pizzeria ESGI");
             settings.setAddress("12 Rue de la Pizza, Paris");
             settings.setPhone("01 23 45 67 89");
-            saveToFile();
+            flusher.markDirty(FLUSH_NAME);
             logger.info("Paramètres par défaut générés.");
         }
     }
 
-    public synchronized ShopSettings getSettings() {
+    public ShopSettings getSettings() {
         return settings;
     }
 
-    public synchronized void save(ShopSettings newSettings) {
+    public void save(ShopSettings newSettings) {
         this.settings = newSettings;
-        saveToFile();
+        flusher.markDirty(FLUSH_NAME);
     }
 
-    private synchronized void saveToFile() {
+    /**
+     * Écriture du fichier, appelée par le {@link WriteBehindFlusher}.
+     */
+    private void saveToFile() {
         try {
-            File file = new File(FILE_PATH);
-            if (file.getParentFile() != null) file.getParentFile().mkdirs();
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, settings);
+            ShopSettings current = getSettings();
+            file.write(SCHEMA.valueWriter(objectMapper.writerWithDefaultPrettyPrinter(), current));
         } catch (IOException e) {
             logger.error("Impossible de sauvegarder les paramètres", e);
+            throw new UncheckedIOException(e);
         }
     }
 }
\ No newline at end of file
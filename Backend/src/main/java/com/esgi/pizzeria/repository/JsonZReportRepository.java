@@ -0,0 +1,113 @@
+package com.esgi.pizzeria.repository;
+
+import com.esgi.pizzeria.domain.ZReport;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Repository des tickets Z (clôtures de caisse) dans 'zreports.json'.
+ * <p>
+ * Les rapports sont immuables : on peut en ajouter, jamais en modifier ni en supprimer.
+ * Une journée ne peut être clôturée qu'une seule fois.
+ * </p>
+ */
+@Repository
+public class JsonZReportRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonZReportRepository.class);
+    static final String FILE_PATH = "Backend/data/zreports.json";
+    private static final String FLUSH_NAME = "zreports";
+    // Version du fichier et migrations numérotées (aucune à ce jour)
+    private static final SchemaMigrations SCHEMA = new SchemaMigrations(FLUSH_NAME);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicFile file = new AtomicFile(FILE_PATH);
+    private final WriteBehindFlusher flusher;
+
+    // Index par journée clôturée (ISO), ordonné par date de clôture
+    private final IdIndex<ZReport> database = new IdIndex<>(ZReport::getBusinessDate);
+    // Contrôle « journée déjà clôturée » et enregistrement en une seule étape
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public JsonZReportRepository(WriteBehindFlusher flusher) {
+        this.flusher = flusher;
+        flusher.register(FLUSH_NAME, this::saveToFile);
+    }
+
+    /**
+     * Chargement du fichier au démarrage, appelé par {@link com.esgi.pizzeria.config.DataBootstrap}
+     * (en parallèle des autres repositories).
+     */
+    public void init() {
+        try {
+            SchemaMigrations.Loaded<List<ZReport>> loaded = file.read(content ->
+                    SCHEMA.readList(content, objectMapper.readerFor(ZReport.class)));
+            if (loaded != null) {
+                database.replaceAll(loaded.value());
+                if (loaded.outdated()) flusher.markDirty(FLUSH_NAME);
+                logger.info("{} ticket(s) Z chargé(s).", database.size());
+            }
+        } catch (IOException e) {
+            throw AtomicFile.unreadable(FILE_PATH, e);
+        }
+    }
+
+    /**
+     * Écriture du fichier, appelée par le {@link WriteBehindFlusher}.
+     */
+    private void saveToFile() {
+        try {
+            List<ZReport> reports = findAll();
+            file.write(SCHEMA.writer(objectMapper.writerWithDefaultPrettyPrinter(), reports));
+        } catch (IOException e) {
+            logger.error("Erreur critique lors de la sauvegarde des tickets Z", e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Barrière durable : force l'écriture sur disque des mutations en attente.
+     */
+    public void flush() {
+        flusher.flush(FLUSH_NAME);
+    }
+
+    public List<ZReport> findAll() {
+        return database.values();
+    }
+
+    public int count() {
+        return database.size();
+    }
+
+    public Optional<ZReport> findByDate(String businessDate) {
+        return database.findById(businessDate);
+    }
+
+    /**
+     * Enregistre la clôture d'une journée.
+     *
+     * @throws IllegalStateException si la journée est déjà clôturée.
+     */
+    public ZReport saveNew(ZReport report) {
+        lock.lock();
+        try {
+            if (database.containsId(report.getBusinessDate())) {
+                throw new IllegalStateException("La journée du " + report.getBusinessDate() + " est déjà clôturée.");
+            }
+            database.upsert(report);
+            flusher.markDirty(FLUSH_NAME);
+            return report;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
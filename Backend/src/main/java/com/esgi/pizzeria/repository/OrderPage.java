@@ -0,0 +1,24 @@
+package com.esgi.pizzeria.repository;
+
+import java.util.List;
+
+import com.esgi.pizzeria.domain.Order;
+
+/**
+ * Page de commandes renvoyée par une requête paginée.
+ */
+public class OrderPage {
+
+    private final List<Order> items;
+
+    // Curseur de la page suivante, null s'il n'y a plus de résultats
+    private final String nextCursor;
+
+    public OrderPage(List<Order> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Order> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+}
@@ -0,0 +1,24 @@
+package com.esgi.pizzeria.repository;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Champs internes d'une commande, écrits sur disque mais jamais exposés par l'API.
+ * <p>
+ * Côté API, {@link com.esgi.pizzeria.domain.Order#getIdempotencyKey()} n'est accepté qu'en entrée
+ * (lot {@code /batch}) et n'est jamais renvoyé, ni dans les réponses ni dans l'export ; l'empreinte de
+ * la requête ({@link com.esgi.pizzeria.domain.Order#getRequestHash()}) est ignorée dans les deux sens.
+ * Les fichiers de commandes (journal, snapshot, segments) doivent au contraire les conserver : le cache
+ * d'idempotence est reconstruit à partir d'eux au démarrage. Ce mix-in n'est appliqué qu'aux mappers de persistance.
+ * </p>
+ */
+abstract class OrderPersistenceMixIn {
+
+    @JsonProperty(access = JsonProperty.Access.READ_WRITE)
+    private String idempotencyKey;
+
+    @JsonIgnore(false)
+    @JsonProperty
+    private String requestHash;
+}
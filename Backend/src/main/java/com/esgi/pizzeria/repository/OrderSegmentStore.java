@@ -0,0 +1,485 @@
+package com.esgi.pizzeria.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.esgi.pizzeria.domain.Order;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+/**
+ * Partie froide de l'historique des commandes : un segment par journée scellée
+ * ({@code orders/2025-03-14.json.gz}), relu seulement quand une requête en a besoin.
+ * <p>
+ * Chaque segment est écrit par {@link AtomicFile} (remplacement atomique, somme de contrôle, génération de
+ * secours), dans l'enveloppe versionnée des commandes ; il peut être compressé (gzip). Un fichier
+ * {@code <jour>.ids} l'accompagne : la liste de ses IDs, dont seule une empreinte 64 bits par commande
+ * est gardée en mémoire. Une recherche par ID ne relit que les segments dont l'empreinte correspond.
+ * </p>
+ * <p>
+ * Les segments relus sont gardés dans un cache LRU limité par un budget mémoire (taille JSON décompressée,
+ * estimation de leur empreinte). Les parcours longs (statistiques, export) lisent sans passer par le cache
+ * pour ne pas en évincer les journées consultées.
+ * </p>
+ */
+class OrderSegmentStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderSegmentStore.class);
+
+    private static final String EXTENSION = ".json";
+    private static final String COMPRESSED_EXTENSION = ".json.gz";
+    private static final String IDS_EXTENSION = ".ids";
+
+    /**
+     * Journée scellée : fichier et empreintes triées de ses IDs.
+     */
+    private record Segment(LocalDate day, Path path, boolean compressed, long[] idHashes) {
+
+        boolean mightContain(String id) {
+            return Arrays.binarySearch(idHashes, hash(id)) >= 0;
+        }
+    }
+
+    /**
+     * Contenu relu d'un segment, trié par (date, id).
+     *
+     * @param weight Taille JSON décompressée (octets), décomptée du budget du cache.
+     */
+    private record Content(List<Map.Entry<OrderTimeIndex.Key, Order>> entries, long weight) {
+    }
+
+    private final Path directory;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+    private final SchemaMigrations schema;
+    private final boolean compress;
+    private final long cacheBudget;
+
+    private final ConcurrentSkipListMap<LocalDate, Segment> segments = new ConcurrentSkipListMap<>();
+    private final AtomicLong count = new AtomicLong();
+
+    // Sérialise les écritures de segments (scellement, réécriture après migration)
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    // Cache LRU (ordre d'accès) ; verrou explicite, la lecture disque se fait hors verrou
+    private final LinkedHashMap<LocalDate, Content> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock cacheLock = new ReentrantLock();
+    private long cachedBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param compress    true = segments écrits en gzip (les deux formats sont relus).
+     * @param cacheBudget Budget du cache en octets (taille JSON décompressée).
+     */
+    OrderSegmentStore(String directory, ObjectMapper objectMapper, SchemaMigrations schema,
+                      boolean compress, long cacheBudget) {
+        this.directory = Path.of(directory);
+        this.reader = objectMapper.readerFor(Order.class);
+        this.writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Order.class))
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.schema = schema;
+        this.compress = compress;
+        this.cacheBudget = cacheBudget;
+    }
+
+    /**
+     * Recense les segments présents sur disque à partir de leurs fichiers d'IDs (les segments eux-mêmes
+     * ne sont pas relus). Un fichier d'IDs absent ou illisible est reconstruit depuis son segment.
+     *
+     * @throws IOException si un segment est illisible, génération de secours comprise.
+     */
+    void open() throws IOException {
+        segments.clear();
+        count.set(0);
+        if (!Files.isDirectory(directory)) return;
+
+        Map<LocalDate, Path> files = new LinkedHashMap<>();
+        try (Stream<Path> listing = Files.list(directory)) {
+            for (Path path : listing.toList()) {
+                LocalDate day = dayOf(path);
+                if (day == null) continue;
+                // Les deux formats pour une même journée (réglage de compression modifié) : le plus récent fait foi
+                Path previous = files.get(day);
+                if (previous == null || Files.getLastModifiedTime(path).compareTo(Files.getLastModifiedTime(previous)) > 0) {
+                    files.put(day, path);
+                }
+            }
+        }
+
+        for (Map.Entry<LocalDate, Path> file : files.entrySet()) {
+            Path path = file.getValue();
+            boolean compressed = path.getFileName().toString().endsWith(COMPRESSED_EXTENSION);
+            List<String> ids = readIds(file.getKey());
+            if (ids == null) {
+                Content content = read(file.getKey(), path, compressed);
+                ids = content.entries().stream().map(entry -> entry.getKey().id()).toList();
+                writeIds(file.getKey(), ids);
+                logger.warn("Segment {} : fichier d'IDs reconstruit.", path.getFileName());
+            }
+            publish(new Segment(file.getKey(), path, compressed, hashes(ids)));
+        }
+        if (!segments.isEmpty()) {
+            logger.info("{} journée(s) d'historique sur disque ({} commandes, du {} au {}).",
+                    segments.size(), count.get(), segments.firstKey(), segments.lastKey());
+        }
+    }
+
+    /**
+     * @return Nombre de commandes dans les segments.
+     */
+    long count() {
+        return count.get();
+    }
+
+    /**
+     * @return Nombre de journées scellées.
+     */
+    int segmentCount() {
+        return segments.size();
+    }
+
+    boolean contains(LocalDate day) {
+        return segments.containsKey(day);
+    }
+
+    /**
+     * Recherche par ID : seuls les segments dont l'empreinte correspond sont relus (via le cache),
+     * du plus récent au plus ancien.
+     */
+    Optional<Order> findById(String id) {
+        for (Segment segment : segments.descendingMap().values()) {
+            if (!segment.mightContain(id)) continue;
+            for (Map.Entry<OrderTimeIndex.Key, Order> entry : content(segment, true).entries()) {
+                if (entry.getKey().id().equals(id)) return Optional.of(entry.getValue());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Scelle une journée : les commandes sont fusionnées (par ID) avec le segment existant, écrites, puis
+     * publiées. Au retour, le segment est durable et visible des lectures.
+     *
+     * @throws IOException si l'écriture échoue (le segment précédent reste intact).
+     */
+    void seal(LocalDate day, Collection<Order> orders) throws IOException {
+        writeLock.lock();
+        try {
+            Map<String, Order> merged = new LinkedHashMap<>();
+            Segment existing = segments.get(day);
+            if (existing != null) {
+                for (Map.Entry<OrderTimeIndex.Key, Order> entry : read(day, existing.path(), existing.compressed()).entries()) {
+                    merged.put(entry.getKey().id(), entry.getValue());
+                }
+            }
+            for (Order order : orders) {
+                merged.put(order.getId(), order);
+            }
+            write(day, sorted(merged.values()), existing);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Commandes des segments de la plage, par ordre chronologique, relues une journée à la fois.
+     *
+     * @param from  Borne basse incluse (null = début de l'historique).
+     * @param to    Borne haute exclue (null = sans limite).
+     * @param after Clé après laquelle reprendre (curseur de pagination, null = aucune).
+     * @param cache true = passe par le cache (consultation) ; false = lecture de passage (parcours long).
+     */
+    Iterator<Map.Entry<OrderTimeIndex.Key, Order>> range(LocalDateTime from, LocalDateTime to,
+                                                         OrderTimeIndex.Key after, boolean cache) {
+        OrderTimeIndex.Key lower = from != null ? new OrderTimeIndex.Key(from, "") : null;
+        OrderTimeIndex.Key upper = to != null ? new OrderTimeIndex.Key(to, "") : null;
+
+        LocalDate firstDay = null;
+        if (from != null) firstDay = from.toLocalDate();
+        if (after != null && (firstDay == null || after.date().toLocalDate().isAfter(firstDay))) {
+            firstDay = after.date().toLocalDate();
+        }
+        NavigableMap<LocalDate, Segment> days = segments;
+        if (firstDay != null) days = days.tailMap(firstDay, true);
+        if (to != null) days = days.headMap(to.toLocalDate(), true);
+        Iterator<Segment> dayIterator = days.values().iterator();
+
+        return new Iterator<>() {
+            private Iterator<Map.Entry<OrderTimeIndex.Key, Order>> current = Collections.emptyIterator();
+            private Map.Entry<OrderTimeIndex.Key, Order> next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    if (done) return false;
+                    while (!current.hasNext()) {
+                        if (!dayIterator.hasNext()) return false;
+                        current = content(dayIterator.next(), cache).entries().iterator();
+                    }
+                    Map.Entry<OrderTimeIndex.Key, Order> candidate = current.next();
+                    OrderTimeIndex.Key key = candidate.getKey();
+                    if (lower != null && key.compareTo(lower) < 0) continue;
+                    if (after != null && key.compareTo(after) <= 0) continue;
+                    if (upper != null && key.compareTo(upper) >= 0) {
+                        // Trié : le reste de la journée (et les suivantes) est hors plage
+                        done = true;
+                        return false;
+                    }
+                    next = candidate;
+                }
+                return true;
+            }
+
+            @Override
+            public Map.Entry<OrderTimeIndex.Key, Order> next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                Map.Entry<OrderTimeIndex.Key, Order> result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    /**
+     * @return Taille JSON décompressée des segments en cache (octets).
+     */
+    long cachedBytes() {
+        cacheLock.lock();
+        try {
+            return cachedBytes;
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    long cacheHits() {
+        return hits.sum();
+    }
+
+    long cacheMisses() {
+        return misses.sum();
+    }
+
+    private Content content(Segment segment, boolean useCache) {
+        cacheLock.lock();
+        try {
+            Content cached = cache.get(segment.day());
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        } finally {
+            cacheLock.unlock();
+        }
+        misses.increment();
+
+        Content loaded;
+        try {
+            loaded = read(segment.day(), segment.path(), segment.compressed());
+        } catch (IOException e) {
+            throw new IllegalStateException("Segment d'historique illisible : " + segment.path().getFileName(), e);
+        }
+        if (useCache) {
+            cacheLock.lock();
+            try {
+                Content previous = cache.put(segment.day(), loaded);
+                if (previous != null) cachedBytes -= previous.weight();
+                cachedBytes += loaded.weight();
+                // Éviction des journées les moins récemment consultées ; la dernière relue reste en cache
+                Iterator<Content> eldest = cache.values().iterator();
+                while (cachedBytes > cacheBudget && cache.size() > 1) {
+                    cachedBytes -= eldest.next().weight();
+                    eldest.remove();
+                }
+            } finally {
+                cacheLock.unlock();
+            }
+        }
+        return loaded;
+    }
+
+    private void invalidate(LocalDate day) {
+        cacheLock.lock();
+        try {
+            Content removed = cache.remove(day);
+            if (removed != null) cachedBytes -= removed.weight();
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+
+    private Content read(LocalDate day, Path path, boolean compressed) throws IOException {
+        long[] weight = {0};
+        SchemaMigrations.Loaded<List<Order>> loaded = new AtomicFile(path.toString()).read(content -> {
+            ByteBuffer raw = compressed ? inflate(content) : content;
+            weight[0] = raw.remaining();
+            return schema.readList(raw, reader);
+        });
+        if (loaded == null) {
+            throw new IOException("Segment absent : " + path.getFileName());
+        }
+        List<Order> orders = loaded.value();
+        if (loaded.outdated()) {
+            // Segment d'une version antérieure : réécrit pour ne migrer qu'une fois
+            writeLock.lock();
+            try {
+                Segment current = segments.get(day);
+                if (current != null && current.path().equals(path)) write(day, sorted(orders), current);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        return new Content(sorted(orders), weight[0]);
+    }
+
+    /**
+     * Écrit le segment et son fichier d'IDs, puis le publie à la place de {@code previous}.
+     */
+    private void write(LocalDate day, List<Map.Entry<OrderTimeIndex.Key, Order>> entries, Segment previous) throws IOException {
+        Files.createDirectories(directory);
+        Path path = directory.resolve(day + (compress ? COMPRESSED_EXTENSION : EXTENSION));
+        List<Order> orders = entries.stream().map(Map.Entry::getValue).toList();
+        AtomicFile file = new AtomicFile(path.toString());
+        if (compress) {
+            // Version de schéma comprise dans le flux compressé : le fichier entier est un gzip standard
+            file.write(out -> {
+                GZIPOutputStream gzip = new GZIPOutputStream(out, 64 * 1024);
+                schema.writer(writer, orders).write(gzip);
+                gzip.finish();
+            });
+        } else {
+            file.write(schema.writer(writer, orders));
+        }
+        List<String> ids = entries.stream().map(entry -> entry.getKey().id()).toList();
+        writeIds(day, ids);
+
+        if (previous != null) {
+            count.addAndGet(-previous.idHashes().length);
+            // Réglage de compression modifié : l'ancien format de la journée est retiré
+            if (!previous.path().equals(path)) deleteWithGenerations(previous.path());
+        }
+        invalidate(day);
+        publish(new Segment(day, path, compress, hashes(ids)));
+    }
+
+    private void publish(Segment segment) {
+        segments.put(segment.day(), segment);
+        count.addAndGet(segment.idHashes().length);
+    }
+
+    private List<String> readIds(LocalDate day) {
+        try {
+            return new AtomicFile(idsPath(day).toString()).read(content -> {
+                String text = StandardCharsets.UTF_8.decode(content).toString();
+                return text.isEmpty() ? List.of() : List.of(text.split("\n"));
+            });
+        } catch (IOException e) {
+            logger.warn("Fichier d'IDs {} illisible : {}", idsPath(day).getFileName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeIds(LocalDate day, List<String> ids) throws IOException {
+        new AtomicFile(idsPath(day).toString())
+                .write(out -> out.write(String.join("\n", ids).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private Path idsPath(LocalDate day) {
+        return directory.resolve(day + IDS_EXTENSION);
+    }
+
+    private static void deleteWithGenerations(Path path) throws IOException {
+        new AtomicFile(path.toString()).delete();
+    }
+
+    /**
+     * Journée d'un fichier segment, null pour tout autre fichier (IDs, génération de secours, temporaire).
+     */
+    private static LocalDate dayOf(Path path) {
+        String name = path.getFileName().toString();
+        String day;
+        if (name.endsWith(COMPRESSED_EXTENSION)) {
+            day = name.substring(0, name.length() - COMPRESSED_EXTENSION.length());
+        } else if (name.endsWith(EXTENSION)) {
+            day = name.substring(0, name.length() - EXTENSION.length());
+        } else {
+            return null;
+        }
+        try {
+            return LocalDate.parse(day);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static ByteBuffer inflate(ByteBuffer content) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteBufferBackedInputStream(content), 64 * 1024)) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
+    }
+
+    private static List<Map.Entry<OrderTimeIndex.Key, Order>> sorted(Collection<Order> orders) {
+        List<Map.Entry<OrderTimeIndex.Key, Order>> entries = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(
+                    new OrderTimeIndex.Key(OrderTimeIndex.timestampOf(order), order.getId()), order));
+        }
+        entries.sort(Map.Entry.comparingByKey());
+        return entries;
+    }
+
+    private static long[] hashes(List<String> ids) {
+        long[] hashes = new long[ids.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = hash(ids.get(i));
+        }
+        Arrays.sort(hashes);
+        return hashes;
+    }
+
+    /**
+     * Empreinte 64 bits d'un ID (FNV-1a) : une collision ne coûte qu'une relecture de segment inutile.
+     */
+    private static long hash(String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,123 @@
+package com.esgi.pizzeria.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.esgi.pizzeria.domain.Order;
+
+/**
+ * Index chronologique des commandes : (date, id) → commande.
+ * <p>
+ * Sert les requêtes par plage de dates et la pagination par curseur sans parcourir
+ * l'historique : coût O(log n + taille de la page).
+ * </p>
+ * <p>
+ * Les mutations sont sérialisées par le repository ; les lectures sont sans verrou.
+ * </p>
+ */
+class OrderTimeIndex {
+
+    private final ConcurrentSkipListMap<Key, Order> byTime = new ConcurrentSkipListMap<>();
+
+    // Clé indexée par ID, pour retirer l'ancienne entrée même si l'objet a été modifié
+    private final Map<String, Key> keyById = new ConcurrentHashMap<>();
+
+    void add(Order order) {
+        remove(order.getId());
+        Key key = new Key(timestampOf(order), order.getId());
+        byTime.put(key, order);
+        keyById.put(order.getId(), key);
+    }
+
+    void remove(String id) {
+        Key key = keyById.remove(id);
+        if (key != null) byTime.remove(key);
+    }
+
+    void clear() {
+        byTime.clear();
+        keyById.clear();
+    }
+
+    /**
+     * Vue ordonnée des commandes de la plage [from, to[, après le curseur s'il est fourni.
+     *
+     * @param from  Borne basse incluse (null = début de l'historique).
+     * @param to    Borne haute exclue (null = sans limite).
+     * @param after Clé de la dernière commande de la page précédente (null = première page).
+     */
+    NavigableMap<Key, Order> range(LocalDateTime from, LocalDateTime to, Key after) {
+        // Une seule borne basse : la plus haute des deux (une sous-vue refuse une borne hors de sa plage)
+        Key lower = from != null ? new Key(from, "") : null;
+        boolean inclusive = true;
+        if (after != null && (lower == null || after.compareTo(lower) >= 0)) {
+            lower = after;
+            inclusive = false;
+        }
+        Key upper = to != null ? new Key(to, "") : null;
+        if (lower != null && upper != null && upper.compareTo(lower) < 0) {
+            return Collections.emptyNavigableMap();
+        }
+
+        NavigableMap<Key, Order> view = byTime;
+        if (lower != null) {
+            view = view.tailMap(lower, inclusive);
+        }
+        if (upper != null) {
+            view = view.headMap(upper, false);
+        }
+        return view;
+    }
+
+    /**
+     * Date de la commande, {@link LocalDateTime#MIN} si absente ou illisible (placée en tête).
+     */
+    static LocalDateTime timestampOf(Order order) {
+        if (order.getDate() == null) return LocalDateTime.MIN;
+        try {
+            return LocalDateTime.parse(order.getDate());
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.MIN;
+        }
+    }
+
+    /**
+     * Clé d'index ; l'ID départage les commandes passées au même instant.
+     */
+    record Key(LocalDateTime date, String id) implements Comparable<Key> {
+
+        private static final Comparator<Key> ORDER =
+                Comparator.comparing(Key::date).thenComparing(Key::id);
+
+        @Override
+        public int compareTo(Key other) {
+            return ORDER.compare(this, other);
+        }
+
+        /**
+         * Curseur opaque pour le client : "date|id" encodé en Base64 URL.
+         */
+        String encode() {
+            String raw = date + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Key decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = raw.indexOf('|');
+                return new Key(LocalDateTime.parse(raw.substring(0, sep)), raw.substring(sep + 1));
+            } catch (IllegalArgumentException | DateTimeParseException | StringIndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Curseur de pagination invalide.");
+            }
+        }
+    }
+}
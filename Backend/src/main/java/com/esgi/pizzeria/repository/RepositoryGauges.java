@@ -0,0 +1,90 @@
+package com.esgi.pizzeria.repository;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Jauges des données : nombre d'éléments en mémoire par repository, taille des fichiers sur disque
+ * et cache de l'historique scellé des commandes.
+ * <p>
+ * Les valeurs sont lues à chaque collecte (ex : scrape Prometheus), sans copie des collections.
+ * </p>
+ */
+@Component
+public class RepositoryGauges implements MeterBinder {
+
+    private final Map<String, IntSupplier> sizes = new LinkedHashMap<>();
+    // Références fortes : Micrometer ne conserve qu'une référence faible sur l'objet observé
+    private final Map<String, File> files = new LinkedHashMap<>();
+    private final JsonOrderRepository orderRepository;
+
+    public RepositoryGauges(JsonCustomerRepository customerRepository,
+                            JsonIngredientRepository ingredientRepository,
+                            JsonOrderRepository orderRepository,
+                            JsonProductRepository productRepository,
+                            JsonPromotionRepository promotionRepository,
+                            JsonSalespersonRepository salespersonRepository,
+                            JsonZReportRepository zReportRepository) {
+        this.orderRepository = orderRepository;
+        sizes.put("customers", customerRepository::count);
+        sizes.put("ingredients", ingredientRepository::count);
+        sizes.put("orders", orderRepository::count);
+        sizes.put("orders-hot", orderRepository::hotCount);
+        sizes.put("products", productRepository::count);
+        sizes.put("promotions", promotionRepository::count);
+        sizes.put("salespersons", salespersonRepository::count);
+        sizes.put("zreports", zReportRepository::count);
+
+        files.put("customers", new File(JsonCustomerRepository.FILE_PATH));
+        files.put("customers-binary", SnapshotStore.binaryFile(JsonCustomerRepository.FILE_PATH));
+        files.put("ingredients", new File(JsonIngredientRepository.FILE_PATH));
+        files.put("orders", new File(JsonOrderRepository.FILE_PATH));
+        files.put("orders-binary", SnapshotStore.binaryFile(JsonOrderRepository.FILE_PATH));
+        files.put("orders-journal", new File(JsonOrderRepository.JOURNAL_PATH));
+        files.put("products", new File(JsonProductRepository.FILE_PATH));
+        files.put("promotions", new File(JsonPromotionRepository.FILE_PATH));
+        files.put("salespersons", new File(JsonSalespersonRepository.FILE_PATH));
+        files.put("settings", new File(JsonSettingsRepository.FILE_PATH));
+        files.put("zreports", new File(JsonZReportRepository.FILE_PATH));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        sizes.forEach((name, size) ->
+                Gauge.builder("pizzeria.repository.size", size, IntSupplier::getAsInt)
+                        .description("Nombre d'éléments en mémoire")
+                        .tag("repository", name)
+                        .register(registry));
+
+        // Fichier absent (pas encore écrit) : 0 octet
+        files.forEach((name, file) ->
+                Gauge.builder("pizzeria.data.file.size", file, File::length)
+                        .description("Taille du fichier de données sur disque")
+                        .baseUnit("bytes")
+                        .tag("file", name)
+                        .register(registry));
+
+        // Historique scellé : cache des segments relus
+        Gauge.builder("pizzeria.orders.segment.cache.size", orderRepository, JsonOrderRepository::segmentCacheBytes)
+                .description("Taille JSON décompressée des journées d'historique en cache")
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("pizzeria.orders.segment.cache.requests", orderRepository, JsonOrderRepository::segmentCacheHits)
+                .description("Lectures de journées d'historique, par résultat du cache")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("pizzeria.orders.segment.cache.requests", orderRepository, JsonOrderRepository::segmentCacheMisses)
+                .description("Lectures de journées d'historique, par résultat du cache")
+                .tag("result", "miss")
+                .register(registry);
+    }
+}
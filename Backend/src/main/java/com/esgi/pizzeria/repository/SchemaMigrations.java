@@ -0,0 +1,318 @@
+package com.esgi.pizzeria.repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+/**
+ * Version de schéma d'un fichier de données et migrations numérotées pour le mettre à jour.
+ * <p>
+ * La version est portée par le document lui-même, qui reste du JSON (ou du Smile) valide :
+ * {@code {"schemaVersion": n, "items": [...]}} pour une liste, {@code {"schemaVersion": n, "value": {...}}}
+ * pour un objet unique, et une première ligne {@code {"schemaVersion": n}} pour un journal NDJSON. Au chargement, seules
+ * les migrations de numéro supérieur à la version du fichier sont appliquées, dans l'ordre, enregistrement
+ * par enregistrement pendant la lecture : un seul enregistrement à la fois sous forme d'arbre JSON, jamais
+ * deux copies de la liste. Le fichier est ensuite réécrit à la version courante, si bien que chaque
+ * migration ne s'exécute qu'une fois. Un fichier à jour est lu directement dans les objets du domaine,
+ * sans aucun travail de migration.
+ * </p>
+ * <p>
+ * Un fichier sans version (tableau ou objet nu écrit avant la gestion des versions, importé à la main,
+ * données par défaut) est en version 0 : toutes les migrations lui sont appliquées, elles doivent donc
+ * laisser intacts les enregistrements déjà conformes. L'ancien format à ligne d'en-tête {@code #SCHEMA <version>}
+ * suivie du tableau nu reste lisible ; il est remplacé par l'enveloppe à la réécriture suivante. Un fichier plus récent que l'application est refusé plutôt que relu
+ * puis réécrit avec perte de données.
+ * </p>
+ */
+final class SchemaMigrations {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrations.class);
+
+    /** Version des fichiers d'un jeu de données sans migration (premier format versionné). */
+    static final int INITIAL_VERSION = 1;
+
+    static final String VERSION_FIELD = "schemaVersion";
+    static final String ITEMS_FIELD = "items";
+    static final String VALUE_FIELD = "value";
+
+    private static final String JOURNAL_HEADER_PREFIX = "{\"" + VERSION_FIELD + "\":";
+    // Ancien format : ligne d'en-tête hors JSON
+    private static final String LEGACY_HEADER_PREFIX = "#SCHEMA ";
+    private static final byte[] LEGACY_HEADER_PREFIX_BYTES = LEGACY_HEADER_PREFIX.getBytes(StandardCharsets.US_ASCII);
+    // Préfixe + 10 chiffres max + fin de ligne
+    private static final int MAX_LEGACY_HEADER_LENGTH = LEGACY_HEADER_PREFIX_BYTES.length + 10 + 1;
+
+    /**
+     * Migration d'un enregistrement vers la version {@code version}.
+     */
+    private record Migration(int version, String description, Consumer<ObjectNode> action) {
+    }
+
+    /**
+     * Résultat d'une lecture.
+     *
+     * @param value    Contenu lu, à la version courante.
+     * @param outdated true si le fichier était d'une version antérieure : il doit être réécrit.
+     */
+    record Loaded<T>(T value, boolean outdated) {
+    }
+
+    private final String name;
+    private final List<Migration> migrations = new ArrayList<>();
+
+    /**
+     * @param name Nom du jeu de données (journaux).
+     */
+    SchemaMigrations(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Ajoute une migration. Les numéros sont strictement croissants et ne sont jamais réutilisés :
+     * une migration publiée n'est plus modifiée, une correction fait l'objet d'un nouveau numéro.
+     *
+     * @param version     Version atteinte après la migration.
+     * @param description Libellé (journaux).
+     * @param action      Modifie l'enregistrement sur place.
+     * @throws IllegalArgumentException si le numéro n'est pas supérieur à celui de la migration précédente.
+     */
+    SchemaMigrations add(int version, String description, Consumer<ObjectNode> action) {
+        int last = migrations.isEmpty() ? INITIAL_VERSION - 1 : migrations.get(migrations.size() - 1).version();
+        if (version <= last) {
+            throw new IllegalArgumentException("Migration " + name + " v" + version + " : numéro déjà utilisé ou non croissant");
+        }
+        migrations.add(new Migration(version, description, action));
+        return this;
+    }
+
+    /**
+     * @return Version écrite dans l'en-tête des fichiers.
+     */
+    int currentVersion() {
+        return migrations.isEmpty() ? INITIAL_VERSION : Math.max(INITIAL_VERSION, migrations.get(migrations.size() - 1).version());
+    }
+
+    /**
+     * Première ligne d'un journal NDJSON à la version courante, fin de ligne comprise.
+     */
+    String header() {
+        return JOURNAL_HEADER_PREFIX + currentVersion() + "}\n";
+    }
+
+    /**
+     * Écriture d'une liste dans l'enveloppe versionnée {@code {"schemaVersion": n, "items": [...]}}.
+     *
+     * @param writer Écrivain des éléments (format, indentation, type déclaré de la liste : il est conservé,
+     *               les champs polymorphes comme "type" des produits restent écrits).
+     */
+    AtomicFile.Writer writer(ObjectWriter writer, Collection<?> items) {
+        return envelope(writer, ITEMS_FIELD, items);
+    }
+
+    /**
+     * Écriture d'un objet unique dans l'enveloppe versionnée {@code {"schemaVersion": n, "value": {...}}}.
+     */
+    AtomicFile.Writer valueWriter(ObjectWriter writer, Object value) {
+        return envelope(writer, VALUE_FIELD, value);
+    }
+
+    private AtomicFile.Writer envelope(ObjectWriter writer, String field, Object content) {
+        return out -> {
+            try (JsonGenerator generator = writer.createGenerator(out)) {
+                generator.writeStartObject();
+                generator.writeNumberField(VERSION_FIELD, currentVersion());
+                generator.writeFieldName(field);
+                writer.writeValue(generator, content);
+                generator.writeEndObject();
+            }
+        };
+    }
+
+    /**
+     * Lit une liste d'enregistrements (JSON ou Smile) en appliquant les migrations en attente.
+     * <p>
+     * Lecture en flux : la version est lue avant les éléments, puis ceux-ci sont désérialisés un par un.
+     * </p>
+     *
+     * @param content Contenu du fichier ; sa position est avancée.
+     * @param reader  Lecteur du type des éléments.
+     * @throws IOException si le fichier est illisible ou d'une version plus récente que l'application.
+     */
+    <T> Loaded<List<T>> readList(ByteBuffer content, ObjectReader reader) throws IOException {
+        int legacyVersion = readLegacyHeader(content);
+        try (InputStream in = new ByteBufferBackedInputStream(content);
+             JsonParser parser = reader.createParser(in)) {
+            JsonToken first = parser.nextToken();
+            if (first == null) {
+                return new Loaded<>(new ArrayList<>(), legacyVersion < currentVersion());
+            }
+            int version;
+            if (first == JsonToken.START_ARRAY) {
+                version = Math.max(legacyVersion, 0);
+            } else if (first == JsonToken.START_OBJECT) {
+                version = readEnvelopeVersion(parser);
+                if (parser.nextToken() != JsonToken.FIELD_NAME || !ITEMS_FIELD.equals(parser.currentName())
+                        || parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("Champ \"" + ITEMS_FIELD + "\" attendu après la version (" + name + ")");
+                }
+            } else {
+                throw new IOException("Liste attendue (" + name + ") : " + first);
+            }
+
+            List<Migration> pending = pending(version);
+            ObjectReader nodeReader = reader.forType(ObjectNode.class);
+            List<T> loaded = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (pending.isEmpty()) {
+                    loaded.add(reader.readValue(parser));
+                } else {
+                    ObjectNode node = nodeReader.readValue(parser);
+                    loaded.add(reader.readValue(migrate(node, pending)));
+                }
+            }
+            boolean outdated = version < currentVersion() || first == JsonToken.START_ARRAY;
+            if (version < currentVersion()) logMigration(version, loaded.size());
+            return new Loaded<>(loaded, outdated);
+        }
+    }
+
+    /**
+     * Lit un objet unique (ex : paramètres boutique) en appliquant les migrations en attente.
+     * Un objet nu, sans enveloppe, est un fichier de version 0 (ou celle de l'ancienne ligne d'en-tête).
+     *
+     * @see #readList(ByteBuffer, ObjectReader)
+     */
+    <T> Loaded<T> readValue(ByteBuffer content, ObjectReader reader) throws IOException {
+        int legacyVersion = readLegacyHeader(content);
+        try (InputStream in = new ByteBufferBackedInputStream(content)) {
+            // Objet unique et de petite taille : lu sous forme d'arbre pour distinguer enveloppe et objet nu
+            ObjectNode node = reader.forType(ObjectNode.class).readValue(in);
+            int version = Math.max(legacyVersion, 0);
+            boolean enveloped = node.has(VERSION_FIELD) && node.get(VALUE_FIELD) instanceof ObjectNode;
+            if (enveloped) {
+                version = checkVersion(node.get(VERSION_FIELD).asInt());
+                node = (ObjectNode) node.get(VALUE_FIELD);
+            }
+            List<Migration> pending = pending(version);
+            T value = reader.readValue(migrate(node, pending));
+            if (version < currentVersion()) logMigration(version, 1);
+            return new Loaded<>(value, version < currentVersion() || !enveloped);
+        }
+    }
+
+    /**
+     * Lit le champ de version, premier champ de l'enveloppe (le parseur est sur l'accolade ouvrante).
+     */
+    private int readEnvelopeVersion(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.FIELD_NAME || !VERSION_FIELD.equals(parser.currentName())
+                || !parser.nextToken().isNumeric()) {
+            throw new IOException("Champ \"" + VERSION_FIELD + "\" attendu en tête du fichier (" + name + ")");
+        }
+        return checkVersion(parser.getIntValue());
+    }
+
+    /**
+     * Version indiquée par la première ligne d'un journal NDJSON ({@code {"schemaVersion":n}},
+     * ou l'ancienne ligne {@code #SCHEMA n}).
+     *
+     * @return La version, ou -1 si la ligne n'est pas un en-tête.
+     * @throws IOException si l'en-tête est illisible ou d'une version plus récente que l'application.
+     */
+    int parseHeader(String line) throws IOException {
+        String trimmed = line.trim();
+        if (trimmed.startsWith(LEGACY_HEADER_PREFIX)) {
+            return checkVersion(parseVersion(trimmed.substring(LEGACY_HEADER_PREFIX.length()).trim()));
+        }
+        if (trimmed.startsWith(JOURNAL_HEADER_PREFIX) && trimmed.endsWith("}")) {
+            return checkVersion(parseVersion(trimmed.substring(JOURNAL_HEADER_PREFIX.length(), trimmed.length() - 1).trim()));
+        }
+        return -1;
+    }
+
+    /**
+     * Lit un enregistrement isolé (ligne de journal) écrit dans la version {@code version}.
+     */
+    <T> T readRecord(String json, int version, ObjectReader reader) throws IOException {
+        List<Migration> pending = pending(version);
+        if (pending.isEmpty()) {
+            return reader.readValue(json);
+        }
+        ObjectNode node = reader.forType(ObjectNode.class).readValue(json);
+        return reader.readValue(migrate(node, pending));
+    }
+
+    private List<Migration> pending(int version) {
+        if (version >= currentVersion()) return List.of();
+        return migrations.stream().filter(migration -> migration.version() > version).toList();
+    }
+
+    private static ObjectNode migrate(ObjectNode node, List<Migration> pending) {
+        for (Migration migration : pending) {
+            migration.action().accept(node);
+        }
+        return node;
+    }
+
+    private void logMigration(int version, int records) {
+        StringJoiner applied = new StringJoiner(", ");
+        pending(version).forEach(migration -> applied.add("v" + migration.version() + " " + migration.description()));
+        logger.info("Schéma {} : v{} → v{}, {} enregistrement(s) ({}).", name, version, currentVersion(), records,
+                applied.length() > 0 ? applied : "version seule");
+    }
+
+    /**
+     * Lit l'ancienne ligne d'en-tête {@code #SCHEMA n} si elle est présente et place le tampon juste après.
+     *
+     * @return La version de l'en-tête, -1 s'il n'y en a pas.
+     */
+    private int readLegacyHeader(ByteBuffer content) throws IOException {
+        int start = content.position();
+        if (content.remaining() < LEGACY_HEADER_PREFIX_BYTES.length) return -1;
+        for (int i = 0; i < LEGACY_HEADER_PREFIX_BYTES.length; i++) {
+            if (content.get(start + i) != LEGACY_HEADER_PREFIX_BYTES[i]) return -1;
+        }
+        int end = Math.min(content.limit(), start + MAX_LEGACY_HEADER_LENGTH);
+        for (int i = start + LEGACY_HEADER_PREFIX_BYTES.length; i < end; i++) {
+            if (content.get(i) == '\n') {
+                byte[] digits = new byte[i - start - LEGACY_HEADER_PREFIX_BYTES.length];
+                content.get(start + LEGACY_HEADER_PREFIX_BYTES.length, digits);
+                content.position(i + 1);
+                return checkVersion(parseVersion(new String(digits, StandardCharsets.US_ASCII).trim()));
+            }
+        }
+        throw new IOException("En-tête de schéma illisible (" + name + ")");
+    }
+
+    private int parseVersion(String digits) throws IOException {
+        try {
+            return Integer.parseInt(digits);
+        } catch (NumberFormatException e) {
+            throw new IOException("Version de schéma illisible (" + name + ") : " + digits);
+        }
+    }
+
+    private int checkVersion(int version) throws IOException {
+        if (version > currentVersion()) {
+            throw new IOException("Schéma " + name + " v" + version + " plus récent que l'application (v"
+                    + currentVersion() + ") : mettre à jour l'application.");
+        }
+        return version;
+    }
+}
@@ -0,0 +1,189 @@
+package com.esgi.pizzeria.repository;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Snapshot d'un repository sous deux formes : le JSON lisible, format d'échange et d'export,
+ * et une copie binaire Smile écrite à côté ({@code orders.json} → {@code orders.smile}).
+ * <p>
+ * Au démarrage, la copie binaire est lue via un fichier mappé en mémoire ({@link AtomicFile}) : pas de
+ * double tampon dans le heap, et pas de texte JSON indenté à analyser. Les éléments sont
+ * désérialisés un par un, sans arbre intermédiaire.
+ * </p>
+ * <p>
+ * Conversion automatique dans les deux sens : le plus récent des deux fichiers lisibles fait foi.
+ * Un JSON remplacé à la main (import) est relu puis converti en Smile ; un JSON absent
+ * ou plus ancien que le Smile est régénéré depuis celui-ci.
+ * </p>
+ * <p>
+ * Les deux fichiers sont écrits par {@link AtomicFile} : remplacement atomique, somme de contrôle
+ * et génération de secours. Ils portent la version de schéma de {@link SchemaMigrations} : un snapshot
+ * d'une version antérieure est migré à la lecture puis réécrit sous ses deux formes.
+ * </p>
+ *
+ * @param <T> Type des éléments du snapshot.
+ */
+class SnapshotStore<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotStore.class);
+
+    static final String BINARY_EXTENSION = ".smile";
+
+    private final AtomicFile jsonFile;
+    private final AtomicFile binaryFile;
+    private final ObjectMapper jsonMapper;
+    private final ObjectReader jsonReader;
+    private final ObjectReader binaryReader;
+    private final ObjectMapper binaryMapper;
+    private final SchemaMigrations schema;
+    private final boolean binaryEnabled;
+
+    /**
+     * @param jsonPath      Chemin du snapshot JSON ; la copie binaire porte le même nom en {@value #BINARY_EXTENSION}.
+     * @param schema        Version et migrations des éléments.
+     * @param binaryEnabled false = JSON seul (la copie binaire existante est ignorée).
+     */
+    SnapshotStore(String jsonPath, Class<T> type, ObjectMapper jsonMapper, SchemaMigrations schema, boolean binaryEnabled) {
+        this.jsonFile = new AtomicFile(jsonPath);
+        this.binaryFile = new AtomicFile(binaryFile(jsonPath).getPath());
+        this.jsonMapper = jsonMapper;
+        this.jsonReader = jsonMapper.readerFor(type);
+        // Même configuration que le JSON (mix-ins de persistance compris), format Smile
+        this.binaryMapper = jsonMapper.copyWith(new SmileFactory());
+        this.binaryReader = binaryMapper.readerFor(type);
+        this.schema = schema;
+        this.binaryEnabled = binaryEnabled;
+    }
+
+    /**
+     * Fichier de la copie binaire associée à un snapshot JSON.
+     */
+    static File binaryFile(String jsonPath) {
+        String base = jsonPath.endsWith(".json") ? jsonPath.substring(0, jsonPath.length() - 5) : jsonPath;
+        return new File(base + BINARY_EXTENSION);
+    }
+
+    /**
+     * @return true si un snapshot (JSON ou binaire, ou leur génération de secours) est présent sur disque.
+     */
+    boolean exists() {
+        return jsonFile.exists() || (binaryEnabled && binaryFile.exists());
+    }
+
+    /**
+     * Charge le snapshot le plus récent, puis remet l'autre forme à jour si elle est absente ou en retard.
+     * <p>
+     * Ordre de lecture : version courante de la forme la plus récente, puis de l'autre, puis leurs
+     * générations de secours. Après une lecture de secours ou une migration de schéma, les deux formes sont réécrites.
+     * </p>
+     *
+     * @return Les éléments du snapshot (liste vide si aucun fichier).
+     * @throws IOException si des données existent mais qu'aucune forme n'est lisible.
+     */
+    List<T> load() throws IOException {
+        boolean useBinary = binaryEnabled && binaryFile.exists();
+        // À égalité, la copie binaire (écrite en dernier) est préférée
+        boolean binaryFirst = useBinary
+                && binaryFile.getFile().lastModified() >= jsonFile.getFile().lastModified();
+        List<AtomicFile> forms = !useBinary ? List.of(jsonFile)
+                : binaryFirst ? List.of(binaryFile, jsonFile) : List.of(jsonFile, binaryFile);
+
+        IOException failure = null;
+        boolean jsonFailed = false;
+        for (AtomicFile form : forms) {
+            try {
+                SchemaMigrations.Loaded<List<T>> result = form.readCurrent(content -> schema.readList(content, readerFor(form)));
+                if (result == null) continue;
+                List<T> loaded = result.value();
+                if (result.outdated()) {
+                    rewrite(loaded);
+                } else if (form == jsonFile) {
+                    if (binaryEnabled) convert(loaded, false);
+                } else if (jsonFailed || !jsonFile.getFile().exists()) {
+                    convert(loaded, true);
+                }
+                return loaded;
+            } catch (IOException e) {
+                jsonFailed |= form == jsonFile;
+                failure = chain(failure, e);
+            }
+        }
+
+        for (AtomicFile form : forms) {
+            try {
+                SchemaMigrations.Loaded<List<T>> result = form.readBackup(content -> schema.readList(content, readerFor(form)));
+                if (result == null) continue;
+                rewrite(result.value());
+                return result.value();
+            } catch (IOException e) {
+                failure = chain(failure, e);
+            }
+        }
+
+        if (failure != null) {
+            throw new IOException("Aucune génération lisible pour " + jsonFile.getFile().getName(), failure);
+        }
+        return new ArrayList<>();
+    }
+
+    private ObjectReader readerFor(AtomicFile form) {
+        return form == binaryFile ? binaryReader : jsonReader;
+    }
+
+    private static IOException chain(IOException previous, IOException next) {
+        if (previous != null) next.addSuppressed(previous);
+        return next;
+    }
+
+    /**
+     * Écrit le snapshot : JSON indenté, puis copie binaire (qui reste ainsi la plus récente).
+     */
+    void write(Collection<T> records) throws IOException {
+        jsonFile.write(schema.writer(jsonMapper.writerWithDefaultPrettyPrinter(), records));
+        if (binaryEnabled) {
+            binaryFile.write(schema.writer(binaryMapper.writer(), records));
+        }
+    }
+
+    /**
+     * Réécrit les deux formes (après une lecture de secours ou une migration).
+     */
+    private void rewrite(List<T> loaded) {
+        convert(loaded, true);
+        if (binaryEnabled) convert(loaded, false);
+    }
+
+    /**
+     * Réécrit la forme en retard à partir des éléments chargés. Un échec n'empêche pas le démarrage :
+     * la conversion sera refaite à la prochaine écriture du snapshot.
+     *
+     * @param toJson true = régénère le JSON, false = régénère la copie binaire.
+     */
+    private void convert(List<T> loaded, boolean toJson) {
+        try {
+            if (toJson) {
+                jsonFile.write(schema.writer(jsonMapper.writerWithDefaultPrettyPrinter(), loaded));
+                // Le JSON vient d'être réécrit : la copie binaire doit rester la plus récente
+                File binary = binaryFile.getFile();
+                binary.setLastModified(Math.max(binary.lastModified(), jsonFile.getFile().lastModified()));
+                logger.info("{} régénéré ({} éléments).", jsonFile.getFile().getName(), loaded.size());
+            } else {
+                binaryFile.write(schema.writer(binaryMapper.writer(), loaded));
+                logger.info("{} régénéré ({} éléments).", binaryFile.getFile().getName(), loaded.size());
+            }
+        } catch (IOException e) {
+            logger.warn("Conversion du snapshot {} impossible : {}", jsonFile.getFile().getName(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.esgi.pizzeria.repository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Persistance différée (write-behind) partagée par tous les repositories JSON.
+ * <p>
+ * Principe : une mutation ne réécrit plus le fichier immédiatement. Le repository se
+ * marque "sale" ({@link #markDirty(String)}) et le flusher regroupe toutes les mutations
+ * survenues pendant l'intervalle en une seule écriture disque.
+ * </p>
+ * <ul>
+ *   <li>Écriture périodique toutes les {@code pizzeria.persistence.flush-interval-ms} ms.</li>
+ *   <li>Écriture anticipée dès {@code pizzeria.persistence.flush-batch-size} mutations en attente.</li>
+ *   <li>{@link #flush(String)} : barrière durable pour les opérations qui doivent être sur disque.</li>
+ *   <li>Écriture de tout ce qui reste en attente à l'arrêt de l'application.</li>
+ * </ul>
+ * <p>
+ * Avec {@code spring.threads.virtual.enabled}, l'écriture périodique s'exécute sur un thread virtuel.
+ * </p>
+ */
+@Component
+public class WriteBehindFlusher {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindFlusher.class);
+
+    private final long flushIntervalMs;
+    private final int batchSize;
+
+    private final Map<String, Target> targets = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final MeterRegistry meterRegistry;
+
+    public WriteBehindFlusher(@Value("${pizzeria.persistence.flush-interval-ms:500}") long flushIntervalMs,
+                              @Value("${pizzeria.persistence.flush-batch-size:50}") int batchSize,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                              MeterRegistry meterRegistry) {
+        this.flushIntervalMs = flushIntervalMs;
+        this.batchSize = batchSize;
+        this.meterRegistry = meterRegistry;
+        // Thread virtuel : pendant un fsync, le thread porteur reste disponible pour les requêtes
+        ThreadFactory factory = virtualThreads
+                ? Thread.ofVirtual().name("write-behind-flusher").factory()
+                : Thread.ofPlatform().name("write-behind-flusher").daemon(true).factory();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(factory);
+        this.scheduler.scheduleWithFixedDelay(this::flushAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Enregistre l'action d'écriture d'un repository.
+     *
+     * @param name   Nom logique du fichier (ex : "customers").
+     * @param action Écriture complète de l'état courant sur disque.
+     */
+    public void register(String name, Runnable action) {
+        targets.put(name, new Target(name, action, meterRegistry));
+    }
+
+    /**
+     * Signale une mutation en mémoire non encore écrite sur disque.
+     */
+    public void markDirty(String name) {
+        Target target = targets.get(name);
+        if (target == null) {
+            throw new IllegalStateException("Repository non enregistré auprès du flusher : " + name);
+        }
+        if (target.pending.incrementAndGet() == batchSize && !scheduler.isShutdown()) {
+            scheduler.execute(() -> target.flush(false));
+        }
+    }
+
+    /**
+     * Barrière durable : écrit immédiatement les mutations en attente du repository,
+     * dans le thread appelant. Au retour, l'état courant est sur disque.
+     *
+     * @throws RuntimeException si l'écriture échoue (les mutations restent en attente).
+     */
+    public void flush(String name) {
+        Target target = targets.get(name);
+        if (target != null) target.flush(true);
+    }
+
+    /**
+     * Écrit les mutations en attente de tous les repositories.
+     */
+    public void flushAll() {
+        for (Target target : targets.values()) {
+            target.flush(false);
+        }
+    }
+
+    /**
+     * Hook d'arrêt : plus aucune écriture différée, tout ce qui est en attente part sur disque.
+     */
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(flushIntervalMs * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushAll();
+        logger.info("Write-behind : mutations en attente écrites sur disque avant l'arrêt.");
+    }
+
+    /**
+     * Un fichier géré par le flusher : compteur de mutations en attente + verrou d'écriture.
+     * <p>
+     * Métriques : durée de chaque écriture ({@code pizzeria.persistence.flush}), mutations
+     * regroupées par écriture, échecs et mutations en attente.
+     * </p>
+     */
+    private static final class Target {
+
+        private final String name;
+        private final Runnable action;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Timer writeTimer;
+        private final DistributionSummary batchSummary;
+        private final Counter failures;
+
+        private Target(String name, Runnable action, MeterRegistry registry) {
+            this.name = name;
+            this.action = action;
+            this.writeTimer = Timer.builder("pizzeria.persistence.flush")
+                    .description("Durée d'une écriture du fichier sur disque")
+                    .tag("target", name)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.batchSummary = DistributionSummary.builder("pizzeria.persistence.flush.mutations")
+                    .description("Mutations regroupées par écriture")
+                    .tag("target", name)
+                    .register(registry);
+            this.failures = Counter.builder("pizzeria.persistence.flush.errors")
+                    .description("Écritures en échec")
+                    .tag("target", name)
+                    .register(registry);
+            Gauge.builder("pizzeria.persistence.pending", pending, AtomicInteger::get)
+                    .description("Mutations en attente d'écriture")
+                    .tag("target", name)
+                    .register(registry);
+        }
+
+        private void flush(boolean rethrow) {
+            lock.lock();
+            try {
+                int count = pending.getAndSet(0);
+                if (count == 0) return;
+                long start = System.nanoTime();
+                try {
+                    action.run();
+                    writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    batchSummary.record(count);
+                    logger.debug("Write-behind {} : {} mutation(s) écrite(s) en une fois.", name, count);
+                } catch (RuntimeException e) {
+                    // Échec : on remet les mutations en attente pour la prochaine tentative
+                    pending.addAndGet(count);
+                    failures.increment();
+                    logger.error("Write-behind {} : échec de l'écriture, nouvelle tentative au prochain cycle.", name, e);
+                    if (rethrow) throw e;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.esgi.pizzeria.service;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -29,9 +30,14 @@ public class CustomerService {
     public static final int    POINTS_PER_EURO            = 1;
     public static final int    POINTS_PER_REDEMPTION      = 100;
     public static final BigDecimal DISCOUNT_PER_REDEMPTION = new BigDecimal("5.00");
-    public static final double AUTO_DISCOUNT_RATE          = 5.0;
+    // Remise automatique : valeurs de la règle par défaut (initial-promotions.json) et de l'aperçu
+    // du frontend ; le calcul de la commande applique les règles de PromotionEngine
+    public static final int    AUTO_DISCOUNT_RATE          = 5; // en %
     public static final BigDecimal AUTO_DISCOUNT_THRESHOLD = new BigDecimal("20.00");
 
+    // Nombre maximal de clients renvoyés par une recherche par préfixe
+    public static final int    MAX_SEARCH_RESULTS         = 50;
+
     private final JsonCustomerRepository repository;
 
     public CustomerService(JsonCustomerRepository repository) {
@@ -50,6 +56,19 @@ public class CustomerService {
         return repository.findByPhone(phone);
     }
 
+    /**
+     * Recherche "au fil de la frappe" : préfixe de téléphone ou de nom, résultats bornés.
+     *
+     * @param prefix Début du numéro ou d'un mot du nom.
+     * @param offset Décalage de pagination (>= 0).
+     * @param limit  Nombre de résultats souhaité, plafonné à {@value #MAX_SEARCH_RESULTS}.
+     */
+    public List<Customer> searchByPrefix(String prefix, int offset, int limit) {
+        if (prefix == null || prefix.isBlank()) return List.of();
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS));
+        return repository.searchByPrefix(prefix, Math.max(0, offset), boundedLimit);
+    }
+
     public Customer save(Customer customer) {
         if (customer.getId() == null || customer.getId().isEmpty()) {
             customer.setId(UUID.randomUUID().toString());
@@ -77,7 +96,7 @@ public class CustomerService {
         Customer customer = repository.findById(customerId)
                 .orElseThrow(() -> new IllegalArgumentException("Client introuvable : " + customerId));
 
-        int pointsEarned = orderTotal.intValue() * POINTS_PER_EURO;
+        int pointsEarned = pointsEarned(orderTotal);
         customer.setLoyaltyPoints(customer.getLoyaltyPoints() + pointsEarned);
         repository.save(customer);
 
@@ -85,6 +104,32 @@ public class CustomerService {
         return customer;
     }
 
+    /**
+     * Crédit groupé des points d'un lot de commandes : chaque client n'est mis à jour qu'une fois.
+     *
+     * @param pointsByCustomer Points gagnés par ID client (voir {@link #pointsEarned}).
+     */
+    public void addLoyaltyPoints(Map<String, Integer> pointsByCustomer) {
+        for (Map.Entry<String, Integer> e : pointsByCustomer.entrySet()) {
+            Optional<Customer> customer = repository.findById(e.getKey());
+            if (customer.isEmpty()) {
+                logger.warn("Impossible de créditer les points fidélité : client {} introuvable.", e.getKey());
+                continue;
+            }
+            Customer c = customer.get();
+            c.setLoyaltyPoints(c.getLoyaltyPoints() + e.getValue());
+            repository.save(c);
+            logger.info("Client {} : +{} points (total: {})", c.getName(), e.getValue(), c.getLoyaltyPoints());
+        }
+    }
+
+    /**
+     * Points gagnés pour une commande : 1 point par euro du montant final, tronqué.
+     */
+    public static int pointsEarned(BigDecimal orderTotal) {
+        return orderTotal.intValue() * POINTS_PER_EURO;
+    }
+
     /**
      * Utilise des points de fidélité et retourne le montant de la remise.
      * Règle : 100 points = 5€ de réduction.
@@ -110,6 +155,8 @@ public class CustomerService {
 
         customer.setLoyaltyPoints(customer.getLoyaltyPoints() - pointsToRedeem);
         repository.save(customer);
+        // Points consommés = argent rendu au client : écriture disque garantie avant la réponse
+        repository.flush();
 
         int redemptions = pointsToRedeem / POINTS_PER_REDEMPTION;
         BigDecimal discount = DISCOUNT_PER_REDEMPTION.multiply(BigDecimal.valueOf(redemptions));
@@ -0,0 +1,16 @@
+package com.esgi.pizzeria.service;
+
+/**
+ * Clé d'idempotence déjà utilisée pour une requête différente (autre panier, autre paiement...).
+ * <p>
+ * Renvoyer la commande d'origine masquerait l'erreur de la caisse (clé réutilisée par erreur) ;
+ * traiter la nouvelle requête casserait la garantie « au plus une fois » de la clé. La requête est
+ * refusée (422) : la caisse doit générer une nouvelle clé pour un nouvel encaissement.
+ * </p>
+ */
+public class IdempotencyKeyMismatchException extends RuntimeException {
+
+    public IdempotencyKeyMismatchException(String key) {
+        super("Clé d'idempotence " + key + " déjà utilisée pour une autre commande : générer une nouvelle clé.");
+    }
+}
@@ -0,0 +1,319 @@
+package com.esgi.pizzeria.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.esgi.pizzeria.domain.Order;
+import com.esgi.pizzeria.domain.OrderLine;
+import com.esgi.pizzeria.repository.JsonOrderRepository;
+import com.esgi.pizzeria.util.SecurityUtils;
+
+/**
+ * Idempotence des encaissements (en-tête {@code Idempotency-Key}).
+ * <p>
+ * Une caisse qui renvoie une commande après un délai réseau réutilise la même clé : la commande
+ * d'origine est renvoyée telle quelle, sans recalcul des prix, ni déduction de stock, ni nouvelle
+ * écriture, ni second crédit de fidélité.
+ * </p>
+ * <ul>
+ *   <li>BORNÉ : seules les clés récentes sont retenues (durée de vie et nombre maximal), les plus
+ *       anciennes sont évincées en premier.</li>
+ *   <li>CONCURRENCE : deux envois simultanés de la même clé n'exécutent la commande qu'une fois,
+ *       le second attend le résultat du premier.</li>
+ *   <li>REPRISE : la clé est enregistrée dans la commande ; le cache est reconstruit depuis le
+ *       journal au démarrage. Un échec (stock insuffisant...) n'est pas retenu : la caisse peut réessayer.</li>
+ *   <li>COHÉRENCE : chaque clé est associée à l'empreinte de sa requête ({@link #requestHash}). La même
+ *       clé avec une requête différente est refusée ({@link IdempotencyKeyMismatchException}) au lieu de
+ *       renvoyer une commande qui ne correspond pas à ce qui a été envoyé.</li>
+ * </ul>
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final int MAX_KEY_LENGTH = 128;
+
+    private final JsonOrderRepository orderRepository;
+    private final Duration ttl;
+    private final int maxEntries;
+
+    // Clés traitées → commande, par ordre d'enregistrement (la plus ancienne en tête)
+    private final Map<String, Entry> completed;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Clés en cours de traitement : les doublons simultanés attendent ce résultat
+    private final ConcurrentMap<String, Pending> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(JsonOrderRepository orderRepository,
+                              @Value("${pizzeria.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${pizzeria.idempotency.max-entries:10000}") int maxEntries) {
+        this.orderRepository = orderRepository;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.maxEntries = maxEntries;
+        this.completed = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > IdempotencyService.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Reconstruit le cache à partir des commandes récentes du journal, appelé par
+     * {@link com.esgi.pizzeria.config.DataBootstrap} une fois les commandes chargées.
+     */
+    public void rebuild() {
+        LocalDateTime since = LocalDateTime.now().minus(ttl);
+        lock.lock();
+        try {
+            completed.clear();
+            orderRepository.forEachInRange(since, null, order -> {
+                if (order.getIdempotencyKey() != null) {
+                    completed.put(order.getIdempotencyKey(),
+                            new Entry(order.getId(), order.getRequestHash(), createdAt(order)));
+                }
+            });
+        } finally {
+            lock.unlock();
+        }
+        logger.info("Idempotence : {} clé(s) récente(s) rechargée(s).", completed.size());
+    }
+
+    /**
+     * Contrôle le format d'une clé reçue.
+     *
+     * @return La clé, ou null si aucune clé n'a été fournie.
+     * @throws IllegalArgumentException si la clé est vide ou trop longue.
+     */
+    public static String validateKey(String key) {
+        if (key == null) return null;
+        String trimmed = key.trim();
+        if (trimmed.isEmpty() || trimmed.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(
+                "Clé d'idempotence invalide (1 à " + MAX_KEY_LENGTH + " caractères).");
+        }
+        return trimmed;
+    }
+
+    /**
+     * Empreinte canonique d'une requête d'encaissement, calculée avant tout traitement.
+     * <p>
+     * Seuls les champs envoyés par la caisse et déterminants pour l'encaissement sont pris en compte :
+     * lignes (produit et quantité, regroupées et triées par produit), paiement, client, vendeur, table et
+     * remise manuelle. L'ID de commande est exclu (généré côté serveur s'il est absent), de même que les
+     * prix et libellés, toujours recalculés depuis le catalogue.
+     * </p>
+     *
+     * @return L'empreinte SHA-256 hexadécimale.
+     */
+    public static String requestHash(Order order) {
+        Map<String, Integer> lines = new TreeMap<>();
+        if (order.getItems() != null) {
+            for (OrderLine line : order.getItems()) {
+                if (line != null) lines.merge(Objects.toString(line.getId(), ""), line.getQuantity(), Integer::sum);
+            }
+        }
+        StringBuilder canonical = new StringBuilder();
+        lines.forEach((id, quantity) -> canonical.append(id).append('=').append(quantity).append(';'));
+        canonical.append('|').append(Objects.toString(order.getPaymentMethod(), ""))
+                .append('|').append(Objects.toString(order.getCustomerId(), ""))
+                .append('|').append(Objects.toString(order.getSalespersonId(), ""))
+                .append('|').append(order.getTableNumber())
+                .append('|').append(order.getDiscountAmount() == null ? ""
+                        : order.getDiscountAmount().stripTrailingZeros().toPlainString())
+                .append('|').append(Objects.toString(order.getDiscountReason(), ""));
+        return SecurityUtils.sha256(canonical.toString());
+    }
+
+    /**
+     * Exécute une création de commande au plus une fois par clé.
+     *
+     * @param key         Clé validée (null = pas d'idempotence, exécution directe).
+     * @param requestHash Empreinte de la requête ({@link #requestHash}).
+     * @param action      Création effective de la commande.
+     * @return La commande, et si elle provient d'un envoi précédent.
+     * @throws IdempotencyKeyMismatchException si la clé a déjà servi pour une autre requête.
+     */
+    public Result execute(String key, String requestHash, Supplier<Order> action) {
+        if (key == null) return new Result(action.get(), false);
+
+        Optional<Order> previous = begin(key, requestHash);
+        if (previous.isPresent()) return replay(key, previous.get());
+
+        Order order;
+        try {
+            order = action.get();
+        } catch (OrderNotDurableException e) {
+            // Commande enregistrée, écriture disque à venir : un nouvel essai doit la retrouver
+            complete(key, e.getOrders().get(0));
+            throw e;
+        } catch (RuntimeException e) {
+            abort(key, e);
+            throw e;
+        }
+        complete(key, order);
+        return new Result(order, false);
+    }
+
+    /**
+     * Prend en charge une clé avant le traitement d'une commande.
+     * <p>
+     * Si la clé a déjà été traitée pour la même requête, la commande d'origine est retournée (après
+     * attente si un autre envoi est en cours). Sinon la clé est réservée à l'appelant, qui doit terminer
+     * par {@link #complete} ou {@link #abort}. La commande passée ensuite à {@link #complete} doit porter
+     * la même empreinte ({@link Order#getRequestHash()}).
+     * </p>
+     *
+     * @param requestHash Empreinte de la requête ({@link #requestHash}).
+     * @return La commande d'origine, ou vide si l'appelant doit traiter la commande.
+     * @throws IdempotencyKeyMismatchException si la clé a déjà servi (ou sert en ce moment) pour une autre requête.
+     */
+    public Optional<Order> begin(String key, String requestHash) {
+        Optional<Order> previous = lookup(key, requestHash);
+        if (previous.isPresent()) return previous;
+
+        Pending mine = new Pending(requestHash, new CompletableFuture<>());
+        Pending running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            checkHash(key, running.requestHash(), requestHash);
+            return Optional.of(await(running.result()));
+        }
+
+        // Le premier envoi a pu se terminer entre la recherche et l'inscription
+        try {
+            previous = lookup(key, requestHash);
+        } catch (IdempotencyKeyMismatchException e) {
+            inFlight.remove(key, mine);
+            mine.result().completeExceptionally(e);
+            throw e;
+        }
+        if (previous.isPresent()) {
+            inFlight.remove(key, mine);
+            mine.result().complete(previous.get());
+        }
+        return previous;
+    }
+
+    /**
+     * Enregistre la commande créée pour une clé réservée par {@link #begin}.
+     */
+    public void complete(String key, Order order) {
+        remember(key, order);
+        Pending running = inFlight.remove(key);
+        if (running != null) running.result().complete(order);
+    }
+
+    /**
+     * Libère une clé réservée par {@link #begin} après un échec : l'erreur est transmise aux
+     * envois simultanés, mais un nouvel essai pourra traiter la commande.
+     */
+    public void abort(String key, RuntimeException error) {
+        Pending running = inFlight.remove(key);
+        if (running != null) running.result().completeExceptionally(error);
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return completed.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Optional<Order> lookup(String key, String requestHash) {
+        Entry entry;
+        lock.lock();
+        try {
+            purgeExpired();
+            entry = completed.get(key);
+        } finally {
+            lock.unlock();
+        }
+        if (entry == null) return Optional.empty();
+        checkHash(key, entry.requestHash(), requestHash);
+        return orderRepository.findById(entry.orderId());
+    }
+
+    /**
+     * Refuse une requête dont l'empreinte diffère de celle enregistrée avec la clé. Une commande
+     * enregistrée avant le calcul des empreintes (aucune empreinte) est acceptée telle quelle.
+     */
+    private static void checkHash(String key, String expected, String actual) {
+        if (expected != null && actual != null && !expected.equals(actual)) {
+            logger.warn("Clé d'idempotence {} réutilisée pour une requête différente : refusée.", key);
+            throw new IdempotencyKeyMismatchException(key);
+        }
+    }
+
+    private void remember(String key, Order order) {
+        lock.lock();
+        try {
+            completed.put(key, new Entry(order.getId(), order.getRequestHash(), LocalDateTime.now()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retire les clés expirées ; l'ordre d'insertion étant chronologique, il suffit de lire la tête.
+     */
+    private void purgeExpired() {
+        LocalDateTime limit = LocalDateTime.now().minus(ttl);
+        Iterator<Entry> it = completed.values().iterator();
+        while (it.hasNext()) {
+            if (!it.next().createdAt().isBefore(limit)) break;
+            it.remove();
+        }
+    }
+
+    private static Result replay(String key, Order order) {
+        logger.info("Commande {} renvoyée sans nouveau traitement (clé d'idempotence {}).", order.getId(), key);
+        return new Result(order, true);
+    }
+
+    private static Order await(CompletableFuture<Order> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    private static LocalDateTime createdAt(Order order) {
+        try {
+            return order.getDate() != null ? LocalDateTime.parse(order.getDate()) : LocalDateTime.now();
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.now();
+        }
+    }
+
+    private record Entry(String orderId, String requestHash, LocalDateTime createdAt) {}
+
+    private record Pending(String requestHash, CompletableFuture<Order> result) {}
+
+    /**
+     * Résultat d'un encaissement : la commande, et {@code replayed} si elle provient d'un envoi précédent.
+     */
+    public record Result(Order order, boolean replayed) {}
+}
@@ -0,0 +1,259 @@
+package com.esgi.pizzeria.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.esgi.pizzeria.domain.Dish;
+import com.esgi.pizzeria.domain.Ingredient;
+import com.esgi.pizzeria.domain.Product;
+import com.esgi.pizzeria.repository.JsonIngredientRepository;
+import com.esgi.pizzeria.repository.JsonProductRepository;
+
+/**
+ * Consommation des ingrédients selon les recettes des plats ({@link Dish#getRecipe()}).
+ * <p>
+ * PERFORMANCE : les recettes sont précompilées en vecteurs (ID ingrédient, quantité par portion)
+ * pour la version courante du catalogue ; ils ne sont recalculés que lorsqu'un produit est
+ * ajouté, modifié ou supprimé. Le contrôle d'une commande coûte O(lignes × ingrédients par recette),
+ * sans aucun parcours de repository.
+ * </p>
+ * <p>
+ * CONCURRENCE : vérification et déduction se font sous un même verrou, en tout-ou-rien.
+ * Une commande qui ferait passer un ingrédient sous zéro est refusée sans rien déduire.
+ * Validation et annulation relisent chaque ingrédient par ID sous ce verrou, que prennent aussi
+ * les modifications de l'administration ({@link IngredientService}) : une modification n'est jamais
+ * écrasée, un ingrédient supprimé n'est jamais recréé.
+ * </p>
+ */
+@Service
+public class IngredientConsumptionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngredientConsumptionService.class);
+
+    // Tolérance des comparaisons sur les stocks décimaux (ex : 0.1 + 0.2)
+    private static final double EPSILON = 1e-9;
+
+    private final JsonProductRepository productRepository;
+    private final JsonIngredientRepository ingredientRepository;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile RecipeVectors vectors = new RecipeVectors(-1, Map.of());
+
+    public IngredientConsumptionService(JsonProductRepository productRepository,
+                                        JsonIngredientRepository ingredientRepository) {
+        this.productRepository = productRepository;
+        this.ingredientRepository = ingredientRepository;
+    }
+
+    /**
+     * Réserve atomiquement les ingrédients nécessaires à une commande.
+     *
+     * @param quantities Quantité totale par produit.
+     * @return La réservation, à valider par {@link #commit} ou annuler par {@link #release}.
+     * @throws IllegalStateException si un ingrédient est en quantité insuffisante.
+     */
+    public Reservation reserve(Map<Product, Integer> quantities) {
+        // 1. Besoin total par ingrédient : somme des vecteurs de recette × quantités
+        Map<String, RecipeVectors.Portion[]> recipes = currentVectors().recipes();
+        Map<String, Double> needs = new LinkedHashMap<>();
+        for (Map.Entry<Product, Integer> e : quantities.entrySet()) {
+            RecipeVectors.Portion[] recipe = recipes.get(e.getKey().getId());
+            if (recipe == null || e.getValue() <= 0) continue;
+            for (RecipeVectors.Portion portion : recipe) {
+                needs.merge(portion.ingredientId(), portion.quantity() * e.getValue(), Double::sum);
+            }
+        }
+        if (needs.isEmpty()) return new Reservation(Map.of());
+
+        Map<String, Deduction> deducted = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            // 2. Vérification de tous les ingrédients avant toute déduction
+            Map<Ingredient, Double> resolved = new LinkedHashMap<>();
+            for (Map.Entry<String, Double> need : needs.entrySet()) {
+                Optional<Ingredient> ingredient = ingredientRepository.findById(need.getKey());
+                if (ingredient.isEmpty()) {
+                    logger.warn("Ingrédient de recette introuvable (ID: {}). Ignoré.", need.getKey());
+                    continue;
+                }
+                Ingredient ing = ingredient.get();
+                if (ing.getStock() - need.getValue() < -EPSILON) {
+                    throw new IllegalStateException(
+                        "Ingrédient insuffisant : \"" + ing.getName() + "\" "
+                        + "(disponible : " + format(ing.getStock()) + unitOf(ing)
+                        + ", requis : " + format(need.getValue()) + unitOf(ing) + ")."
+                    );
+                }
+                resolved.put(ing, need.getValue());
+            }
+            // 3. Déduction de l'ensemble
+            for (Map.Entry<Ingredient, Double> e : resolved.entrySet()) {
+                Ingredient ing = e.getKey();
+                double before = ing.getStock();
+                ing.setStock(Math.max(0, before - e.getValue()));
+                // Quantité réellement retirée (plafonnée au stock) : seule restituée en cas d'annulation
+                deducted.put(ing.getId(), new Deduction(ing, before - ing.getStock()));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new Reservation(deducted);
+    }
+
+    /**
+     * Valide la réservation : les nouveaux stocks d'ingrédients sont persistés en une seule écriture.
+     */
+    public void commit(Reservation reservation) {
+        commitAll(List.of(reservation));
+    }
+
+    /**
+     * Valide plusieurs réservations (lot de commandes) : une seule écriture pour tous les ingrédients.
+     * <p>
+     * Sous le verrou, chaque ingrédient est relu par ID : un ingrédient supprimé depuis la réservation
+     * n'est pas recréé. Un ingrédient remplacé entre-temps par l'administration reçoit la déduction,
+     * pour ne pas perdre la consommation de la vente.
+     * </p>
+     */
+    public void commitAll(Collection<Reservation> reservations) {
+        if (reservations.stream().allMatch(r -> r.deductions.isEmpty())) return;
+        lock.lock();
+        try {
+            Map<String, Ingredient> current = new LinkedHashMap<>();
+            for (Reservation reservation : reservations) {
+                for (Map.Entry<String, Deduction> e : reservation.deductions.entrySet()) {
+                    Optional<Ingredient> found = ingredientRepository.findById(e.getKey());
+                    if (found.isEmpty()) continue;
+                    Ingredient ing = found.get();
+                    Deduction deduction = e.getValue();
+                    if (ing != deduction.ingredient()) {
+                        ing.setStock(Math.max(0, ing.getStock() - deduction.quantity()));
+                        logger.info("Ingrédient {} modifié pendant la vente : déduction reportée.", ing.getName());
+                    }
+                    current.put(ing.getId(), ing);
+                }
+            }
+            if (!current.isEmpty()) ingredientRepository.saveAll(current.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Annule la réservation (rollback) : les quantités réellement déduites sont restituées.
+     * <p>
+     * Seule l'instance déduite est restituée : un ingrédient supprimé ou remplacé depuis la réservation
+     * n'a jamais porté la déduction.
+     * </p>
+     */
+    public void release(Reservation reservation) {
+        if (reservation.deductions.isEmpty()) return;
+        lock.lock();
+        try {
+            List<Ingredient> restored = new ArrayList<>();
+            for (Map.Entry<String, Deduction> e : reservation.deductions.entrySet()) {
+                Deduction deduction = e.getValue();
+                Optional<Ingredient> found = ingredientRepository.findById(e.getKey());
+                if (found.isEmpty() || found.get() != deduction.ingredient()) continue;
+                Ingredient ing = found.get();
+                ing.setStock(ing.getStock() + deduction.quantity());
+                restored.add(ing);
+            }
+            if (!restored.isEmpty()) ingredientRepository.saveAll(restored);
+        } finally {
+            lock.unlock();
+        }
+        logger.warn("Consommation d'ingrédients annulée ({} ingrédient(s)).", reservation.deductions.size());
+    }
+
+    /**
+     * Exécute une mutation des ingrédients (administration) sous le verrou des réservations : elle ne
+     * peut pas s'intercaler entre la relecture d'un ingrédient et l'écriture de son stock.
+     */
+    public <T> T withIngredientLock(Supplier<T> action) {
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Vecteurs de recettes de la version courante du catalogue, recompilés si elle a changé.
+     */
+    private RecipeVectors currentVectors() {
+        RecipeVectors current = vectors;
+        long version = productRepository.getVersion();
+        if (current.version() == version) return current;
+
+        Map<String, RecipeVectors.Portion[]> recipes = new HashMap<>();
+        for (Product p : productRepository.findAll()) {
+            if (!(p instanceof Dish dish) || dish.getRecipe() == null || dish.getRecipe().isEmpty()) continue;
+            RecipeVectors.Portion[] portions = dish.getRecipe().entrySet().stream()
+                    .filter(e -> e.getValue() != null && e.getValue() > 0)
+                    .map(e -> new RecipeVectors.Portion(e.getKey(), e.getValue()))
+                    .toArray(RecipeVectors.Portion[]::new);
+            if (portions.length > 0) recipes.put(p.getId(), portions);
+        }
+        current = new RecipeVectors(version, recipes);
+        vectors = current;
+        logger.info("Recettes compilées (catalogue v{}) : {} plat(s).", version, recipes.size());
+        return current;
+    }
+
+    private static String format(double value) {
+        return String.valueOf(Math.round(value * 1000) / 1000.0);
+    }
+
+    private static String unitOf(Ingredient ing) {
+        return ing.getUnit() != null ? " " + ing.getUnit() : "";
+    }
+
+    /**
+     * Recettes précompilées pour une version du catalogue : ID produit → portions.
+     */
+    private record RecipeVectors(long version, Map<String, Portion[]> recipes) {
+
+        private record Portion(String ingredientId, double quantity) {}
+    }
+
+    /**
+     * Déduction appliquée à une instance précise d'ingrédient.
+     */
+    private record Deduction(Ingredient ingredient, double quantity) {
+    }
+
+    /**
+     * Quantités d'ingrédients effectivement déduites pour une commande, par ID ingrédient.
+     */
+    public static final class Reservation {
+
+        private final Map<String, Deduction> deductions;
+
+        private Reservation(Map<String, Deduction> deductions) {
+            this.deductions = Collections.unmodifiableMap(deductions);
+        }
+
+        /**
+         * @return Quantité déduite par ID ingrédient.
+         */
+        public Map<String, Double> getQuantities() {
+            Map<String, Double> quantities = new LinkedHashMap<>();
+            deductions.forEach((id, deduction) -> quantities.put(id, deduction.quantity()));
+            return quantities;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.esgi.pizzeria.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.esgi.pizzeria.domain.Ingredient;
+import com.esgi.pizzeria.repository.JsonIngredientRepository;
+
+/**
+ * Service d'administration des ingrédients.
+ * <p>
+ * Les créations, modifications et suppressions passent par le verrou des réservations
+ * ({@link IngredientConsumptionService}) : une vente en cours ne peut ni écraser une modification
+ * en enregistrant ses stocks, ni recréer un ingrédient supprimé.
+ * </p>
+ */
+@Service
+public class IngredientService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IngredientService.class);
+
+    private final JsonIngredientRepository repository;
+    private final IngredientConsumptionService consumptionService;
+
+    public IngredientService(JsonIngredientRepository repository, IngredientConsumptionService consumptionService) {
+        this.repository = repository;
+        this.consumptionService = consumptionService;
+    }
+
+    public List<Ingredient> findAll() {
+        return repository.findAll();
+    }
+
+    /**
+     * Crée ou met à jour un ingrédient (Upsert).
+     */
+    public Ingredient save(Ingredient ingredient) {
+        return consumptionService.withIngredientLock(() -> repository.save(ingredient));
+    }
+
+    public void delete(String id) {
+        consumptionService.withIngredientLock(() -> {
+            repository.deleteById(id);
+            return null;
+        });
+        logger.info("Ingrédient supprimé : {}", id);
+    }
+}
@@ -0,0 +1,266 @@
+package com.esgi.pizzeria.service;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.esgi.pizzeria.domain.Order;
+import com.esgi.pizzeria.domain.OrderLine;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Flux temps réel des nouvelles commandes pour les écrans cuisine et bar (Server-Sent Events).
+ * <p>
+ * Chaque abonné choisit ses catégories (ex : PIZZA,PASTA pour la cuisine, BEER,WINE_RED pour le bar)
+ * et ne reçoit que les lignes concernées.
+ * </p>
+ * <ul>
+ *   <li>CONTRE-PRESSION : chaque abonné a un tampon borné. Un écran trop lent pour suivre est
+ *       déconnecté au lieu de ralentir la caisse ; il se reconnecte avec {@code Last-Event-ID}.</li>
+ *   <li>REPRISE : les derniers événements sont conservés dans un tampon circulaire et rejoués
+ *       à la reconnexion, à partir de l'ID reçu.</li>
+ *   <li>Les envois réseau se font hors du thread de la commande.</li>
+ * </ul>
+ */
+@Service
+public class KitchenFeedService {
+
+    private static final Logger logger = LoggerFactory.getLogger(KitchenFeedService.class);
+
+    public static final String EVENT_NAME = "order";
+    private static final long HEARTBEAT_SECONDS = 15;
+
+    private final int historySize;
+    private final int subscriberBufferSize;
+
+    // IDs croissants y compris d'un démarrage à l'autre : base = horodatage de démarrage
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    // Tampon circulaire des derniers événements (reprise) ; protège aussi l'inscription des abonnés
+    private final Deque<FeedEvent> history = new ArrayDeque<>();
+    private final ReentrantLock historyLock = new ReentrantLock();
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService senders;
+    private final ScheduledExecutorService heartbeat;
+
+    public KitchenFeedService(@Value("${pizzeria.kitchen-feed.history-size:512}") int historySize,
+                              @Value("${pizzeria.kitchen-feed.subscriber-buffer-size:128}") int subscriberBufferSize,
+                              @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.historySize = historySize;
+        this.subscriberBufferSize = subscriberBufferSize;
+        // Envois réseau bloquants : un thread virtuel par envoi, ou un pool de threads classiques
+        this.senders = virtualThreads
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("kitchen-feed-", 1).factory())
+                : Executors.newCachedThreadPool(Thread.ofPlatform().name("kitchen-feed-", 1).daemon(true).factory());
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(virtualThreads
+                ? Thread.ofVirtual().name("kitchen-feed-heartbeat").factory()
+                : Thread.ofPlatform().name("kitchen-feed-heartbeat").daemon(true).factory());
+        this.heartbeat.scheduleWithFixedDelay(this::sendHeartbeats, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Abonne un écran au flux.
+     *
+     * @param categories  Catégories suivies (null ou vide = toutes).
+     * @param lastEventId Dernier ID reçu avant une reconnexion (null = aucun rejeu).
+     */
+    public SseEmitter subscribe(Set<String> categories, Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(0L); // pas d'expiration : le heartbeat détecte les déconnexions
+        Subscriber subscriber = new Subscriber(emitter, normalize(categories), subscriberBufferSize);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        historyLock.lock();
+        try {
+            // Rejeu puis inscription sous le même verrou : ni trou ni doublon avec le direct
+            if (lastEventId != null) {
+                for (FeedEvent event : history) {
+                    if (event.id > lastEventId && subscriber.accepts(event)) {
+                        if (!subscriber.queue.offer(event)) {
+                            // Retard supérieur au tampon : on garde les plus récents
+                            subscriber.queue.poll();
+                            subscriber.queue.offer(event);
+                        }
+                    }
+                }
+            }
+            subscribers.add(subscriber);
+        } finally {
+            historyLock.unlock();
+        }
+        logger.info("Écran abonné au flux cuisine (catégories : {}, {} abonné(s)).",
+                subscriber.categories.isEmpty() ? "toutes" : subscriber.categories, subscribers.size());
+        scheduleDrain(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Diffuse une commande enregistrée. Non bloquant : les envois sont asynchrones.
+     */
+    public void publish(Order order) {
+        FeedEvent event = new FeedEvent(sequence.incrementAndGet(), order);
+        List<Subscriber> overflowed = new ArrayList<>();
+
+        historyLock.lock();
+        try {
+            history.addLast(event);
+            if (history.size() > historySize) history.removeFirst();
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.accepts(event) && !subscriber.queue.offer(event)) {
+                    overflowed.add(subscriber);
+                }
+            }
+        } finally {
+            historyLock.unlock();
+        }
+
+        for (Subscriber subscriber : overflowed) {
+            logger.warn("Écran du flux cuisine trop lent : déconnecté (reprise possible via Last-Event-ID).");
+            remove(subscriber);
+            subscriber.emitter.complete();
+        }
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.queue.isEmpty()) scheduleDrain(subscriber);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+        senders.shutdown();
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            logger.info("Écran désabonné du flux cuisine ({} abonné(s)).", subscribers.size());
+        }
+    }
+
+    /**
+     * Un seul envoi en cours par abonné : l'ordre des événements est préservé.
+     */
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                senders.execute(() -> drain(subscriber));
+            } catch (RuntimeException e) {
+                subscriber.draining.set(false); // arrêt de l'application
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            FeedEvent event;
+            while ((event = subscriber.queue.poll()) != null) {
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(Long.toString(event.id))
+                        .name(EVENT_NAME)
+                        .data(KitchenTicket.of(event.order, subscriber.categories)));
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Écran déconnecté
+            remove(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // Un événement a pu arriver entre la fin de la boucle et la libération du drapeau
+        if (!subscriber.queue.isEmpty() && subscribers.contains(subscriber)) scheduleDrain(subscriber);
+    }
+
+    private void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            senders.execute(() -> {
+                try {
+                    subscriber.emitter.send(SseEmitter.event().comment("ping"));
+                } catch (IOException | IllegalStateException e) {
+                    remove(subscriber);
+                }
+            });
+        }
+    }
+
+    private static Set<String> normalize(Set<String> categories) {
+        if (categories == null) return Set.of();
+        Set<String> normalized = new HashSet<>();
+        for (String c : categories) {
+            if (c != null && !c.isBlank()) normalized.add(c.trim().toUpperCase(Locale.ROOT));
+        }
+        return Set.copyOf(normalized);
+    }
+
+    private record FeedEvent(long id, Order order) {}
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Set<String> categories;
+        private final BlockingQueue<FeedEvent> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, Set<String> categories, int bufferSize) {
+            this.emitter = emitter;
+            this.categories = categories;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private boolean accepts(FeedEvent event) {
+            if (categories.isEmpty()) return true;
+            for (OrderLine line : event.order.getItems()) {
+                if (line.getCategory() != null && categories.contains(line.getCategory())) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Bon de préparation envoyé aux écrans : uniquement les lignes des catégories suivies.
+     */
+    public record KitchenTicket(String orderId, String date, int tableNumber, List<Item> items) {
+
+        public record Item(String id, String name, int quantity, String category) {}
+
+        static KitchenTicket of(Order order, Set<String> categories) {
+            List<Item> items = new ArrayList<>();
+            for (OrderLine line : order.getItems()) {
+                if (categories.isEmpty() || (line.getCategory() != null && categories.contains(line.getCategory()))) {
+                    items.add(new Item(line.getId(), line.getName(), line.getQuantity(), line.getCategory()));
+                }
+            }
+            return new KitchenTicket(order.getId(), order.getDate(), order.getTableNumber(), items);
+        }
+    }
+}
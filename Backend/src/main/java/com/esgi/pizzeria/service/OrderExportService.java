@@ -0,0 +1,95 @@
+package com.esgi.pizzeria.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.esgi.pizzeria.domain.Order;
+import com.esgi.pizzeria.repository.JsonOrderRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Export de l'historique des commandes pour la comptabilité, au format NDJSON
+ * (une commande JSON par ligne).
+ * <p>
+ * PERFORMANCE : les commandes sont lues directement dans l'index chronologique du repository
+ * et écrites une à une par le générateur Jackson en flux continu. Ni liste intermédiaire ni
+ * tableau JSON complet en mémoire : la mémoire utilisée ne dépend pas de la taille de l'historique.
+ * </p>
+ */
+@Service
+public class OrderExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderExportService.class);
+
+    private final JsonOrderRepository orderRepository;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Pas de flush après chaque commande : c'est le tampon du générateur qui décide
+    private final ObjectWriter orderWriter = objectMapper.writerFor(Order.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    public OrderExportService(JsonOrderRepository orderRepository) {
+        this.orderRepository = orderRepository;
+        // Le flux de sortie appartient au serveur HTTP : le générateur ne doit pas le fermer
+        this.objectMapper.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // Séparation des commandes par un saut de ligne (NDJSON), pas par l'espace par défaut
+        this.objectMapper.getFactory().setRootValueSeparator(null);
+    }
+
+    /**
+     * Écrit les commandes filtrées sur le flux, par ordre chronologique.
+     *
+     * @param from          Borne basse incluse (null = début de l'historique).
+     * @param to            Borne haute exclue (null = sans limite).
+     * @param salespersonId Vendeur (null = tous).
+     * @param paymentMethod Moyen de paiement, ex : "CASH" (null = tous).
+     * @param out           Flux de destination (non fermé).
+     * @return Nombre de commandes exportées.
+     * @throws IllegalArgumentException si la plage est invalide.
+     */
+    public long exportNdjson(LocalDateTime from, LocalDateTime to,
+                             String salespersonId, String paymentMethod,
+                             OutputStream out) throws IOException {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("La date de début doit précéder la date de fin.");
+        }
+
+        long[] count = {0};
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            orderRepository.forEachInRange(from, to, order -> {
+                if (salespersonId != null && !salespersonId.equals(order.getSalespersonId())) return;
+                if (paymentMethod != null && !paymentMethod.equalsIgnoreCase(order.getPaymentMethod())) return;
+                try {
+                    orderWriter.writeValue(generator, order);
+                    generator.writeRaw('\n');
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Typiquement : le client a interrompu le téléchargement
+            throw e.getCause();
+        }
+        logger.info("Export comptable : {} commande(s) exportée(s).", count[0]);
+        return count[0];
+    }
+
+    /**
+     * Écrit une réponse d'erreur au format habituel de l'API : {"message": "..."}.
+     */
+    public void writeError(String message, OutputStream out) throws IOException {
+        objectMapper.writeValue(out, Map.of("message", message));
+    }
+}
@@ -0,0 +1,27 @@
+package com.esgi.pizzeria.service;
+
+import java.util.List;
+
+import com.esgi.pizzeria.domain.Order;
+
+/**
+ * Commandes enregistrées (en mémoire, stocks déduits, clés d'idempotence retenues) dont la barrière
+ * durable a échoué : l'écriture disque sera retentée par le flush suivant.
+ * <p>
+ * Ce n'est pas un refus : rien n'est annulé, puisque les commandes seront persistées. La caisse doit
+ * renvoyer la même requête avec la même clé d'idempotence, qui lui rendra les commandes d'origine.
+ * </p>
+ */
+public class OrderNotDurableException extends RuntimeException {
+
+    private final transient List<Order> orders;
+
+    public OrderNotDurableException(List<Order> orders, RuntimeException cause) {
+        super("Commande enregistrée mais écriture disque non confirmée : renvoyer avec la même clé d'idempotence.", cause);
+        this.orders = List.copyOf(orders);
+    }
+
+    public List<Order> getOrders() {
+        return orders;
+    }
+}
@@ -1,22 +1,31 @@
 package com.esgi.pizzeria.service;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import com.esgi.pizzeria.domain.Drink;
+import com.esgi.pizzeria.domain.Money;
 import com.esgi.pizzeria.domain.Order;
 import com.esgi.pizzeria.domain.OrderLine;
 import com.esgi.pizzeria.domain.Product;
 import com.esgi.pizzeria.repository.JsonOrderRepository;
 import com.esgi.pizzeria.repository.JsonProductRepository;
+import com.esgi.pizzeria.repository.OrderPage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 /**
  * Service métier responsable de la gestion des commandes.
@@ -30,89 +39,369 @@ public class OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
 
+    // Pagination de l'historique : taille par défaut et plafond d'une page
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE     = 1000;
+
+    // Nombre maximal de commandes d'un lot (caisse revenue en ligne)
+    public static final int MAX_BATCH_SIZE    = 500;
+
     private final JsonOrderRepository orderRepository;
     private final JsonProductRepository productRepository;
     private final CustomerService customerService;
+    private final StockReservationService stockReservationService;
+    private final IngredientConsumptionService ingredientConsumptionService;
+    private final SalesStatsService salesStatsService;
+    private final KitchenFeedService kitchenFeedService;
+    private final IdempotencyService idempotencyService;
+    private final PromotionEngine promotionEngine;
+
+    // Métriques : durée totale d'un encaissement et de chacune de ses phases
+    private final Timer createSuccessTimer;
+    private final Timer createErrorTimer;
+    private final Timer batchTimer;
+    private final Timer pricingTimer;
+    private final Timer stockTimer;
+    private final Timer persistenceTimer;
+    private final Timer statsTimer;
+    private final Timer loyaltyTimer;
 
     public OrderService(JsonOrderRepository orderRepository,
                         JsonProductRepository productRepository,
-                        CustomerService customerService) {
+                        CustomerService customerService,
+                        StockReservationService stockReservationService,
+                        IngredientConsumptionService ingredientConsumptionService,
+                        SalesStatsService salesStatsService,
+                        KitchenFeedService kitchenFeedService,
+                        IdempotencyService idempotencyService,
+                        PromotionEngine promotionEngine,
+                        MeterRegistry meterRegistry) {
         this.orderRepository = orderRepository;
         this.productRepository = productRepository;
         this.customerService = customerService;
+        this.stockReservationService = stockReservationService;
+        this.ingredientConsumptionService = ingredientConsumptionService;
+        this.salesStatsService = salesStatsService;
+        this.kitchenFeedService = kitchenFeedService;
+        this.idempotencyService = idempotencyService;
+        this.promotionEngine = promotionEngine;
+        this.createSuccessTimer = createTimer(meterRegistry, "success");
+        this.createErrorTimer = createTimer(meterRegistry, "error");
+        this.batchTimer = Timer.builder("pizzeria.order.batch")
+                .description("Durée d'un encaissement groupé")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.pricingTimer = phaseTimer(meterRegistry, "pricing");
+        this.stockTimer = phaseTimer(meterRegistry, "stock");
+        this.persistenceTimer = phaseTimer(meterRegistry, "persistence");
+        this.statsTimer = phaseTimer(meterRegistry, "stats");
+        this.loyaltyTimer = phaseTimer(meterRegistry, "loyalty");
     }
 
-    public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+    private static Timer createTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("pizzeria.order.create")
+                .description("Durée totale d'un encaissement")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
     }
 
-    // ---------------------------------------------------------------
-    // EXERCICE 2.2 — Remise automatique
-    // ---------------------------------------------------------------
+    private static Timer phaseTimer(MeterRegistry registry, String phase) {
+        return Timer.builder("pizzeria.order.phase")
+                .description("Durée d'une phase de l'encaissement")
+                .tag("phase", phase)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
 
     /**
-     * Calcule le montant d'une réduction en pourcentage.
+     * Historique paginé, par ordre chronologique.
      *
-     * @param montant              Montant de base
-     * @param reductionPourcentage Taux de réduction (ex : 5.0 pour 5%)
-     * @return Montant de la réduction (pas le total final)
+     * @param from   Borne basse incluse (null = début de l'historique).
+     * @param to     Borne haute exclue (null = sans limite).
+     * @param cursor Curseur de la page précédente (null = première page).
+     * @param limit  Taille de page souhaitée (null = {@value #DEFAULT_PAGE_SIZE}), plafonnée à {@value #MAX_PAGE_SIZE}.
+     * @throws IllegalArgumentException si la plage ou le curseur est invalide.
      */
-    private static BigDecimal appliquerReduction(BigDecimal montant, double reductionPourcentage) {
-        return montant
-                .multiply(BigDecimal.valueOf(reductionPourcentage / 100.0))
-                .setScale(2, RoundingMode.HALF_UP);
+    public OrderPage findOrders(LocalDateTime from, LocalDateTime to, String cursor, Integer limit) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("La date de début doit précéder la date de fin.");
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return orderRepository.findPage(from, to, cursor, pageSize);
     }
 
     // ---------------------------------------------------------------
-    // EXERCICE 2.3 — Vérification et déduction du stock
+    // Création d'une commande
     // ---------------------------------------------------------------
 
     /**
-     * Retire une quantité du stock d'un produit si elle est disponible.
+     * Crée une commande au plus une fois par clé d'idempotence.
      * <p>
-     * stock == null ou <= 0 → illimité, toujours autorisé.<br>
-     * stock > 0            → vérifié et déduit.
+     * Un renvoi avec une clé déjà traitée retourne la commande d'origine sans aucun nouveau
+     * traitement (prix, stock, persistance, fidélité).
      * </p>
      *
-     * @param product  Le produit concerné
-     * @param quantite La quantité commandée
-     * @return true si le stock était suffisant (et a été déduit), false sinon
+     * @param order          Commande reçue du frontend.
+     * @param idempotencyKey Clé fournie par la caisse (null = pas d'idempotence).
+     * @throws IllegalArgumentException        si la clé est invalide ou le panier vide.
+     * @throws IllegalStateException           si le stock est insuffisant.
+     * @throws IdempotencyKeyMismatchException si la clé a déjà servi pour une autre requête.
      */
-    private boolean retirerDuStock(Product product, int quantite) {
-        Integer stock = product.getStock();
-        if (stock == null || stock <= 0) return true; // illimité
-
-        if (stock >= quantite) {
-            product.setStock(stock - quantite);
-            productRepository.save(product);
-            logger.info("Stock {} : {} → {}", product.getName(), stock, product.getStock());
-            return true;
-        }
-        return false; // stock insuffisant
+    public IdempotencyService.Result createOrder(Order order, String idempotencyKey) {
+        String key = IdempotencyService.validateKey(idempotencyKey);
+        // Encaissement unitaire : la clé vient de l'en-tête seul, un champ idempotencyKey du corps est écrasé
+        order.setIdempotencyKey(key);
+        // Empreinte prise avant tout traitement (les prix et lignes sont ensuite complétés par le serveur)
+        order.setRequestHash(key == null ? null : IdempotencyService.requestHash(order));
+        return idempotencyService.execute(key, order.getRequestHash(), () -> createOrder(order));
     }
 
-    // ---------------------------------------------------------------
-    // Création d'une commande
-    // ---------------------------------------------------------------
-
     /**
      * Crée et valide une nouvelle commande.
      * <ol>
      *   <li>Validation : panier non vide.</li>
-     *   <li>Recalcul du sous-total depuis le catalogue (anti-fraude).</li>
-     *   <li>Vérification du stock pour chaque article (ex. 2.3).</li>
-     *   <li>Remise auto 5% si sous-total > 20€ et aucune remise manuelle (ex. 2.2).</li>
+     *   <li>Recalcul du sous-total depuis le catalogue (anti-fraude) ; prix, nom, catégorie et TVA certifiés figés sur chaque ligne.</li>
+     *   <li>Réservation atomique du stock de tous les articles (ex. 2.3), puis des ingrédients selon les recettes.</li>
+     *   <li>Promotions actives ({@link PromotionEngine}), dont la remise auto 5% si sous-total > 20€ et aucune remise manuelle (ex. 2.2).</li>
      *   <li>Application de la remise (plafonnée au sous-total).</li>
-     *   <li>Persistance de la commande.</li>
+     *   <li>Persistance de la commande, puis des stocks (produits et ingrédients) en une seule écriture chacun.</li>
+     *   <li>Mise à jour des statistiques de ventes et envoi aux écrans cuisine/bar.</li>
      *   <li>Crédit des points de fidélité sur le total final.</li>
      * </ol>
      *
      * @param order Commande reçue du frontend (partiellement remplie)
      * @return Commande finalisée et persistée
      * @throws IllegalArgumentException si le panier est vide
-     * @throws IllegalStateException    si le stock est insuffisant pour un article
+     * @throws IllegalStateException    si le stock est insuffisant pour un article ou un ingrédient
      */
     public Order createOrder(Order order) {
+        long start = System.nanoTime();
+        try {
+            Order saved = doCreateOrder(order);
+            createSuccessTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return saved;
+        } catch (RuntimeException e) {
+            createErrorTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Order doCreateOrder(Order order) {
+
+        // 1 à 6. Validation, prix certifiés, réservation du stock et remise
+        PricedOrder priced = price(order);
+
+        // 7. Persistance (barrière durable : la vente doit être sur disque avant la réponse)
+        long phase = System.nanoTime();
+        Order saved;
+        try {
+            saved = orderRepository.save(order);
+        } catch (RuntimeException e) {
+            release(priced);
+            throw e;
+        }
+        // La commande est désormais vivante (index, journal) : un échec de la barrière ne l'annule plus
+        RuntimeException notDurable = barrier();
+        stockReservationService.commit(priced.stock());
+        ingredientConsumptionService.commit(priced.ingredients());
+        phase = lap(persistenceTimer, phase);
+
+        // 8. Statistiques (agrégats incrémentaux) et écrans cuisine/bar
+        salesStatsService.record(saved);
+        kitchenFeedService.publish(saved);
+        phase = lap(statsTimer, phase);
+
+        // 9. Fidélité
+        if (order.getCustomerId() != null && !order.getCustomerId().isEmpty()) {
+            try {
+                customerService.addLoyaltyPoints(order.getCustomerId(), order.getTotalAmount());
+            } catch (Exception e) {
+                logger.warn("Impossible de créditer les points fidélité (client {}): {}",
+                        order.getCustomerId(), e.getMessage());
+            }
+            lap(loyaltyTimer, phase);
+        }
+
+        if (notDurable != null) throw new OrderNotDurableException(List.of(saved), notDurable);
+        return saved;
+    }
+
+    /**
+     * Barrière durable après l'enregistrement en mémoire.
+     * <p>
+     * Un échec ne doit rien défaire : les commandes sont déjà dans l'index et le tampon du journal, et
+     * le flush suivant les écrira. Annuler stock et clé d'idempotence produirait une commande enregistrée
+     * sans déduction, puis un doublon au nouvel essai.
+     * </p>
+     *
+     * @return L'erreur de la barrière, null si les commandes sont sur disque.
+     */
+    private RuntimeException barrier() {
+        try {
+            orderRepository.flush();
+            return null;
+        } catch (RuntimeException e) {
+            logger.error("CRITIQUE : barrière durable en échec, commande(s) conservée(s) pour le prochain flush.", e);
+            return e;
+        }
+    }
+
+    /**
+     * Enregistre la durée écoulée depuis {@code since} et retourne l'instant courant (début de la phase suivante).
+     */
+    private static long lap(Timer timer, long since) {
+        long now = System.nanoTime();
+        timer.record(now - since, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    // ---------------------------------------------------------------
+    // Encaissement groupé (caisse hors ligne)
+    // ---------------------------------------------------------------
+
+    /**
+     * Encaisse un lot de commandes mises en attente par une caisse pendant une coupure réseau.
+     * <p>
+     * Chaque commande suit les mêmes règles que {@link #createOrder(Order)} (prix certifiés, stock
+     * en tout-ou-rien, remise) et est acceptée ou refusée individuellement, dans l'ordre du lot.
+     * Les commandes acceptées sont ensuite persistées en une seule écriture du journal, les stocks
+     * en une écriture chacun et les points de fidélité crédités une fois par client.
+     * </p>
+     * <p>
+     * Chaque commande peut porter sa clé d'idempotence dans le champ {@code idempotencyKey} du corps
+     * (seule source de clé pour un lot) : une commande déjà encaissée (lot renvoyé, ou déjà passée en
+     * direct) est renvoyée sans nouveau traitement. Une clé reprise pour une commande différente
+     * (autre empreinte, voir {@link IdempotencyService#requestHash}) est refusée.
+     * </p>
+     *
+     * @param orders Commandes dans l'ordre de saisie (au plus {@value #MAX_BATCH_SIZE}).
+     * @return Un résultat par commande, dans le même ordre.
+     * @throws IllegalArgumentException si le lot est vide ou trop volumineux.
+     */
+    public List<BatchResult> createOrders(List<Order> orders) {
+        return batchTimer.record(() -> doCreateOrders(orders));
+    }
+
+    private List<BatchResult> doCreateOrders(List<Order> orders) {
+        if (orders == null || orders.isEmpty()) {
+            throw new IllegalArgumentException("Le lot doit contenir au moins une commande.");
+        }
+        if (orders.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Lot trop volumineux (" + MAX_BATCH_SIZE + " commandes maximum).");
+        }
+
+        BatchResult[] results = new BatchResult[orders.size()];
+        Map<Integer, PricedOrder> accepted = new LinkedHashMap<>();
+        // Clé → position de sa première occurrence dans le lot
+        Map<String, Integer> keys = new HashMap<>();
+        Map<Integer, Integer> duplicates = new LinkedHashMap<>();
+
+        // 1. Validation, prix et réservation, commande par commande
+        try {
+            for (int i = 0; i < orders.size(); i++) {
+                Order order = orders.get(i);
+                String key;
+                try {
+                    key = IdempotencyService.validateKey(order.getIdempotencyKey());
+                } catch (IllegalArgumentException e) {
+                    results[i] = BatchResult.rejected(i, e.getMessage());
+                    continue;
+                }
+                order.setIdempotencyKey(key);
+                order.setRequestHash(key == null ? null : IdempotencyService.requestHash(order));
+
+                if (key != null) {
+                    Integer first = keys.putIfAbsent(key, i);
+                    if (first != null) {
+                        if (order.getRequestHash().equals(orders.get(first).getRequestHash())) {
+                            duplicates.put(i, first);
+                        } else {
+                            results[i] = BatchResult.rejected(i, new IdempotencyKeyMismatchException(key).getMessage());
+                        }
+                        continue;
+                    }
+                    Optional<Order> previous;
+                    try {
+                        previous = idempotencyService.begin(key, order.getRequestHash());
+                    } catch (IllegalArgumentException | IllegalStateException | IdempotencyKeyMismatchException e) {
+                        // Envoi simultané de la même commande, ou clé déjà utilisée pour une autre commande
+                        results[i] = BatchResult.rejected(i, e.getMessage());
+                        continue;
+                    }
+                    if (previous.isPresent()) {
+                        results[i] = new BatchResult(i, BatchResult.Status.REPLAYED, previous.get(), null);
+                        continue;
+                    }
+                }
+
+                try {
+                    accepted.put(i, price(order));
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    results[i] = BatchResult.rejected(i, e.getMessage());
+                    if (key != null) idempotencyService.abort(key, e);
+                } catch (RuntimeException e) {
+                    if (key != null) idempotencyService.abort(key, e);
+                    throw e;
+                }
+            }
+        } catch (RuntimeException e) {
+            abandon(accepted.values(), e);
+            throw e;
+        }
+
+        // 2. Persistance du lot : une écriture du journal, une barrière durable
+        List<Order> saved = accepted.values().stream().map(PricedOrder::order).toList();
+        try {
+            orderRepository.saveAll(saved);
+        } catch (RuntimeException e) {
+            abandon(accepted.values(), e);
+            throw e;
+        }
+        RuntimeException notDurable = barrier();
+        stockReservationService.commitAll(accepted.values().stream().map(PricedOrder::stock).toList());
+        ingredientConsumptionService.commitAll(accepted.values().stream().map(PricedOrder::ingredients).toList());
+
+        // 3. Statistiques, écrans cuisine/bar et fidélité groupée
+        Map<String, Integer> points = new LinkedHashMap<>();
+        for (Map.Entry<Integer, PricedOrder> e : accepted.entrySet()) {
+            Order order = e.getValue().order();
+            results[e.getKey()] = new BatchResult(e.getKey(), BatchResult.Status.CREATED, order, null);
+            if (order.getIdempotencyKey() != null) idempotencyService.complete(order.getIdempotencyKey(), order);
+            salesStatsService.record(order);
+            kitchenFeedService.publish(order);
+            if (order.getCustomerId() != null && !order.getCustomerId().isEmpty()) {
+                points.merge(order.getCustomerId(), CustomerService.pointsEarned(order.getTotalAmount()), Integer::sum);
+            }
+        }
+        try {
+            customerService.addLoyaltyPoints(points);
+        } catch (Exception e) {
+            logger.warn("Impossible de créditer les points fidélité du lot : {}", e.getMessage());
+        }
+
+        // 4. Doublons internes au lot : même résultat que leur première occurrence
+        duplicates.forEach((i, first) -> {
+            BatchResult original = results[first];
+            results[i] = original.status() == BatchResult.Status.REJECTED
+                    ? BatchResult.rejected(i, original.message())
+                    : new BatchResult(i, BatchResult.Status.REPLAYED, original.order(), null);
+        });
+
+        logger.info("Lot de {} commande(s) : {} encaissée(s), {} déjà encaissée(s), {} refusée(s).",
+                orders.size(), accepted.size(),
+                Arrays.stream(results).filter(r -> r.status() == BatchResult.Status.REPLAYED).count(),
+                Arrays.stream(results).filter(r -> r.status() == BatchResult.Status.REJECTED).count());
+        if (notDurable != null) throw new OrderNotDurableException(saved, notDurable);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Étapes 1 à 6 : validation, prix certifiés, réservation du stock et remise.
+     * En cas d'échec, aucune réservation n'est conservée.
+     */
+    private PricedOrder price(Order order) {
+        long start = System.nanoTime();
 
         // 1. Validation structurelle
         if (order.getItems() == null || order.getItems().isEmpty()) {
@@ -123,75 +412,113 @@ public class OrderService {
         if (order.getId() == null || order.getId().isEmpty()) {
             order.setId(UUID.randomUUID().toString());
         }
-        order.setDate(LocalDateTime.now().toString());
+        LocalDateTime now = LocalDateTime.now();
+        order.setDate(now.toString());
 
-        // 3. Recalcul du sous-total + résolution des produits
-        BigDecimal subtotal = BigDecimal.ZERO;
-        List<Product> resolvedProducts = new ArrayList<>();
+        // 3. Recalcul du sous-total + résolution des produits (en centimes, converti en BigDecimal à la fin)
+        Money subtotal = Money.ZERO;
+        PromotionEngine.Basket basket = promotionEngine.basket();
+        Map<Product, Integer> quantities = new LinkedHashMap<>();
 
         for (OrderLine item : order.getItems()) {
             Optional<Product> productOpt = productRepository.findById(item.getId());
             if (productOpt.isPresent()) {
                 Product p = productOpt.get();
-                resolvedProducts.add(p);
-                BigDecimal lineTotal = p.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
-                subtotal = subtotal.add(lineTotal);
+                // Ligne figée avec les valeurs officielles : le client ne fixe ni prix ni libellé
+                item.setPrice(p.getPrice());
+                item.setName(p.getName());
+                item.setType(p instanceof Drink ? "DRINK" : "DISH");
+                item.setCategory(p.getCategory());
+                item.setVat(p.getVat());
+                quantities.merge(p, item.getQuantity(), Integer::sum);
+                Money lineTotal = Money.of(p.getPrice()).times(item.getQuantity());
+                subtotal = subtotal.plus(lineTotal);
+                basket.add(p.getId(), p.getCategory(), lineTotal, item.getQuantity());
             } else {
                 logger.warn("Produit inconnu (ID: {}). Ignoré du calcul.", item.getId());
             }
         }
 
-        // 4. EXERCICE 2.3 — Vérification du stock AVANT toute persistance
-        for (int i = 0; i < resolvedProducts.size(); i++) {
-            Product p = resolvedProducts.get(i);
-            int qte = order.getItems().get(i).getQuantity();
-            if (!retirerDuStock(p, qte)) {
-                throw new IllegalStateException(
-                    "Stock insuffisant pour \"" + p.getName() + "\" "
-                    + "(disponible : " + p.getStock() + ", demandé : " + qte + ")."
-                );
-            }
+        // 4. EXERCICE 2.3 — Réservation du stock AVANT toute persistance (tout ou rien)
+        long stockStart = System.nanoTime();
+        StockReservationService.Reservation reservation = stockReservationService.reserve(quantities);
+        IngredientConsumptionService.Reservation ingredients;
+        try {
+            ingredients = ingredientConsumptionService.reserve(quantities);
+        } catch (RuntimeException e) {
+            stockReservationService.release(reservation);
+            throw e;
         }
 
-        // 5. EXERCICE 2.2 — Remise automatique 5% si sous-total > 20€ et aucune remise déjà appliquée
-        BigDecimal existingDiscount = order.getDiscountAmount() != null
-                ? order.getDiscountAmount()
-                : BigDecimal.ZERO;
+        long stockEnd = System.nanoTime();
+        stockTimer.record(stockEnd - stockStart, TimeUnit.NANOSECONDS);
+
+        // 5. EXERCICE 2.2 — Promotions (dont la remise automatique 5% si sous-total > 20€ sans remise manuelle)
+        Money manual = Money.of(order.getDiscountAmount());
+        PromotionEngine.Result promotions = basket.apply(subtotal, manual, now, order.getCustomerId());
+        Money discount = manual.plus(promotions.discount());
 
-        if (subtotal.compareTo(CustomerService.AUTO_DISCOUNT_THRESHOLD) > 0
-                && existingDiscount.compareTo(BigDecimal.ZERO) == 0) {
-            BigDecimal autoDiscount = appliquerReduction(subtotal, CustomerService.AUTO_DISCOUNT_RATE);
-            order.setDiscountAmount(autoDiscount);
-            order.setDiscountReason("Remise automatique " + (int)CustomerService.AUTO_DISCOUNT_RATE + "% (total > " + CustomerService.AUTO_DISCOUNT_THRESHOLD.toPlainString() + "€)");
-            logger.info("Remise automatique 5% appliquée : -{}€", autoDiscount);
+        if (!promotions.isEmpty()) {
+            order.setDiscountReason(promotions.reason(manual, order.getDiscountReason()));
+            logger.info("Promotion(s) appliquée(s) : -{}€ ({})", promotions.discount(), order.getDiscountReason());
         }
 
         // 6. Application de la remise (plafonnée au sous-total)
-        BigDecimal discount = order.getDiscountAmount() != null
-                ? order.getDiscountAmount()
-                : BigDecimal.ZERO;
-        if (discount.compareTo(subtotal) > 0) discount = subtotal;
-        order.setDiscountAmount(discount);
+        discount = discount.min(subtotal);
+        order.setDiscountAmount(discount.toBigDecimal());
 
-        BigDecimal finalTotal = subtotal.subtract(discount);
-        order.setTotalAmount(finalTotal);
+        Money finalTotal = subtotal.minus(discount);
+        order.setTotalAmount(finalTotal.toBigDecimal());
 
         logger.info("Commande {} : sous-total {}€, remise {}€ ({}), total {}€",
                 order.getId(), subtotal, discount, order.getDiscountReason(), finalTotal);
 
-        // 7. Persistance
-        Order saved = orderRepository.save(order);
+        // Phase "pricing" : étapes 1 à 3 et 5 à 6, hors réservation du stock
+        pricingTimer.record((stockStart - start) + (System.nanoTime() - stockEnd), TimeUnit.NANOSECONDS);
+        return new PricedOrder(order, reservation, ingredients);
+    }
 
-        // 8. Fidélité
-        if (order.getCustomerId() != null && !order.getCustomerId().isEmpty()) {
-            try {
-                customerService.addLoyaltyPoints(order.getCustomerId(), finalTotal);
-            } catch (Exception e) {
-                logger.warn("Impossible de créditer les points fidélité (client {}): {}",
-                        order.getCustomerId(), e.getMessage());
+    /**
+     * Rollback des réservations d'une commande non persistée.
+     */
+    private void release(PricedOrder priced) {
+        ingredientConsumptionService.release(priced.ingredients());
+        stockReservationService.release(priced.stock());
+    }
+
+    /**
+     * Échec d'un lot : réservations restituées et clés d'idempotence libérées.
+     */
+    private void abandon(Collection<PricedOrder> accepted, RuntimeException error) {
+        for (PricedOrder priced : accepted) {
+            release(priced);
+            if (priced.order().getIdempotencyKey() != null) {
+                idempotencyService.abort(priced.order().getIdempotencyKey(), error);
             }
         }
+    }
 
-        return saved;
+    /**
+     * Commande validée et chiffrée, avec ses réservations en attente de persistance.
+     */
+    private record PricedOrder(Order order,
+                               StockReservationService.Reservation stock,
+                               IngredientConsumptionService.Reservation ingredients) {}
+
+    /**
+     * Résultat d'une commande d'un lot.
+     *
+     * @param index   Position de la commande dans le lot.
+     * @param status  CREATED (encaissée), REPLAYED (déjà encaissée, commande d'origine) ou REJECTED.
+     * @param order   Commande encaissée (absente si refusée).
+     * @param message Motif du refus.
+     */
+    public record BatchResult(int index, Status status, Order order, String message) {
+
+        public enum Status { CREATED, REPLAYED, REJECTED }
+
+        static BatchResult rejected(int index, String message) {
+            return new BatchResult(index, Status.REJECTED, null, message);
+        }
     }
 }
@@ -2,13 +2,17 @@ package com.esgi.pizzeria.service;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import com.esgi.pizzeria.domain.Dish;
+import com.esgi.pizzeria.domain.Money;
 import com.esgi.pizzeria.domain.Product;
+import com.esgi.pizzeria.repository.JsonIngredientRepository;
 import com.esgi.pizzeria.repository.JsonProductRepository;
 
 /**
@@ -23,9 +27,14 @@ public class ProductService {
 
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
     private final JsonProductRepository productRepository;
+    private final JsonIngredientRepository ingredientRepository;
+    private final StockReservationService stockReservationService;
 
-    public ProductService(JsonProductRepository productRepository) {
+    public ProductService(JsonProductRepository productRepository, JsonIngredientRepository ingredientRepository,
+                          StockReservationService stockReservationService) {
         this.productRepository = productRepository;
+        this.ingredientRepository = ingredientRepository;
+        this.stockReservationService = stockReservationService;
     }
 
     /**
@@ -44,7 +53,8 @@ public class ProductService {
      *
      * @param product Le produit à sauvegarder.
      * @return Le produit persisté.
-     * @throws IllegalArgumentException si le prix est négatif ou le nom vide.
+     * @throws IllegalArgumentException si le prix est négatif ou plus précis que le centime, le taux de TVA
+     *                                  invalide, le nom vide ou la recette invalide.
      */
     public Product save(Product product) {
         // VALIDATION 1 : Le nom est obligatoire
@@ -56,6 +66,25 @@ public class ProductService {
         if (product.getPrice() == null || product.getPrice().compareTo(BigDecimal.ZERO) < 0) {
             throw new IllegalArgumentException("Le prix du produit doit être positif.");
         }
+        // Les prix sont calculés en centimes (Money) : pas de fraction de centime ni de taux plus fin que 0,01 %
+        if (product.getPrice().stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException("Le prix du produit doit être exprimé au centime près.");
+        }
+        if (product.getVat() != null) {
+            Money.basisPoints(product.getVat());
+        }
+
+        // VALIDATION 3 : Recette d'un plat = ingrédients existants, quantités strictement positives
+        if (product instanceof Dish dish && dish.getRecipe() != null) {
+            for (Map.Entry<String, Double> portion : dish.getRecipe().entrySet()) {
+                if (ingredientRepository.findById(portion.getKey()).isEmpty()) {
+                    throw new IllegalArgumentException("Ingrédient inconnu dans la recette : " + portion.getKey());
+                }
+                if (portion.getValue() == null || portion.getValue() <= 0) {
+                    throw new IllegalArgumentException("La quantité par portion doit être positive (" + portion.getKey() + ").");
+                }
+            }
+        }
 
         // LOGIQUE MÉTIER : Génération d'ID pour les nouveaux produits
         boolean isNew = (product.getId() == null || product.getId().isEmpty());
@@ -63,7 +92,11 @@ public class ProductService {
             product.setId(UUID.randomUUID().toString());
         }
 
-        Product savedProduct = productRepository.save(product);
+        // Stock et catégorie absents : mêmes valeurs par défaut que les migrations du fichier
+        JsonProductRepository.applyDefaults(product);
+
+        // Sous le verrou de stock du produit : pas d'écriture de stock concurrente sur l'ancienne instance
+        Product savedProduct = stockReservationService.withProductLock(product.getId(), () -> productRepository.save(product));
         
         if (isNew) {
             logger.info("Nouveau produit créé : {} ({})", savedProduct.getName(), savedProduct.getPrice());
@@ -73,4 +106,18 @@ public class ProductService {
 
         return savedProduct;
     }
-}
\ No newline at end of file
+
+    /**
+     * Supprime un produit du catalogue, sous le verrou de stock du produit : une vente en cours
+     * ne peut pas le recréer en enregistrant son stock.
+     *
+     * @param id L'identifiant du produit.
+     */
+    public void delete(String id) {
+        stockReservationService.withProductLock(id, () -> {
+            productRepository.deleteById(id);
+            return null;
+        });
+        logger.info("Produit supprimé : {}", id);
+    }
+}
@@ -0,0 +1,469 @@
+package com.esgi.pizzeria.service;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.esgi.pizzeria.domain.Customer;
+import com.esgi.pizzeria.domain.Money;
+import com.esgi.pizzeria.domain.Product;
+import com.esgi.pizzeria.domain.PromotionRule;
+import com.esgi.pizzeria.repository.JsonProductRepository;
+import com.esgi.pizzeria.repository.JsonPromotionRepository;
+
+/**
+ * Moteur de promotions : remises calculées à partir des règles {@link PromotionRule} (données).
+ * <p>
+ * PERFORMANCE : les règles actives sont compilées en un plan d'évaluation pour une version des règles
+ * et une version du catalogue ; il n'est recompilé que si l'une des deux change. Le plan associe à chaque
+ * produit (et à chaque catégorie, pour un produit inconnu du plan) les compteurs qu'il alimente :
+ * montant des lignes du périmètre d'une règle, quantité d'un composant de lot. Une commande est évaluée
+ * en un passage sur ses lignes ({@link Basket#add}), puis un passage sur les règles, sans aucun parcours
+ * du catalogue. Montants en centimes ({@link Money}), arrondis HALF_UP.
+ * </p>
+ * <p>
+ * Avec les règles par défaut, le résultat est celui de l'ancienne remise codée en dur : 5% du sous-total
+ * au-delà de 20€, seulement sans remise manuelle, avec le même motif.
+ * </p>
+ */
+@Service
+public class PromotionEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromotionEngine.class);
+
+    private static final int[] NO_SLOTS = new int[0];
+
+    private final JsonPromotionRepository promotionRepository;
+    private final JsonProductRepository productRepository;
+    private final CustomerService customerService;
+
+    private volatile Plan plan = new Plan(-1, -1, new CompiledRule[0], new boolean[0], Map.of(), Map.of(), NO_SLOTS);
+
+    public PromotionEngine(JsonPromotionRepository promotionRepository,
+                           JsonProductRepository productRepository,
+                           CustomerService customerService) {
+        this.promotionRepository = promotionRepository;
+        this.productRepository = productRepository;
+        this.customerService = customerService;
+    }
+
+    public List<PromotionRule> findAll() {
+        return promotionRepository.findAll();
+    }
+
+    /**
+     * Crée ou met à jour une règle après validation ; le plan est recompilé à la commande suivante.
+     *
+     * @throws IllegalArgumentException si la règle est incomplète ou incohérente avec son type.
+     */
+    public PromotionRule save(PromotionRule rule) {
+        validate(rule);
+        return promotionRepository.save(rule);
+    }
+
+    public void delete(String id) {
+        promotionRepository.deleteById(id);
+    }
+
+    /**
+     * Panier vide pour le plan courant, à remplir ligne par ligne pendant le calcul du sous-total.
+     */
+    public Basket basket() {
+        return new Basket(currentPlan());
+    }
+
+    // ---------------------------------------------------------------
+    // Évaluation
+    // ---------------------------------------------------------------
+
+    /**
+     * Compteurs d'une commande pour un plan donné.
+     */
+    public final class Basket {
+
+        private final Plan plan;
+        // Montant (centimes) ou quantité, selon le type de compteur
+        private final long[] counters;
+
+        private Basket(Plan plan) {
+            this.plan = plan;
+            this.counters = new long[plan.quantitySlots().length];
+        }
+
+        /**
+         * Ajoute une ligne au prix certifié : O(nombre de compteurs du produit).
+         */
+        public void add(String productId, String category, Money lineTotal, int quantity) {
+            int[] slots = plan.slotsByProduct().get(productId);
+            if (slots == null) {
+                slots = category != null ? plan.slotsByCategory().getOrDefault(category, plan.universalSlots())
+                        : plan.universalSlots();
+            }
+            for (int slot : slots) {
+                counters[slot] += plan.quantitySlots()[slot] ? quantity : lineTotal.cents();
+            }
+        }
+
+        /**
+         * Applique les règles actives, par priorité.
+         *
+         * @param subtotal   Sous-total de la commande.
+         * @param manual     Remise manuelle déjà saisie en caisse (fidélité, geste commercial).
+         * @param at         Date de la commande (fenêtres horaires).
+         * @param customerId Client associé (paliers de fidélité), null si aucun.
+         */
+        public Result apply(Money subtotal, Money manual, LocalDateTime at, String customerId) {
+            List<Applied> applied = new ArrayList<>();
+            Money total = manual;
+            Integer loyaltyPoints = null;
+
+            for (CompiledRule rule : plan.rules()) {
+                if (rule.exclusive() && !total.isZero()) continue;
+                if (!rule.activeAt(at)) continue;
+
+                Money discount = switch (rule.type()) {
+                    case ORDER_THRESHOLD -> subtotal.compareTo(rule.threshold()) > 0 ? rule.discountOn(subtotal) : Money.ZERO;
+                    case CATEGORY, HAPPY_HOUR -> rule.discountOn(rule.scoped() ? Money.ofCents(counters[rule.slot()]) : subtotal);
+                    case BUNDLE -> rule.amount().times(bundles(rule));
+                    case CUSTOMER_TIER -> {
+                        if (customerId == null || customerId.isEmpty()) yield Money.ZERO;
+                        if (loyaltyPoints == null) {
+                            loyaltyPoints = customerService.findById(customerId).map(Customer::getLoyaltyPoints).orElse(0);
+                        }
+                        yield loyaltyPoints >= rule.minLoyaltyPoints() ? rule.discountOn(subtotal) : Money.ZERO;
+                    }
+                };
+                if (discount.signum() <= 0) continue;
+
+                applied.add(new Applied(rule.id(), rule.label(), discount));
+                total = total.plus(discount);
+                if (rule.exclusive()) break;
+            }
+            return new Result(applied, total.minus(manual));
+        }
+
+        private int bundles(CompiledRule rule) {
+            long bundles = Long.MAX_VALUE;
+            int[] quantities = rule.componentQuantities();
+            for (int i = 0; i < quantities.length; i++) {
+                bundles = Math.min(bundles, counters[rule.slot() + i] / quantities[i]);
+            }
+            return (int) Math.min(bundles, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Promotion appliquée à une commande.
+     */
+    public record Applied(String ruleId, String label, Money amount) {}
+
+    /**
+     * Résultat de l'évaluation.
+     *
+     * @param discount Somme des promotions appliquées (hors remise manuelle, avant plafonnement).
+     */
+    public record Result(List<Applied> applied, Money discount) {
+
+        public boolean isEmpty() {
+            return applied.isEmpty();
+        }
+
+        /**
+         * Motif de remise de la commande. Une seule promotion sans remise manuelle : son libellé
+         * (ex : "Remise automatique 5% (total > 20.00€)"). Sinon chaque partie "libellé (-x.xx€)",
+         * jointes par " + " comme les remises combinées du frontend, pour la ventilation du ticket Z.
+         *
+         * @param manual       Remise manuelle.
+         * @param manualReason Motif saisi en caisse pour la remise manuelle.
+         */
+        public String reason(Money manual, String manualReason) {
+            if (manual.signum() <= 0 && applied.size() == 1) {
+                return applied.get(0).label();
+            }
+            StringJoiner reason = new StringJoiner(" + ");
+            if (manual.signum() > 0) {
+                reason.add(manualReason != null && !manualReason.isBlank()
+                        ? manualReason.trim()
+                        : "Remise manuelle (-" + manual + "€)");
+            }
+            for (Applied promotion : applied) {
+                reason.add(promotion.label() + " (-" + promotion.amount() + "€)");
+            }
+            return reason.toString();
+        }
+    }
+
+    // ---------------------------------------------------------------
+    // Compilation
+    // ---------------------------------------------------------------
+
+    /**
+     * Plan d'évaluation pour une version des règles et du catalogue.
+     *
+     * @param quantitySlots   Par compteur : true = quantité (composant de lot), false = montant.
+     * @param slotsByProduct  ID produit → compteurs alimentés.
+     * @param slotsByCategory Catégorie → compteurs (produit absent du plan).
+     * @param universalSlots  Compteurs d'un produit sans catégorie connue.
+     */
+    private record Plan(long rulesVersion, long catalogVersion, CompiledRule[] rules, boolean[] quantitySlots,
+                        Map<String, int[]> slotsByProduct, Map<String, int[]> slotsByCategory, int[] universalSlots) {
+    }
+
+    /**
+     * Règle active compilée : montants en centimes, fenêtre horaire et périmètres résolus.
+     *
+     * @param slot Premier compteur de la règle (un par composant pour un lot).
+     */
+    private record CompiledRule(String id, String label, PromotionRule.Type type, boolean exclusive,
+                                int percent, Money amount, Money threshold, int minLoyaltyPoints,
+                                Set<DayOfWeek> days, LocalTime start, LocalTime end,
+                                Scope scope, Scope[] components, int[] componentQuantities, int slot) {
+
+        boolean scoped() {
+            return !scope.isEmpty();
+        }
+
+        Money discountOn(Money base) {
+            if (base.signum() <= 0) return Money.ZERO;
+            return percent > 0 ? base.percent(percent) : amount;
+        }
+
+        boolean activeAt(LocalDateTime at) {
+            if (!days.isEmpty() && !days.contains(at.getDayOfWeek())) return false;
+            if (start == null) return true;
+            LocalTime time = at.toLocalTime();
+            return start.isBefore(end)
+                    ? !time.isBefore(start) && time.isBefore(end)
+                    : !time.isBefore(start) || time.isBefore(end); // fenêtre passant minuit
+        }
+    }
+
+    /**
+     * Périmètre : produits cités ou produits des catégories citées.
+     */
+    private record Scope(Set<String> productIds, Set<String> categories) {
+
+        static Scope of(List<String> productIds, List<String> categories) {
+            return new Scope(productIds == null ? Set.of() : Set.copyOf(productIds),
+                    categories == null ? Set.of() : Set.copyOf(categories));
+        }
+
+        boolean isEmpty() {
+            return productIds.isEmpty() && categories.isEmpty();
+        }
+
+        boolean matches(String productId, String category) {
+            return (productId != null && productIds.contains(productId))
+                    || (category != null && categories.contains(category));
+        }
+    }
+
+    /**
+     * Plan de la version courante des règles et du catalogue, recompilé si l'une a changé.
+     */
+    private Plan currentPlan() {
+        Plan current = plan;
+        long rulesVersion = promotionRepository.getVersion();
+        long catalogVersion = productRepository.getVersion();
+        if (current.rulesVersion() == rulesVersion && current.catalogVersion() == catalogVersion) return current;
+
+        List<PromotionRule> active = new ArrayList<>();
+        for (PromotionRule rule : promotionRepository.findAll()) {
+            if (!rule.isEnabled()) continue;
+            try {
+                validate(rule);
+                active.add(rule);
+            } catch (IllegalArgumentException e) {
+                // Fichier modifié à la main : la règle invalide est ignorée, pas l'encaissement
+                logger.warn("Règle de promotion {} ignorée : {}", rule.getId(), e.getMessage());
+            }
+        }
+        active.sort(Comparator.comparingInt(PromotionRule::getPriority));
+
+        CompiledRule[] rules = new CompiledRule[active.size()];
+        List<Boolean> quantitySlots = new ArrayList<>();
+        for (int i = 0; i < rules.length; i++) {
+            rules[i] = compile(active.get(i), quantitySlots);
+        }
+        boolean[] kinds = new boolean[quantitySlots.size()];
+        for (int i = 0; i < kinds.length; i++) kinds[i] = quantitySlots.get(i);
+
+        // Index par catégorie puis par produit : chaque produit ne résout ses compteurs qu'une fois
+        Map<String, int[]> byCategory = new HashMap<>();
+        Map<String, int[]> byProduct = new HashMap<>();
+        for (Product product : productRepository.findAll()) {
+            if (product.getCategory() != null) {
+                byCategory.computeIfAbsent(product.getCategory(), category -> slotsFor(rules, null, category));
+            }
+            byProduct.put(product.getId(), slotsFor(rules, product.getId(), product.getCategory()));
+        }
+
+        current = new Plan(rulesVersion, catalogVersion, rules, kinds, byProduct, byCategory,
+                slotsFor(rules, null, null));
+        plan = current;
+        logger.info("Promotions compilées (règles v{}, catalogue v{}) : {} règle(s) active(s), {} compteur(s).",
+                rulesVersion, catalogVersion, rules.length, kinds.length);
+        return current;
+    }
+
+    private static CompiledRule compile(PromotionRule rule, List<Boolean> quantitySlots) {
+        int slot = quantitySlots.size();
+        Scope scope = Scope.of(rule.getProductIds(), rule.getCategories());
+        Scope[] components = new Scope[0];
+        int[] componentQuantities = new int[0];
+        switch (rule.getType()) {
+            case CATEGORY, HAPPY_HOUR -> quantitySlots.add(false);
+            case BUNDLE -> {
+                components = rule.getComponents().stream()
+                        .map(c -> Scope.of(c.getProductIds(), c.getCategories()))
+                        .toArray(Scope[]::new);
+                componentQuantities = rule.getComponents().stream()
+                        .mapToInt(PromotionRule.BundleComponent::getQuantity)
+                        .toArray();
+                for (int i = 0; i < components.length; i++) quantitySlots.add(true);
+            }
+            default -> {
+                // Règles sur toute la commande : aucun compteur par ligne
+            }
+        }
+        return new CompiledRule(rule.getId(), rule.getLabel().trim(), rule.getType(), rule.isExclusive(),
+                rule.getPercent() != null ? rule.getPercent() : 0,
+                Money.of(rule.getAmount()), Money.of(rule.getThreshold()),
+                rule.getMinLoyaltyPoints() != null ? rule.getMinLoyaltyPoints() : 0,
+                rule.getDays() == null || rule.getDays().isEmpty() ? Set.of() : EnumSet.copyOf(rule.getDays()),
+                parseTime(rule.getStartTime()), parseTime(rule.getEndTime()),
+                scope, components, componentQuantities, slot);
+    }
+
+    /**
+     * Compteurs alimentés par un produit. Dans un lot, un article ne compte que pour le premier
+     * composant dont il fait partie.
+     */
+    private static int[] slotsFor(CompiledRule[] rules, String productId, String category) {
+        List<Integer> slots = new ArrayList<>();
+        for (CompiledRule rule : rules) {
+            switch (rule.type()) {
+                case CATEGORY, HAPPY_HOUR -> {
+                    if (rule.scoped() && rule.scope().matches(productId, category)) slots.add(rule.slot());
+                }
+                case BUNDLE -> {
+                    for (int i = 0; i < rule.components().length; i++) {
+                        if (rule.components()[i].matches(productId, category)) {
+                            slots.add(rule.slot() + i);
+                            break;
+                        }
+                    }
+                }
+                default -> {
+                    // Règles sur toute la commande
+                }
+            }
+        }
+        return slots.isEmpty() ? NO_SLOTS : slots.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // ---------------------------------------------------------------
+    // Validation
+    // ---------------------------------------------------------------
+
+    private static void validate(PromotionRule rule) {
+        if (rule.getLabel() == null || rule.getLabel().isBlank()) {
+            throw new IllegalArgumentException("Le libellé de la promotion est obligatoire.");
+        }
+        if (rule.getType() == null) {
+            throw new IllegalArgumentException("Le type de la promotion est obligatoire.");
+        }
+        if (rule.getPercent() != null && (rule.getPercent() < 1 || rule.getPercent() > 100)) {
+            throw new IllegalArgumentException("Le pourcentage doit être compris entre 1 et 100.");
+        }
+        validateAmount(rule.getAmount(), "Le montant de la remise");
+        validateAmount(rule.getThreshold(), "Le seuil");
+
+        boolean hasPercent = rule.getPercent() != null;
+        boolean hasAmount = rule.getAmount() != null && rule.getAmount().signum() > 0;
+        boolean scoped = !Scope.of(rule.getProductIds(), rule.getCategories()).isEmpty();
+        switch (rule.getType()) {
+            case ORDER_THRESHOLD -> {
+                if (hasPercent == hasAmount) {
+                    throw new IllegalArgumentException("Remise sur seuil : indiquer un pourcentage ou un montant.");
+                }
+            }
+            case CATEGORY, HAPPY_HOUR -> {
+                if (!hasPercent) throw new IllegalArgumentException("Le pourcentage de la promotion est obligatoire.");
+                if (rule.getType() == PromotionRule.Type.CATEGORY && !scoped) {
+                    throw new IllegalArgumentException("Remise par catégorie : indiquer des catégories ou des produits.");
+                }
+                if (rule.getType() == PromotionRule.Type.HAPPY_HOUR && rule.getStartTime() == null) {
+                    throw new IllegalArgumentException("Happy hour : les heures de début et de fin sont obligatoires.");
+                }
+            }
+            case BUNDLE -> {
+                if (!hasAmount) throw new IllegalArgumentException("Lot : le montant de la remise par lot est obligatoire.");
+                if (rule.getComponents() == null || rule.getComponents().isEmpty()) {
+                    throw new IllegalArgumentException("Lot : au moins un composant est obligatoire.");
+                }
+                for (PromotionRule.BundleComponent component : rule.getComponents()) {
+                    if (component.getQuantity() < 1) {
+                        throw new IllegalArgumentException("Lot : la quantité d'un composant doit être positive.");
+                    }
+                    if (Scope.of(component.getProductIds(), component.getCategories()).isEmpty()) {
+                        throw new IllegalArgumentException("Lot : chaque composant doit citer des catégories ou des produits.");
+                    }
+                }
+            }
+            case CUSTOMER_TIER -> {
+                if (!hasPercent) throw new IllegalArgumentException("Le pourcentage de la promotion est obligatoire.");
+                if (rule.getMinLoyaltyPoints() == null || rule.getMinLoyaltyPoints() < 0) {
+                    throw new IllegalArgumentException("Palier client : le nombre de points minimal est obligatoire.");
+                }
+            }
+        }
+
+        if ((rule.getStartTime() == null) != (rule.getEndTime() == null)) {
+            throw new IllegalArgumentException("Fenêtre horaire : indiquer l'heure de début et l'heure de fin.");
+        }
+        if (rule.getStartTime() != null) {
+            LocalTime start = parseTime(rule.getStartTime());
+            if (start.equals(parseTime(rule.getEndTime()))) {
+                throw new IllegalArgumentException("Fenêtre horaire : les heures de début et de fin doivent différer.");
+            }
+        }
+        if (rule.getDays() != null && new HashSet<>(rule.getDays()).contains(null)) {
+            throw new IllegalArgumentException("Fenêtre horaire : jour de la semaine invalide.");
+        }
+    }
+
+    private static void validateAmount(BigDecimal amount, String name) {
+        if (amount == null) return;
+        if (amount.signum() < 0) {
+            throw new IllegalArgumentException(name + " ne peut pas être négatif.");
+        }
+        if (amount.stripTrailingZeros().scale() > 2) {
+            throw new IllegalArgumentException(name + " doit être exprimé au centime près.");
+        }
+    }
+
+    private static LocalTime parseTime(String value) {
+        if (value == null) return null;
+        try {
+            return LocalTime.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Heure invalide (format HH:mm attendu) : " + value);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.esgi.pizzeria.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.esgi.pizzeria.domain.Order;
+import com.esgi.pizzeria.domain.OrderLine;
+import com.esgi.pizzeria.domain.Product;
+import com.esgi.pizzeria.domain.SalesTotals;
+import com.esgi.pizzeria.repository.JsonOrderRepository;
+import com.esgi.pizzeria.repository.JsonProductRepository;
+
+/**
+ * Statistiques de ventes maintenues en continu.
+ * <p>
+ * PERFORMANCE : au lieu de re-sommer tout l'historique à chaque consultation, chaque commande
+ * enregistrée met à jour ses agrégats (par heure, jour, produit, catégorie, vendeur, moyen de
+ * paiement). Une lecture coûte O(1) par seau. Les agrégats sont reconstruits au démarrage en
+ * un seul parcours de l'historique.
+ * </p>
+ */
+@Service
+public class SalesStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesStatsService.class);
+
+    // Clé utilisée quand la dimension n'est pas renseignée (commande sans vendeur, par exemple)
+    public static final String UNKNOWN = "INCONNU";
+
+    private final JsonOrderRepository orderRepository;
+    private final JsonProductRepository productRepository;
+
+    private final SalesTotals overall = new SalesTotals();
+    private final NavigableMap<LocalDateTime, SalesTotals> byHour = new ConcurrentSkipListMap<>();
+    private final NavigableMap<LocalDate, SalesTotals> byDay = new ConcurrentSkipListMap<>();
+    private final Map<String, SalesTotals> byProduct = new ConcurrentHashMap<>();
+    private final Map<String, SalesTotals> byCategory = new ConcurrentHashMap<>();
+    private final Map<String, SalesTotals> bySalesperson = new ConcurrentHashMap<>();
+    private final Map<String, SalesTotals> byPaymentMethod = new ConcurrentHashMap<>();
+
+    public SalesStatsService(JsonOrderRepository orderRepository, JsonProductRepository productRepository) {
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Reconstruit les agrégats depuis l'historique, appelé par {@link com.esgi.pizzeria.config.DataBootstrap}
+     * une fois les commandes chargées.
+     */
+    public void init() {
+        long start = System.currentTimeMillis();
+        int[] count = {0};
+        orderRepository.forEachInRange(null, null, order -> {
+            record(order);
+            count[0]++;
+        });
+        logger.info("Statistiques reconstruites : {} commande(s) en {} ms.", count[0], System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Intègre une commande enregistrée dans tous les agrégats.
+     */
+    public void record(Order order) {
+        BigDecimal total = order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO;
+        BigDecimal discount = order.getDiscountAmount() != null ? order.getDiscountAmount() : BigDecimal.ZERO;
+        long items = 0;
+        for (OrderLine line : order.getItems()) {
+            items += line.getQuantity();
+        }
+
+        overall.add(total, discount, 1, items);
+        bySalesperson.computeIfAbsent(keyOf(order.getSalespersonId()), k -> new SalesTotals()).add(total, discount, 1, items);
+        byPaymentMethod.computeIfAbsent(keyOf(order.getPaymentMethod()), k -> new SalesTotals()).add(total, discount, 1, items);
+
+        LocalDateTime date = parseDate(order.getDate());
+        if (date != null) {
+            byHour.computeIfAbsent(date.truncatedTo(ChronoUnit.HOURS), k -> new SalesTotals()).add(total, discount, 1, items);
+            byDay.computeIfAbsent(date.toLocalDate(), k -> new SalesTotals()).add(total, discount, 1, items);
+        }
+
+        // Lignes : chiffre d'affaires avant remise, une commande comptée une fois par produit/catégorie
+        Map<String, SalesTotals> productLines = new LinkedHashMap<>();
+        Map<String, SalesTotals> categoryLines = new LinkedHashMap<>();
+        for (OrderLine line : order.getItems()) {
+            BigDecimal lineTotal = unitPriceOf(line).multiply(BigDecimal.valueOf(line.getQuantity()));
+            productLines.computeIfAbsent(keyOf(line.getId()), k -> new SalesTotals()).add(lineTotal, null, 0, line.getQuantity());
+            categoryLines.computeIfAbsent(categoryOf(line), k -> new SalesTotals()).add(lineTotal, null, 0, line.getQuantity());
+        }
+        mergeLines(productLines, byProduct);
+        mergeLines(categoryLines, byCategory);
+    }
+
+    // ---------------------------------------------------------------
+    // Lectures
+    // ---------------------------------------------------------------
+
+    public SalesTotals getOverall() {
+        return overall.snapshot();
+    }
+
+    public SalesTotals getDay(LocalDate day) {
+        SalesTotals totals = byDay.get(day);
+        return totals != null ? totals.snapshot() : new SalesTotals();
+    }
+
+    /**
+     * Agrégats journaliers de la plage [from, to] (jours sans vente absents).
+     */
+    public Map<LocalDate, SalesTotals> getDaily(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("La date de début doit précéder la date de fin.");
+        }
+        return copyOf(byDay.subMap(from, true, to, true));
+    }
+
+    /**
+     * Agrégats horaires d'une journée (heures sans vente absentes).
+     */
+    public Map<LocalDateTime, SalesTotals> getHourly(LocalDate day) {
+        return copyOf(byHour.subMap(day.atStartOfDay(), true, day.plusDays(1).atStartOfDay(), false));
+    }
+
+    public Map<String, SalesTotals> getByProduct() {
+        return copyOf(byProduct);
+    }
+
+    public Map<String, SalesTotals> getByCategory() {
+        return copyOf(byCategory);
+    }
+
+    public Map<String, SalesTotals> getBySalesperson() {
+        return copyOf(bySalesperson);
+    }
+
+    public Map<String, SalesTotals> getByPaymentMethod() {
+        return copyOf(byPaymentMethod);
+    }
+
+    // ---------------------------------------------------------------
+    // Utilitaires
+    // ---------------------------------------------------------------
+
+    private static void mergeLines(Map<String, SalesTotals> lines, Map<String, SalesTotals> target) {
+        lines.forEach((key, part) -> target.computeIfAbsent(key, k -> new SalesTotals())
+                .add(part.getRevenue(), null, 1, part.getItemsSold()));
+    }
+
+    private static <K> Map<K, SalesTotals> copyOf(Map<K, SalesTotals> source) {
+        Map<K, SalesTotals> copy = new LinkedHashMap<>();
+        source.forEach((key, totals) -> copy.put(key, totals.snapshot()));
+        return copy;
+    }
+
+    /**
+     * Prix figé sur la ligne ; à défaut (anciennes commandes), prix actuel du catalogue.
+     */
+    private BigDecimal unitPriceOf(OrderLine line) {
+        if (line.getPrice() != null) return line.getPrice();
+        return productRepository.findById(line.getId())
+                .map(Product::getPrice)
+                .orElse(BigDecimal.ZERO);
+    }
+
+    /**
+     * Catégorie figée sur la ligne ; à défaut (anciennes commandes), catégorie actuelle du catalogue.
+     */
+    private String categoryOf(OrderLine line) {
+        if (line.getCategory() != null) return line.getCategory();
+        return productRepository.findById(line.getId())
+                .map(Product::getCategory)
+                .map(SalesStatsService::keyOf)
+                .orElse(UNKNOWN);
+    }
+
+    private static String keyOf(String value) {
+        return value == null || value.isBlank() ? UNKNOWN : value;
+    }
+
+    private static LocalDateTime parseDate(String date) {
+        if (date == null) return null;
+        try {
+            return LocalDateTime.parse(date);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
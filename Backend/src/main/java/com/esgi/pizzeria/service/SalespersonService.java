@@ -98,4 +98,19 @@ public class SalespersonService {
         
         return false; // Utilisateur non trouvé
     }
-}
\ No newline at end of file
+
+    /**
+     * Vérifie qu'un vendeur actif dispose d'une permission (ex : "cash_out").
+     *
+     * @param id         L'identifiant du vendeur.
+     * @param permission Clé de la permission dans {@link Salesperson#getPermissions()}.
+     * @return true si le vendeur existe, est actif et possède la permission.
+     */
+    public boolean hasPermission(String id, String permission) {
+        return repository.findById(id)
+                .filter(Salesperson::isActive)
+                .map(user -> user.getPermissions() != null
+                        && Boolean.TRUE.equals(user.getPermissions().get(permission)))
+                .orElse(false);
+    }
+}
@@ -0,0 +1,235 @@
+package com.esgi.pizzeria.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.esgi.pizzeria.domain.Product;
+import com.esgi.pizzeria.repository.JsonProductRepository;
+
+/**
+ * Moteur de réservation du stock produits, en tout-ou-rien.
+ * <p>
+ * CONCURRENCE : un verrou par "bande" (lock striping) de produits. Une réservation prend
+ * les verrous de tous ses produits, toujours dans l'ordre croissant des bandes (pas
+ * d'interblocage), vérifie chaque ligne puis déduit l'ensemble. Deux caisses qui vendent
+ * la dernière pizza au même instant ne peuvent donc pas réussir toutes les deux.
+ * Les mutations du catalogue ({@link ProductService}) prennent le verrou de la même bande :
+ * une modification par l'administration n'est jamais écrasée par l'écriture d'un stock.
+ * </p>
+ * <p>
+ * Règle de stock (inchangée) : stock == null ou <= 0 → illimité, stock > 0 → vérifié et déduit.
+ * </p>
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    // Nombre de bandes : puissance de 2, largement supérieur au nombre de caisses simultanées
+    private static final int STRIPES = 64;
+
+    private final JsonProductRepository productRepository;
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    public StockReservationService(JsonProductRepository productRepository) {
+        this.productRepository = productRepository;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Réserve atomiquement les quantités demandées pour tous les produits.
+     * En cas d'échec, aucun stock n'est modifié.
+     * <p>
+     * Sous les verrous, chaque produit est relu par ID dans le repository : la déduction porte toujours
+     * sur l'instance courante du catalogue, jamais sur une copie obtenue avant la prise des verrous.
+     * Un produit supprimé entre-temps est ignoré.
+     * </p>
+     *
+     * @param quantities Quantité totale par produit (les lignes d'un même produit sont cumulées).
+     * @return La réservation, à valider par {@link #commit} ou annuler par {@link #release}.
+     * @throws IllegalStateException si le stock d'un produit est insuffisant.
+     */
+    public Reservation reserve(Map<Product, Integer> quantities) {
+        Map<String, Integer> tracked = new LinkedHashMap<>();
+        for (Map.Entry<Product, Integer> e : quantities.entrySet()) {
+            if (e.getValue() > 0 && e.getKey().getId() != null) tracked.merge(e.getKey().getId(), e.getValue(), Integer::sum);
+        }
+
+        Map<String, Deduction> deducted = new LinkedHashMap<>();
+        runLocked(tracked.keySet(), () -> {
+            Map<Product, Integer> current = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> e : tracked.entrySet()) {
+                productRepository.findById(e.getKey()).ifPresent(p -> current.put(p, e.getValue()));
+            }
+            // 1. Vérification de toutes les lignes avant toute déduction
+            for (Map.Entry<Product, Integer> e : current.entrySet()) {
+                Product p = e.getKey();
+                Integer stock = p.getStock();
+                if (stock != null && stock > 0 && stock < e.getValue()) {
+                    throw new IllegalStateException(
+                        "Stock insuffisant pour \"" + p.getName() + "\" "
+                        + "(disponible : " + stock + ", demandé : " + e.getValue() + ")."
+                    );
+                }
+            }
+            // 2. Déduction de l'ensemble
+            for (Map.Entry<Product, Integer> e : current.entrySet()) {
+                Product p = e.getKey();
+                Integer stock = p.getStock();
+                if (stock == null || stock <= 0) continue; // illimité
+                p.setStock(stock - e.getValue());
+                deducted.put(p.getId(), new Deduction(p, e.getValue()));
+                logger.info("Stock {} : {} → {}", p.getName(), stock, p.getStock());
+            }
+        });
+        return new Reservation(deducted);
+    }
+
+    /**
+     * Valide la réservation : les nouveaux stocks sont persistés en une seule écriture.
+     */
+    public void commit(Reservation reservation) {
+        commitAll(List.of(reservation));
+    }
+
+    /**
+     * Valide plusieurs réservations (lot de commandes) : une seule écriture pour tous les produits.
+     * <p>
+     * Sous les verrous, chaque produit est relu par ID : un produit supprimé depuis la réservation
+     * n'est pas recréé. Un produit remplacé entre-temps par l'administration (nouvelle instance, stock
+     * saisi sans connaître la vente en cours) reçoit la déduction, pour ne pas perdre la vente.
+     * </p>
+     */
+    public void commitAll(Collection<Reservation> reservations) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Reservation reservation : reservations) {
+            ids.addAll(reservation.deductions.keySet());
+        }
+        if (ids.isEmpty()) return;
+        runLocked(ids, () -> {
+            Map<String, Product> current = new LinkedHashMap<>();
+            for (Reservation reservation : reservations) {
+                for (Map.Entry<String, Deduction> e : reservation.deductions.entrySet()) {
+                    Optional<Product> found = productRepository.findById(e.getKey());
+                    if (found.isEmpty()) continue;
+                    Product p = found.get();
+                    Deduction deduction = e.getValue();
+                    if (p != deduction.product() && p.getStock() != null && p.getStock() > 0) {
+                        p.setStock(p.getStock() - deduction.quantity());
+                        logger.info("Stock {} modifié pendant la vente : déduction reportée ({} → {})",
+                                p.getName(), p.getStock() + deduction.quantity(), p.getStock());
+                    }
+                    current.put(p.getId(), p);
+                }
+            }
+            if (!current.isEmpty()) productRepository.saveAll(current.values());
+        });
+    }
+
+    /**
+     * Annule la réservation (rollback) : les quantités déduites sont restituées.
+     * <p>
+     * Seule l'instance déduite est restituée : un produit supprimé ou remplacé depuis la réservation
+     * n'a jamais porté la déduction.
+     * </p>
+     */
+    public void release(Reservation reservation) {
+        if (reservation.deductions.isEmpty()) return;
+        runLocked(reservation.deductions.keySet(), () -> {
+            List<Product> restored = new ArrayList<>();
+            for (Map.Entry<String, Deduction> e : reservation.deductions.entrySet()) {
+                Deduction deduction = e.getValue();
+                Optional<Product> found = productRepository.findById(e.getKey());
+                if (found.isEmpty() || found.get() != deduction.product()) continue;
+                Product p = found.get();
+                p.setStock(p.getStock() + deduction.quantity());
+                restored.add(p);
+            }
+            if (!restored.isEmpty()) productRepository.saveAll(restored);
+        });
+        logger.warn("Réservation de stock annulée ({} produit(s)).", reservation.deductions.size());
+    }
+
+    /**
+     * Exécute une mutation du catalogue (création, modification, suppression d'un produit)
+     * sous le verrou de la bande du produit : elle ne peut pas s'intercaler entre la relecture
+     * d'un produit et l'écriture de son stock par une réservation.
+     */
+    public <T> T withProductLock(String productId, Supplier<T> action) {
+        List<T> result = new ArrayList<>(1);
+        runLocked(Set.of(productId), () -> result.add(action.get()));
+        return result.get(0);
+    }
+
+    /**
+     * Exécute l'action en tenant les verrous des bandes de tous les produits concernés.
+     */
+    private void runLocked(Collection<String> productIds, Runnable action) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (String id : productIds) {
+            stripes.add(stripeOf(id));
+        }
+        List<ReentrantLock> acquired = new ArrayList<>(stripes.size());
+        try {
+            for (int stripe : stripes) {
+                ReentrantLock lock = locks[stripe];
+                lock.lock();
+                acquired.add(lock);
+            }
+            action.run();
+        } finally {
+            Collections.reverse(acquired);
+            for (ReentrantLock lock : acquired) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static int stripeOf(String id) {
+        int h = id != null ? id.hashCode() : 0;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    /**
+     * Déduction appliquée à une instance précise du catalogue.
+     */
+    private record Deduction(Product product, int quantity) {
+    }
+
+    /**
+     * Quantités effectivement déduites pour une commande, par ID produit (stocks suivis uniquement).
+     */
+    public static final class Reservation {
+
+        private final Map<String, Deduction> deductions;
+
+        private Reservation(Map<String, Deduction> deductions) {
+            this.deductions = Collections.unmodifiableMap(deductions);
+        }
+
+        /**
+         * @return Quantité déduite par ID produit.
+         */
+        public Map<String, Integer> getQuantities() {
+            Map<String, Integer> quantities = new LinkedHashMap<>();
+            deductions.forEach((id, deduction) -> quantities.put(id, deduction.quantity()));
+            return quantities;
+        }
+    }
+}
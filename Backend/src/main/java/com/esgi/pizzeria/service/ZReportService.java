@@ -0,0 +1,294 @@
+package com.esgi.pizzeria.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.esgi.pizzeria.domain.Money;
+import com.esgi.pizzeria.domain.Order;
+import com.esgi.pizzeria.domain.OrderLine;
+import com.esgi.pizzeria.domain.Product;
+import com.esgi.pizzeria.domain.ZReport;
+import com.esgi.pizzeria.repository.JsonOrderRepository;
+import com.esgi.pizzeria.repository.JsonProductRepository;
+import com.esgi.pizzeria.repository.JsonZReportRepository;
+
+/**
+ * Clôture de caisse (ticket Z) d'une journée d'activité.
+ * <p>
+ * PERFORMANCE : le rapport est calculé en un seul parcours des commandes de la journée,
+ * lues directement dans l'index chronologique (aucune copie de l'historique). Une fois la
+ * journée clôturée, le rapport est enregistré tel quel : sa réimpression ne recalcule rien.
+ * </p>
+ * <p>
+ * SÉCURITÉ : la clôture exige le PIN d'un vendeur actif disposant de la permission
+ * {@value #CASH_OUT_PERMISSION}.
+ * </p>
+ */
+@Service
+public class ZReportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZReportService.class);
+
+    public static final String CASH_OUT_PERMISSION = "cash_out";
+
+    // Motif regroupant les remises fidélité (voir le libellé construit par le frontend)
+    public static final String LOYALTY_REASON = "Fidélité";
+    private static final String NO_REASON = "Sans motif";
+    private static final String UNKNOWN_VAT = "INCONNU";
+
+    // "Remise 10% (-2.50€)" → motif "Remise 10%", montant 2.50
+    private static final Pattern DISCOUNT_PART = Pattern.compile("^(.*?)\\s*\\(-(\\d+(?:[.,]\\d+)?)€\\)$");
+    // "Fidélité: 200 pts" → 200 points
+    private static final Pattern LOYALTY_POINTS = Pattern.compile("(\\d+)\\s*pts");
+
+    private final JsonOrderRepository orderRepository;
+    private final JsonProductRepository productRepository;
+    private final JsonZReportRepository reportRepository;
+    private final SalespersonService salespersonService;
+
+    public ZReportService(JsonOrderRepository orderRepository,
+                          JsonProductRepository productRepository,
+                          JsonZReportRepository reportRepository,
+                          SalespersonService salespersonService) {
+        this.orderRepository = orderRepository;
+        this.productRepository = productRepository;
+        this.reportRepository = reportRepository;
+        this.salespersonService = salespersonService;
+    }
+
+    public List<ZReport> findAll() {
+        return reportRepository.findAll();
+    }
+
+    public Optional<ZReport> findByDate(LocalDate day) {
+        return reportRepository.findByDate(day.toString());
+    }
+
+    /**
+     * Ticket X : situation de la journée sans clôture (rien n'est enregistré).
+     */
+    public ZReport preview(LocalDate day) {
+        return compute(day);
+    }
+
+    /**
+     * Clôture la journée et enregistre le ticket Z.
+     *
+     * @param day           Journée à clôturer (aujourd'hui ou passée).
+     * @param salespersonId Vendeur effectuant la clôture.
+     * @param pinCode       PIN du vendeur.
+     * @return Le rapport figé.
+     * @throws SecurityException        si le PIN est faux ou la permission absente.
+     * @throws IllegalArgumentException si la journée est dans le futur.
+     * @throws IllegalStateException    si la journée est déjà clôturée.
+     */
+    public ZReport close(LocalDate day, String salespersonId, String pinCode) {
+        if (salespersonId == null || pinCode == null || !salespersonService.verifyPin(salespersonId, pinCode)) {
+            throw new SecurityException("Identifiants invalides.");
+        }
+        if (!salespersonService.hasPermission(salespersonId, CASH_OUT_PERMISSION)) {
+            throw new SecurityException("Ce vendeur n'est pas autorisé à clôturer la caisse.");
+        }
+        if (day.isAfter(LocalDate.now())) {
+            throw new IllegalArgumentException("Impossible de clôturer une journée future.");
+        }
+        if (reportRepository.findByDate(day.toString()).isPresent()) {
+            throw new IllegalStateException("La journée du " + day + " est déjà clôturée.");
+        }
+
+        ZReport report = compute(day);
+        report.setClosedAt(LocalDateTime.now().toString());
+        report.setClosedBy(salespersonId);
+
+        reportRepository.saveNew(report);
+        reportRepository.flush();
+        logger.info("Ticket Z du {} : {} commande(s), {}€ encaissés, clôturé par {}.",
+                day, report.getOrderCount(), report.getNetSales(), salespersonId);
+        return report;
+    }
+
+    /**
+     * Calcul du rapport en un seul parcours des commandes de la journée.
+     */
+    private ZReport compute(LocalDate day) {
+        Accumulator acc = new Accumulator();
+        orderRepository.forEachInRange(day.atStartOfDay(), day.plusDays(1).atStartOfDay(), acc::add);
+        ZReport report = acc.toReport();
+        report.setBusinessDate(day.toString());
+        return report;
+    }
+
+    /**
+     * Taux de TVA figé sur la ligne ; à défaut (anciennes commandes), taux actuel du catalogue.
+     */
+    private BigDecimal vatOf(OrderLine line) {
+        if (line.getVat() != null) return line.getVat();
+        return productRepository.findById(line.getId()).map(Product::getVat).orElse(null);
+    }
+
+    /**
+     * Montant HT d'un total TTC. Un taux plus fin que 0,01 % (ancienne ligne, catalogue antérieur à
+     * la validation des taux) est calculé en {@link BigDecimal} : l'historique ne fait jamais échouer
+     * un ticket. Un taux inexploitable (1 + taux <= 0) laisse le montant sans TVA.
+     */
+    static Money excludingVat(Money ttc, BigDecimal rate) {
+        try {
+            return ttc.excludingVat(Money.basisPoints(rate));
+        } catch (IllegalArgumentException e) {
+            BigDecimal divisor = BigDecimal.ONE.add(rate);
+            if (divisor.signum() <= 0) return ttc;
+            return Money.of(ttc.toBigDecimal().divide(divisor, 2, RoundingMode.HALF_UP));
+        }
+    }
+
+    private BigDecimal unitPriceOf(OrderLine line) {
+        if (line.getPrice() != null) return line.getPrice();
+        return productRepository.findById(line.getId()).map(Product::getPrice).orElse(BigDecimal.ZERO);
+    }
+
+    /**
+     * Totaux en cours de calcul pour une journée.
+     */
+    private final class Accumulator {
+
+        private final ZReport report = new ZReport();
+        // Tri des taux de TVA et des moyens de paiement pour une impression stable
+        private final Map<String, ZReport.PaymentTotal> payments = new TreeMap<>();
+        private final Map<String, Money> vatTotals = new TreeMap<>();
+        private final Map<String, ZReport.DiscountTotal> discounts = new TreeMap<>();
+
+        void add(Order order) {
+            BigDecimal total = order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO;
+            BigDecimal discount = order.getDiscountAmount() != null ? order.getDiscountAmount() : BigDecimal.ZERO;
+
+            report.setOrderCount(report.getOrderCount() + 1);
+            report.setNetSales(report.getNetSales().add(total));
+            report.setDiscountTotal(report.getDiscountTotal().add(discount));
+            report.setGrossSales(report.getGrossSales().add(total).add(discount));
+
+            String method = order.getPaymentMethod() != null ? order.getPaymentMethod() : SalesStatsService.UNKNOWN;
+            ZReport.PaymentTotal payment = payments.computeIfAbsent(method, k -> new ZReport.PaymentTotal());
+            payment.setCount(payment.getCount() + 1);
+            payment.setAmount(payment.getAmount().add(total));
+
+            addVat(order, Money.of(total));
+            if (discount.signum() > 0) addDiscounts(order.getDiscountReason(), discount);
+        }
+
+        /**
+         * Ventilation TVA : le total encaissé est réparti entre les taux au prorata des lignes,
+         * le dernier taux recevant l'arrondi pour que la somme soit exacte. Calcul en centimes ({@link Money}).
+         */
+        private void addVat(Order order, Money total) {
+            Map<String, Money> gross = new LinkedHashMap<>();
+            Money subtotal = Money.ZERO;
+            for (OrderLine line : order.getItems()) {
+                report.setItemsSold(report.getItemsSold() + line.getQuantity());
+                Money lineTotal = Money.of(unitPriceOf(line)).times(line.getQuantity());
+                if (lineTotal.isZero()) continue; // produit inconnu, hors total
+                BigDecimal vat = vatOf(line);
+                String key = vat != null ? vat.stripTrailingZeros().toPlainString() : UNKNOWN_VAT;
+                gross.merge(key, lineTotal, Money::plus);
+                subtotal = subtotal.plus(lineTotal);
+            }
+            if (subtotal.isZero()) return;
+
+            Money allocated = Money.ZERO;
+            List<String> rates = new ArrayList<>(gross.keySet());
+            for (int i = 0; i < rates.size(); i++) {
+                String rate = rates.get(i);
+                Money share = (i == rates.size() - 1)
+                        ? total.minus(allocated)
+                        : total.ratio(gross.get(rate).cents(), subtotal.cents());
+                allocated = allocated.plus(share);
+                vatTotals.merge(rate, share, Money::plus);
+            }
+        }
+
+        /**
+         * Motifs de remise. Le frontend combine plusieurs remises ("Fidélité: 200 pts (-10.00€) + Remise fixe (-2.00€)") :
+         * chaque partie est comptée séparément si la somme des montants correspond à la remise de la commande.
+         */
+        private void addDiscounts(String reason, BigDecimal discount) {
+            if (reason == null || reason.isBlank()) {
+                addDiscount(NO_REASON, discount);
+                return;
+            }
+
+            Map<String, BigDecimal> parts = new LinkedHashMap<>();
+            BigDecimal sum = BigDecimal.ZERO;
+            boolean parsed = true;
+            for (String part : reason.split(" \\+ ")) {
+                Matcher m = DISCOUNT_PART.matcher(part.trim());
+                if (!m.matches()) {
+                    parsed = false;
+                    break;
+                }
+                BigDecimal amount = new BigDecimal(m.group(2).replace(',', '.'));
+                parts.merge(m.group(1), amount, BigDecimal::add);
+                sum = sum.add(amount);
+            }
+            if (!parsed || sum.compareTo(discount) != 0) {
+                // Libellé libre ou remise plafonnée : tout le montant sur le motif complet
+                parts.clear();
+                parts.put(reason.trim(), discount);
+            }
+
+            for (Map.Entry<String, BigDecimal> part : parts.entrySet()) {
+                String label = part.getKey();
+                if (label.startsWith(LOYALTY_REASON)) {
+                    report.setLoyaltyRedemptions(report.getLoyaltyRedemptions() + 1);
+                    report.setLoyaltyDiscountTotal(report.getLoyaltyDiscountTotal().add(part.getValue()));
+                    Matcher points = LOYALTY_POINTS.matcher(label);
+                    if (points.find()) {
+                        report.setLoyaltyPointsRedeemed(report.getLoyaltyPointsRedeemed() + Long.parseLong(points.group(1)));
+                    }
+                    label = LOYALTY_REASON;
+                }
+                addDiscount(label, part.getValue());
+            }
+        }
+
+        private void addDiscount(String label, BigDecimal amount) {
+            ZReport.DiscountTotal total = discounts.computeIfAbsent(label, k -> new ZReport.DiscountTotal());
+            total.setCount(total.getCount() + 1);
+            total.setAmount(total.getAmount().add(amount));
+        }
+
+        ZReport toReport() {
+            report.setByPaymentMethod(new LinkedHashMap<>(payments));
+            report.setDiscountsByReason(new LinkedHashMap<>(discounts));
+
+            Map<String, ZReport.VatTotal> byRate = new LinkedHashMap<>();
+            vatTotals.forEach((rate, ttc) -> {
+                ZReport.VatTotal line = new ZReport.VatTotal();
+                line.setTotalAmount(ttc.toBigDecimal());
+                if (!UNKNOWN_VAT.equals(rate)) {
+                    // Prix TTC : HT = TTC / (1 + taux)
+                    Money base = excludingVat(ttc, new BigDecimal(rate));
+                    line.setBaseAmount(base.toBigDecimal());
+                    line.setVatAmount(ttc.minus(base).toBigDecimal());
+                } else {
+                    line.setBaseAmount(ttc.toBigDecimal());
+                }
+                byRate.put(rate, line);
+            });
+            report.setByVatRate(byRate);
+            return report;
+        }
+    }
+}
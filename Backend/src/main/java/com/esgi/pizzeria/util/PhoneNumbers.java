@@ -0,0 +1,38 @@
+package com.esgi.pizzeria.util;
+
+/**
+ * Utilitaire statique de normalisation des numéros de téléphone.
+ * <p>
+ * Deux saisies d'un même numéro ("06 12 34 56 78", "06.12.34.56.78", "+33 6 12 34 56 78")
+ * doivent produire la même clé de recherche : on ne conserve que les chiffres et l'indicatif
+ * international français est ramené au format national.
+ * </p>
+ */
+public class PhoneNumbers {
+
+    private PhoneNumbers() {}
+
+    /**
+     * @param phone Numéro tel que saisi.
+     * @return Les chiffres du numéro au format national, chaîne vide si l'entrée est null.
+     */
+    public static String normalize(String phone) {
+        if (phone == null) return "";
+        String trimmed = phone.trim();
+
+        StringBuilder digits = new StringBuilder(trimmed.length());
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c >= '0' && c <= '9') digits.append(c);
+        }
+
+        // +33 6... / 0033 6... → 06...
+        if (trimmed.startsWith("+33")) {
+            return "0" + digits.substring(2);
+        }
+        if (digits.length() > 4 && digits.indexOf("0033") == 0) {
+            return "0" + digits.substring(4);
+        }
+        return digits.toString();
+    }
+}
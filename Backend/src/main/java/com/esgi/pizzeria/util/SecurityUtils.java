@@ -25,13 +25,24 @@ public class SecurityUtils {
      * @throws RuntimeException Si l'algorithme SHA-256 n'est pas supporté par la JVM (cas très rare).
      */
     public static String hashPassword(String rawPassword) {
-        if (rawPassword == null) return null;
+        return sha256(rawPassword);
+    }
+
+    /**
+     * Empreinte SHA-256 d'une chaîne (UTF-8), en hexadécimal.
+     *
+     * @param value La chaîne à hacher.
+     * @return Les 64 caractères hexadécimaux de l'empreinte, ou null si l'entrée est null.
+     * @throws RuntimeException Si l'algorithme SHA-256 n'est pas supporté par la JVM (cas très rare).
+     */
+    public static String sha256(String value) {
+        if (value == null) return null;
         try {
             // Initialisation de l'algorithme de hachage standard Java
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             
             // Conversion en octets et hachage
-            byte[] encodedhash = digest.digest(rawPassword.getBytes(StandardCharsets.UTF_8));
+            byte[] encodedhash = digest.digest(value.getBytes(StandardCharsets.UTF_8));
             
             // Conversion des octets bruts en chaîne hexadécimale lisible
             return bytesToHex(encodedhash);
@@ -0,0 +1,62 @@
+package com.esgi.pizzeria.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Arrondis de {@link Money} : prorata et montant hors taxes au centime, HALF_UP.
+ */
+class MoneyTest {
+
+    @Test
+    void ratioRoundsHalfUp() {
+        assertEquals(Money.ofCents(333), Money.ofCents(1000).ratio(1, 3));
+        assertEquals(Money.ofCents(667), Money.ofCents(1000).ratio(2, 3));
+        // 2,5 centimes → 3, -2,5 centimes → -3 (arrondi à l'opposé de zéro)
+        assertEquals(Money.ofCents(3), Money.ofCents(5).ratio(1, 2));
+        assertEquals(Money.ofCents(-3), Money.ofCents(-5).ratio(1, 2));
+    }
+
+    @Test
+    void ratioBeyondLongRangeIsExact() {
+        long cents = Long.MAX_VALUE / 2;
+        long expected = BigDecimal.valueOf(cents).multiply(BigDecimal.valueOf(3))
+                .divide(BigDecimal.valueOf(4), 0, RoundingMode.HALF_UP).longValueExact();
+        assertEquals(Money.ofCents(expected), Money.ofCents(cents).ratio(3, 4));
+    }
+
+    @Test
+    void ratioRejectsInvalidDenominator() {
+        assertThrows(IllegalArgumentException.class, () -> Money.ofCents(100).ratio(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> Money.ofCents(100).ratio(1, -2));
+    }
+
+    @Test
+    void excludingVatRoundsToTheCent() {
+        assertEquals(Money.of(new BigDecimal("10.42")), Money.of(new BigDecimal("12.50")).excludingVat(2000));
+        assertEquals(Money.of(new BigDecimal("9.48")), Money.of(new BigDecimal("10.00")).excludingVat(550));
+        // 0,21 / 1,2 = 0,175 : demi-centime arrondi au-dessus
+        assertEquals(Money.ofCents(18), Money.ofCents(21).excludingVat(2000));
+    }
+
+    @Test
+    void vatIncludedCompletesExcludingVat() {
+        Money ttc = Money.of(new BigDecimal("12.50"));
+        assertEquals(ttc, ttc.excludingVat(1000).plus(ttc.vatIncluded(1000)));
+        assertEquals(Money.ofCents(3), Money.ofCents(21).vatIncluded(2000));
+    }
+
+    @Test
+    void basisPointsRejectsFinerOrNegativeRates() {
+        assertEquals(550, Money.basisPoints(new BigDecimal("0.055")));
+        assertEquals(2000, Money.basisPoints(new BigDecimal("0.20")));
+        assertEquals(555, Money.basisPoints(new BigDecimal("0.0555")));
+        assertThrows(IllegalArgumentException.class, () -> Money.basisPoints(new BigDecimal("0.05555")));
+        assertThrows(IllegalArgumentException.class, () -> Money.basisPoints(new BigDecimal("-0.1")));
+    }
+}
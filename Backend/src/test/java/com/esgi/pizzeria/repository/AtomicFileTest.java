@@ -0,0 +1,85 @@
+package com.esgi.pizzeria.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Écriture atomique, somme de contrôle et repli sur la génération de secours.
+ */
+class AtomicFileTest {
+
+    private static final AtomicFile.Reader<String> AS_STRING = buffer -> StandardCharsets.UTF_8.decode(buffer).toString();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writeKeepsContentPureAndChecksumInSidecar() throws IOException {
+        Path data = dir.resolve("data.json");
+        AtomicFile file = new AtomicFile(data.toString());
+
+        write(file, "[1]");
+        write(file, "[2]");
+
+        assertEquals("[2]", Files.readString(data));
+        assertEquals("[1]", Files.readString(dir.resolve("data.json.bak")));
+        assertTrue(Files.readString(dir.resolve("data.json.crc")).startsWith("crc32c "));
+        assertTrue(Files.exists(dir.resolve("data.json.bak.crc")));
+        assertEquals("[2]", file.read(AS_STRING));
+    }
+
+    @Test
+    void checksumMismatchFallsBackToBackup() throws IOException {
+        Path data = dir.resolve("data.json");
+        AtomicFile file = new AtomicFile(data.toString());
+        write(file, "[1]");
+        write(file, "[2]");
+
+        // Même taille, contenu altéré : seule la somme de contrôle le détecte
+        Files.writeString(data, "[3]");
+
+        IOException e = assertThrows(IOException.class, () -> file.readCurrent(AS_STRING));
+        assertEquals("Somme de contrôle invalide", e.getMessage());
+        assertEquals("[1]", file.read(AS_STRING));
+    }
+
+    @Test
+    void legacyFooterIsVerifiedAndStripped() throws IOException {
+        Path data = dir.resolve("legacy.json");
+        byte[] content = "[\"ancien\"]".getBytes(StandardCharsets.UTF_8);
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        Files.writeString(data, new String(content, StandardCharsets.UTF_8)
+                + String.format("\n#CRC32C %08x %d\n", crc.getValue(), content.length));
+
+        assertEquals("[\"ancien\"]", new AtomicFile(data.toString()).read(AS_STRING));
+    }
+
+    @Test
+    void missingChecksumIsAccepted() throws IOException {
+        Path data = dir.resolve("manual.json");
+        Files.writeString(data, "[]");
+
+        assertEquals("[]", new AtomicFile(data.toString()).read(AS_STRING));
+    }
+
+    @Test
+    void missingFileReadsAsNull() throws IOException {
+        assertNull(new AtomicFile(dir.resolve("absent.json").toString()).read(AS_STRING));
+    }
+
+    private static void write(AtomicFile file, String content) throws IOException {
+        file.write(out -> out.write(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
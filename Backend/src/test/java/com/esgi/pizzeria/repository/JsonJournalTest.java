@@ -0,0 +1,106 @@
+package com.esgi.pizzeria.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Rejeu du journal après un arrêt brutal : fin tronquée et lignes illisibles.
+ */
+class JsonJournalTest {
+
+    record Item(String id, int n) {
+    }
+
+    private static final SchemaMigrations SCHEMA = new SchemaMigrations("test");
+
+    @TempDir
+    Path dir;
+
+    private JsonJournal<Item> journal;
+
+    @AfterEach
+    void close() {
+        if (journal != null) journal.close();
+    }
+
+    @Test
+    void truncatedTailIsCutAndPreviousRecordsKept() throws IOException {
+        Path path = dir.resolve("journal.jsonl");
+        String valid = SCHEMA.header() + "{\"id\":\"a\",\"n\":1}\n{\"id\":\"b\",\"n\":2}\n";
+        Files.writeString(path, valid + "{\"id\":\"c\",\"n");
+
+        List<Item> replayed = replay(path);
+
+        assertEquals(List.of(new Item("a", 1), new Item("b", 2)), replayed);
+        assertEquals(valid, Files.readString(path));
+        assertEquals("{\"id\":\"c\",\"n\n", Files.readString(journal.rejectedFile().toPath()));
+        // Seules des lignes complètes ont été lues : pas de compaction nécessaire
+        assertFalse(journal.isOutdated());
+    }
+
+    @Test
+    void readableUnterminatedTailIsKeptAndNextAppendStartsANewLine() throws IOException {
+        Path path = dir.resolve("journal.jsonl");
+        Files.writeString(path, SCHEMA.header() + "{\"id\":\"a\",\"n\":1}\n{\"id\":\"b\",\"n\":2}");
+
+        assertEquals(2, replay(path).size());
+        journal.append(new Item("c", 3));
+        journal.sync();
+
+        assertEquals(List.of(new Item("a", 1), new Item("b", 2), new Item("c", 3)), replay(path));
+        assertFalse(Files.exists(journal.rejectedFile().toPath()));
+    }
+
+    @Test
+    void unreadableCompleteLineIsSetAsideAndReplayContinues() throws IOException {
+        Path path = dir.resolve("journal.jsonl");
+        Files.writeString(path, SCHEMA.header()
+                + "{\"id\":\"a\",\"n\":1}\n"
+                + "{\"id\":\"b\",\"n\":\n"
+                + "{\"id\":\"c\",\"n\":3}\n"
+                + "{\"id\":\"d\"");
+
+        List<Item> replayed = replay(path);
+
+        assertEquals(List.of(new Item("a", 1), new Item("c", 3)), replayed);
+        assertEquals("{\"id\":\"b\",\"n\":\n{\"id\":\"d\"\n", Files.readString(journal.rejectedFile().toPath()));
+        // La ligne illisible reste dans le journal jusqu'à la compaction demandée
+        assertTrue(journal.isOutdated());
+        assertTrue(Files.readString(path).endsWith("{\"id\":\"c\",\"n\":3}\n"));
+    }
+
+    @Test
+    void journalWithoutHeaderIsVersionZero() throws IOException {
+        Path path = dir.resolve("journal.jsonl");
+        Files.writeString(path, "{\"id\":\"a\",\"n\":1}\n");
+        SchemaMigrations schema = new SchemaMigrations("test").add(1, "double n", node -> node.put("n", node.get("n").asInt() * 2));
+        journal = new JsonJournal<>(path.toString(), Item.class, new ObjectMapper(), schema);
+
+        List<Item> replayed = new ArrayList<>();
+        journal.replay(replayed::add);
+
+        assertEquals(List.of(new Item("a", 2)), replayed);
+        assertTrue(journal.isOutdated());
+    }
+
+    private List<Item> replay(Path path) {
+        if (journal != null) journal.close();
+        journal = new JsonJournal<>(path.toString(), Item.class, new ObjectMapper(), SCHEMA);
+        List<Item> replayed = new ArrayList<>();
+        assertEquals(journal.replay(replayed::add), replayed.size());
+        return replayed;
+    }
+}
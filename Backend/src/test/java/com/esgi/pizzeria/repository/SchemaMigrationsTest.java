@@ -0,0 +1,96 @@
+package com.esgi.pizzeria.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Lecture des fichiers versionnés : migration depuis la version 0 et enveloppe courante.
+ */
+class SchemaMigrationsTest {
+
+    record Item(String id, int stock, String category) {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectReader reader = objectMapper.readerFor(Item.class);
+
+    /** v1 : ajoute la catégorie par défaut, v2 : renomme "qty" en "stock". */
+    private static SchemaMigrations schema() {
+        return new SchemaMigrations("test")
+                .add(1, "catégorie par défaut", node -> {
+                    if (!node.has("category")) node.put("category", "AUTRE");
+                })
+                .add(2, "qty → stock", node -> {
+                    if (node.has("qty")) node.set("stock", node.remove("qty"));
+                });
+    }
+
+    @Test
+    void bareArrayIsVersionZeroAndRunsEveryMigration() throws IOException {
+        SchemaMigrations.Loaded<List<Item>> loaded = schema().readList(
+                bytes("[{\"id\":\"a\",\"qty\":3},{\"id\":\"b\",\"qty\":1,\"category\":\"PIZZA\"}]"), reader);
+
+        assertEquals(List.of(new Item("a", 3, "AUTRE"), new Item("b", 1, "PIZZA")), loaded.value());
+        assertTrue(loaded.outdated());
+    }
+
+    @Test
+    void legacyHeaderSkipsAppliedMigrations() throws IOException {
+        SchemaMigrations.Loaded<List<Item>> loaded = schema().readList(
+                bytes("#SCHEMA 1\n[{\"id\":\"a\",\"qty\":3,\"category\":\"PIZZA\"}]"), reader);
+
+        assertEquals(List.of(new Item("a", 3, "PIZZA")), loaded.value());
+        assertTrue(loaded.outdated());
+    }
+
+    @Test
+    void currentEnvelopeRoundTripsUnchanged() throws IOException {
+        SchemaMigrations schema = schema();
+        List<Item> items = List.of(new Item("a", 3, "PIZZA"), new Item("b", 0, "BOISSON"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        schema.writer(objectMapper.writer(), items).write(out);
+
+        assertTrue(out.toString(StandardCharsets.UTF_8).startsWith("{\"schemaVersion\":2,"));
+        SchemaMigrations.Loaded<List<Item>> loaded = schema.readList(ByteBuffer.wrap(out.toByteArray()), reader);
+        assertEquals(items, loaded.value());
+        assertFalse(loaded.outdated());
+    }
+
+    @Test
+    void olderEnvelopeIsMigrated() throws IOException {
+        SchemaMigrations.Loaded<List<Item>> loaded = schema().readList(
+                bytes("{\"schemaVersion\":1,\"items\":[{\"id\":\"a\",\"qty\":2,\"category\":\"PIZZA\"}]}"), reader);
+
+        assertEquals(List.of(new Item("a", 2, "PIZZA")), loaded.value());
+        assertTrue(loaded.outdated());
+    }
+
+    @Test
+    void newerVersionIsRefused() {
+        assertThrows(IOException.class, () -> schema().readList(
+                bytes("{\"schemaVersion\":3,\"items\":[]}"), reader));
+    }
+
+    @Test
+    void migrationsMustBeDeclaredInOrder() {
+        assertThrows(IllegalArgumentException.class,
+                () -> schema().add(2, "doublon", node -> { }));
+    }
+
+    private static ByteBuffer bytes(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,160 @@
+package com.esgi.pizzeria.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.esgi.pizzeria.domain.Drink;
+import com.esgi.pizzeria.domain.Product;
+import com.esgi.pizzeria.repository.JsonProductRepository;
+import com.esgi.pizzeria.repository.WriteBehindFlusher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Réservations concurrentes : aucune survente, et un stock exactement restitué après annulation.
+ */
+class StockReservationServiceTest {
+
+    private static final int THREADS = 8;
+
+    private JsonProductRepository repository;
+    private StockReservationService service;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        // Ni écriture périodique ni écriture par lot : le catalogue reste en mémoire pendant le test
+        WriteBehindFlusher flusher = new WriteBehindFlusher(TimeUnit.HOURS.toMillis(1), Integer.MAX_VALUE, false,
+                new SimpleMeterRegistry());
+        repository = new JsonProductRepository(flusher);
+        service = new StockReservationService(repository);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        Product cola = drink("cola", 100);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+
+        // 8 × 10 tentatives de 3 unités pour 100 en stock : 33 réservations possibles, il en reste 1
+        runConcurrently(10, i -> {
+            try {
+                service.commit(service.reserve(Map.of(cola, 3)));
+                reserved.incrementAndGet();
+            } catch (IllegalStateException e) {
+                refused.incrementAndGet();
+            }
+        });
+
+        assertEquals(33, reserved.get());
+        assertEquals(THREADS * 10 - 33, refused.get());
+        assertEquals(1, stockOf("cola"));
+    }
+
+    @Test
+    void releaseRestoresStockExactly() throws Exception {
+        Product cola = drink("cola", 1000);
+        Product water = drink("water", 1000);
+        AtomicInteger committed = new AtomicInteger();
+
+        // Une commande sur deux est annulée, les autres validées
+        runConcurrently(50, i -> {
+            StockReservationService.Reservation reservation = service.reserve(Map.of(cola, 2, water, 1));
+            if (i % 2 == 0) {
+                service.release(reservation);
+            } else {
+                service.commit(reservation);
+                committed.incrementAndGet();
+            }
+        });
+
+        assertEquals(THREADS * 25, committed.get());
+        assertEquals(1000 - 2 * committed.get(), stockOf("cola"));
+        assertEquals(1000 - committed.get(), stockOf("water"));
+    }
+
+    @Test
+    void insufficientStockReservesNothing() {
+        Product cola = drink("cola", 10);
+        Product water = drink("water", 2);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> service.reserve(Map.of(cola, 5, water, 3)));
+
+        assertTrue(e.getMessage().startsWith("Stock insuffisant"));
+        assertEquals(10, stockOf("cola"));
+        assertEquals(2, stockOf("water"));
+    }
+
+    @Test
+    void releaseIgnoresReplacedProduct() {
+        Product cola = drink("cola", 10);
+        StockReservationService.Reservation reservation = service.reserve(Map.of(cola, 4));
+
+        // Stock ressaisi par l'administration pendant la commande : nouvelle instance
+        drink("cola", 50);
+        service.release(reservation);
+
+        assertEquals(50, stockOf("cola"));
+    }
+
+    private Product drink(String id, int stock) {
+        Drink drink = new Drink();
+        drink.setId(id);
+        drink.setName(id);
+        drink.setPrice(new BigDecimal("2.50"));
+        drink.setStock(stock);
+        return repository.save(drink);
+    }
+
+    private int stockOf(String id) {
+        return repository.findById(id).orElseThrow().getStock();
+    }
+
+    private interface Iteration {
+        void run(int index);
+    }
+
+    /**
+     * Lance {@code iterations} itérations sur chaque thread, tous démarrés au même instant.
+     */
+    private void runConcurrently(int iterations, Iteration iteration) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < iterations; i++) {
+                    iteration.run(i);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+    }
+}
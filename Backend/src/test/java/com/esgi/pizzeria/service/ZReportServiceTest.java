@@ -0,0 +1,34 @@
+package com.esgi.pizzeria.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+import com.esgi.pizzeria.domain.Money;
+
+/**
+ * Montant hors taxes du ticket Z, y compris pour les taux historiques plus fins que 0,01 %.
+ */
+class ZReportServiceTest {
+
+    @Test
+    void validRateUsesBasisPoints() {
+        assertEquals(Money.of(new BigDecimal("10.42")),
+                ZReportService.excludingVat(Money.of(new BigDecimal("12.50")), new BigDecimal("0.20")));
+    }
+
+    @Test
+    void finerRateFallsBackToBigDecimal() {
+        // 12,50 / 1,05555 = 11,8421... : le ticket est calculé au lieu d'échouer
+        assertEquals(Money.of(new BigDecimal("11.84")),
+                ZReportService.excludingVat(Money.of(new BigDecimal("12.50")), new BigDecimal("0.05555")));
+    }
+
+    @Test
+    void unusableRateLeavesAmountUntaxed() {
+        Money ttc = Money.of(new BigDecimal("12.50"));
+        assertEquals(ttc, ZReportService.excludingVat(ttc, new BigDecimal("-1.5")));
+    }
+}
@@ -12,6 +12,9 @@ import StockPanel from './components/StockPanel';
 import MenuPanel from './components/MenuPanel';
 import CustomersPanel from './components/CustomersPanel';
 
+// Taille des pages d'historique demandées au serveur
+const ORDERS_PAGE_SIZE = 500;
+
 /**
  * Écran d'administration complet.
  * Regroupe les statistiques (Dashboard), la gestion de stock, du menu et des utilisateurs.
@@ -40,10 +43,32 @@ export default function AdminPanel({ user, onBack }) {
     filterAndCalculate();
   }, [orders, timeRange]);
 
-  const fetchOrders = () => {
-    axios.get(ENDPOINTS.ORDERS)
-      .then(res => setOrders(res.data))
-      .catch(err => console.error("Erreur chargement commandes:", err));
+  /**
+   * Charge uniquement la période utile au tableau de bord (mois en cours ou 7 derniers jours),
+   * page par page, au lieu de tout l'historique.
+   */
+  const fetchOrders = async () => {
+    const now = new Date();
+    const monthStart = new Date(now.getFullYear(), now.getMonth(), 1);
+    const weekAgo = new Date(now.getFullYear(), now.getMonth(), now.getDate() - 7);
+    const start = monthStart < weekAgo ? monthStart : weekAgo;
+    const pad = (n) => String(n).padStart(2, '0');
+    const from = `${start.getFullYear()}-${pad(start.getMonth() + 1)}-${pad(start.getDate())}`;
+
+    try {
+      const all = [];
+      let cursor = null;
+      do {
+        const res = await axios.get(ENDPOINTS.ORDERS, {
+          params: { from, limit: ORDERS_PAGE_SIZE, ...(cursor && { cursor }) }
+        });
+        all.push(...res.data);
+        cursor = res.headers['x-next-cursor'];
+      } while (cursor);
+      setOrders(all);
+    } catch (err) {
+      console.error("Erreur chargement commandes:", err);
+    }
   };
 
   /**
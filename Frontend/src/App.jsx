@@ -13,6 +13,13 @@ import CustomerSearchModal from './components/CustomerSearchModal';
 
 import './App.css';
 
+/**
+ * Clé d'idempotence d'un encaissement.
+ * crypto.randomUUID n'existe qu'en contexte sécurisé (HTTPS ou localhost) : repli pour une caisse en HTTP sur le réseau local.
+ */
+const newIdempotencyKey = () =>
+  (window.crypto?.randomUUID?.() ?? `${Date.now().toString(36)}-${Math.random().toString(36).slice(2)}-${Math.random().toString(36).slice(2)}`);
+
 /**
  * Composant Racine (Main Orchestrator).
  * <p>
@@ -117,7 +124,12 @@ export default function App() {
     const previousPoints = currentTransaction.customer?.loyaltyPoints ?? 0;
     const customerId = orderData.customerId;
 
-    axios.post(ENDPOINTS.ORDERS, orderData)
+    // Clé d'idempotence conservée avec la transaction : un nouvel essai après une erreur réseau
+    // renvoie la même clé et le serveur ne débite pas la commande une seconde fois
+    const idempotencyKey = currentTransaction.idempotencyKey || newIdempotencyKey();
+    setCurrentTransaction(prev => ({ ...prev, idempotencyKey }));
+
+    axios.post(ENDPOINTS.ORDERS, orderData, { headers: { 'Idempotency-Key': idempotencyKey } })
       .then((response) => {
         // Le serveur retourne la commande validée avec le total certifié
         // (peut inclure une remise auto 5% appliquée côté serveur)
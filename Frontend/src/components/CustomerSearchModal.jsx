@@ -7,19 +7,24 @@ import { X, Search, Star, UserPlus, Percent, Euro, ChevronRight, UserX, Zap, Use
  * Modal intercalée entre "Encaisser" et le choix de paiement.
  *
  * UX :
- * - Annuaire de tous les clients, triés A-Z, avec index alphabétique
- * - Recherche filtrante en temps réel (nom, prénom, téléphone)
+ * - Recherche côté serveur au fil de la frappe (début du nom ou du téléphone),
+ *   résultats bornés et triés A-Z, avec index alphabétique
+ * - L'annuaire complet n'est jamais téléchargé (base fidélité volumineuse)
  * - Clic sur un client → sélection → section remise / fidélité
  * - Création rapide d'un nouveau client
  */
+// Nombre maximal de résultats demandés au serveur et délai entre deux frappes
+const SEARCH_LIMIT = 30;
+const SEARCH_DEBOUNCE_MS = 200;
+
 export default function CustomerSearchModal({ subtotal, onConfirm, onClose }) {
 
     // --- Config fidélité depuis l'API ---
     const [loyaltyConfig, setLoyaltyConfig] = useState(null);
 
-    // --- Annuaire complet ---
-    const [allCustomers, setAllCustomers] = useState([]);
-    const [loadingList, setLoadingList] = useState(true);
+    // --- Résultats de recherche (serveur) ---
+    const [results, setResults] = useState([]);
+    const [loadingList, setLoadingList] = useState(false);
 
     // --- Recherche / filtre ---
     const [searchQuery, setSearchQuery] = useState('');
@@ -54,16 +59,28 @@ export default function CustomerSearchModal({ subtotal, onConfirm, onClose }) {
                 discountPerRedemption: 5, autoDiscountRate: 5, autoDiscountThreshold: 20
             }));
 
-        // Tous les clients
-        axios.get(ENDPOINTS.CUSTOMERS)
-            .then(res => setAllCustomers(res.data))
-            .catch(() => setAllCustomers([]))
-            .finally(() => setLoadingList(false));
-
         // Focus sur la recherche à l'ouverture
         setTimeout(() => searchRef.current?.focus(), 50);
     }, []);
 
+    // Recherche par préfixe côté serveur, avec un court délai entre deux frappes
+    useEffect(() => {
+        const q = searchQuery.trim();
+        if (!q) {
+            setResults([]);
+            return;
+        }
+        let cancelled = false;
+        const timer = setTimeout(() => {
+            setLoadingList(true);
+            axios.get(`${ENDPOINTS.CUSTOMERS}/search`, { params: { prefix: q, limit: SEARCH_LIMIT } })
+                .then(res => { if (!cancelled) setResults(res.data); })
+                .catch(() => { if (!cancelled) setResults([]); })
+                .finally(() => { if (!cancelled) setLoadingList(false); });
+        }, SEARCH_DEBOUNCE_MS);
+        return () => { cancelled = true; clearTimeout(timer); };
+    }, [searchQuery]);
+
     // =================== CALCULS ===================
 
     const redemptionStep        = loyaltyConfig?.redemptionStep        ?? 100;
@@ -92,15 +109,9 @@ export default function CustomerSearchModal({ subtotal, onConfirm, onClose }) {
     // =================== FILTRE + TRI A-Z ===================
 
     const filteredCustomers = useMemo(() => {
-        const q = searchQuery.trim().toLowerCase();
-        return allCustomers
-            .filter(c => {
-                if (!q) return true;
-                return (c.name  || '').toLowerCase().includes(q)
-                    || (c.phone || '').includes(q);
-            })
+        return [...results]
             .sort((a, b) => (a.name || '').localeCompare(b.name || '', 'fr', { sensitivity: 'base' }));
-    }, [allCustomers, searchQuery]);
+    }, [results]);
 
     // Groupement par première lettre pour l'index alphabétique
     const grouped = useMemo(() => {
@@ -133,7 +144,7 @@ export default function CustomerSearchModal({ subtotal, onConfirm, onClose }) {
         if (!newName.trim() || !newPhone.trim()) return alert("Nom et téléphone obligatoires");
         axios.post(ENDPOINTS.CUSTOMERS, { name: newName.trim(), phone: newPhone.trim() })
             .then(res => {
-                setAllCustomers(prev => [...prev, res.data]);
+                setResults(prev => [...prev, res.data]);
                 setCustomer(res.data);
                 setShowCreate(false);
                 setNewName(''); setNewPhone('');
@@ -228,7 +239,7 @@ export default function CustomerSearchModal({ subtotal, onConfirm, onClose }) {
                             ) : filteredCustomers.length === 0 ? (
                                 <div className="flex flex-col items-center justify-center h-24 text-gray-400 text-sm gap-2">
                                     <Users size={28} className="opacity-20"/>
-                                    {searchQuery ? 'Aucun résultat' : 'Aucun client enregistré'}
+                                    {searchQuery ? 'Aucun résultat' : 'Tapez le début d\'un nom ou d\'un numéro'}
                                 </div>
                             ) : (
                                 <div>